@@ -0,0 +1,704 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.semarglproject.rdf.NQuadsSerializer;
+import org.semarglproject.rdf.NTriplesSerializer;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.vocab.RDF;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic documents of arbitrary size. Documents consist of resource
+ * descriptions, each description is a tree of resources nested up to configured depth. Same seed and
+ * shape parameters always produce same statements in all formats.
+ * <br>
+ * N-Triples and N-Quads documents are written by project's serializers, RDF/XML, XHTML+RDFa and
+ * JSON-LD documents are written directly. Documents are streamed, so output size is not limited by memory.
+ * <br>
+ * Can be run from command line: <code>CorpusGenerator format triples file [param=value...]</code>,
+ * where param is one of <code>seed, literalLength, maxLiteralLength, escapeDensity, blankNodeRatio,
+ * nestingDepth, prefixes, predicates, graphs</code>.
+ */
+public final class CorpusGenerator {
+
+    public static final String NTRIPLES = "ntriples";
+    public static final String NQUADS = "nquads";
+    public static final String RDFXML = "rdfxml";
+    public static final String RDFA = "rdfa";
+    public static final String JSONLD = "jsonld";
+
+    static final String BASE = "http://example.org/";
+
+    private static final String XSD_INTEGER = "http://www.w3.org/2001/XMLSchema#integer";
+    private static final String[] LANGUAGES = {"en", "de", "fr", "ru"};
+    private static final String PLAIN_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789     ";
+    // chars which require escaping in at least one of supported formats
+    private static final String[] SPECIAL_CHARS = {
+            "\"", "\\", "\n", "\t", "\r", "<", ">", "&", "'", "\u00e9", "\u20ac", "\u4e2d", "\ud834\udd1e"
+    };
+
+    private long seed = 0;
+    private int literalLength = 20;
+    private int maxLiteralLength = 1000;
+    private double escapeDensity = 0.01;
+    private double blankNodeRatio = 0.1;
+    private int nestingDepth = 0;
+    private int prefixes = 4;
+    private int predicates = 20;
+    private int propertiesPerResource = 5;
+    private int graphs = 10;
+
+    private Random random;
+    private long remaining;
+    private long resources;
+    private long blankNodes;
+
+    public CorpusGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Literal lengths are exponentially distributed with specified mean and limited by maximum length.
+     * @param mean mean literal length
+     * @param max maximum literal length
+     * @return this generator
+     */
+    public CorpusGenerator setLiteralLength(int mean, int max) {
+        if (mean < 0 || max < mean) {
+            throw new IllegalArgumentException("Invalid literal length");
+        }
+        this.literalLength = mean;
+        this.maxLiteralLength = max;
+        return this;
+    }
+
+    /**
+     * @param escapeDensity probability of literal char to be a quote, control, markup or non-ASCII char
+     * @return this generator
+     */
+    public CorpusGenerator setEscapeDensity(double escapeDensity) {
+        checkProbability(escapeDensity);
+        this.escapeDensity = escapeDensity;
+        return this;
+    }
+
+    /**
+     * @param blankNodeRatio probability of described resource to be a blank node
+     * @return this generator
+     */
+    public CorpusGenerator setBlankNodeRatio(double blankNodeRatio) {
+        checkProbability(blankNodeRatio);
+        this.blankNodeRatio = blankNodeRatio;
+        return this;
+    }
+
+    /**
+     * @param nestingDepth count of resources nested into each top level description
+     * @return this generator
+     */
+    public CorpusGenerator setNestingDepth(int nestingDepth) {
+        if (nestingDepth < 0) {
+            throw new IllegalArgumentException("Nesting depth can't be negative");
+        }
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    /**
+     * @param prefixes count of namespaces predicates are distributed over
+     * @return this generator
+     */
+    public CorpusGenerator setPrefixes(int prefixes) {
+        if (prefixes < 1) {
+            throw new IllegalArgumentException("At least one prefix required");
+        }
+        this.prefixes = prefixes;
+        return this;
+    }
+
+    /**
+     * @param predicates count of distinct predicates
+     * @return this generator
+     */
+    public CorpusGenerator setPredicates(int predicates) {
+        if (predicates < 1) {
+            throw new IllegalArgumentException("At least one predicate required");
+        }
+        this.predicates = predicates;
+        return this;
+    }
+
+    /**
+     * @param graphs count of named graphs used in N-Quads documents
+     * @return this generator
+     */
+    public CorpusGenerator setGraphs(int graphs) {
+        if (graphs < 1) {
+            throw new IllegalArgumentException("At least one graph required");
+        }
+        this.graphs = graphs;
+        return this;
+    }
+
+    /**
+     * Streams generated statements to specified sink. Graphs are passed to quad sinks only.
+     * Stream events are not sent.
+     * @param sink sink to stream to
+     * @param triples count of statements
+     */
+    public void generate(TripleSink sink, long triples) {
+        SinkWriter writer = new SinkWriter(sink);
+        reset(triples);
+        for (long tree = 0; remaining > 0; tree++) {
+            writer.graph = BASE + "graph/" + tree % graphs;
+            writer.writeStatements(nextNode(0));
+        }
+    }
+
+    /**
+     * Writes document of specified format.
+     * @param format one of {@link #NTRIPLES}, {@link #NQUADS}, {@link #RDFXML}, {@link #RDFA}, {@link #JSONLD}
+     * @param triples count of statements
+     * @param writer output of document, is flushed but not closed
+     * @throws ParseException if output can't be written
+     */
+    public void write(String format, long triples, Writer writer) throws ParseException {
+        if (NTRIPLES.equals(format) || NQUADS.equals(format)) {
+            CharOutputSink charOutputSink = new CharOutputSink("UTF-8");
+            charOutputSink.connect(writer);
+            TripleSink sink = NTRIPLES.equals(format) ? NTriplesSerializer.connect(charOutputSink)
+                    : NQuadsSerializer.connect(charOutputSink);
+            sink.startStream();
+            generate(sink, triples);
+            sink.endStream();
+            return;
+        }
+        DocumentWriter documentWriter;
+        if (RDFXML.equals(format)) {
+            documentWriter = new RdfXmlWriter(writer);
+        } else if (RDFA.equals(format)) {
+            documentWriter = new RdfaWriter(writer);
+        } else if (JSONLD.equals(format)) {
+            documentWriter = new JsonLdWriter(writer);
+        } else {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        reset(triples);
+        try {
+            documentWriter.startDocument();
+            while (remaining > 0) {
+                documentWriter.writeNode(nextNode(0), 0);
+            }
+            documentWriter.endDocument();
+            writer.flush();
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    /**
+     * Generates document of specified format in memory.
+     * @param format document's format
+     * @param triples count of statements
+     * @return document's text
+     * @throws ParseException
+     */
+    public String generate(String format, int triples) throws ParseException {
+        StringWriter writer = new StringWriter();
+        write(format, triples, writer);
+        return writer.toString();
+    }
+
+    public static void main(String[] args) throws ParseException, IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: CorpusGenerator " + NTRIPLES + "|" + NQUADS + "|" + RDFXML + "|" + RDFA
+                    + "|" + JSONLD + " triples file [param=value...]");
+            System.exit(1);
+        }
+        CorpusGenerator generator = new CorpusGenerator();
+        int literalLength = generator.literalLength;
+        int maxLiteralLength = generator.maxLiteralLength;
+        for (int i = 3; i < args.length; i++) {
+            int eqPos = args[i].indexOf('=');
+            if (eqPos == -1) {
+                throw new IllegalArgumentException("Invalid parameter " + args[i]);
+            }
+            String key = args[i].substring(0, eqPos);
+            String value = args[i].substring(eqPos + 1);
+            if ("seed".equals(key)) {
+                generator.setSeed(Long.parseLong(value));
+            } else if ("literalLength".equals(key)) {
+                literalLength = Integer.parseInt(value);
+            } else if ("maxLiteralLength".equals(key)) {
+                maxLiteralLength = Integer.parseInt(value);
+            } else if ("escapeDensity".equals(key)) {
+                generator.setEscapeDensity(Double.parseDouble(value));
+            } else if ("blankNodeRatio".equals(key)) {
+                generator.setBlankNodeRatio(Double.parseDouble(value));
+            } else if ("nestingDepth".equals(key)) {
+                generator.setNestingDepth(Integer.parseInt(value));
+            } else if ("prefixes".equals(key)) {
+                generator.setPrefixes(Integer.parseInt(value));
+            } else if ("predicates".equals(key)) {
+                generator.setPredicates(Integer.parseInt(value));
+            } else if ("graphs".equals(key)) {
+                generator.setGraphs(Integer.parseInt(value));
+            } else {
+                throw new IllegalArgumentException("Unknown parameter " + key);
+            }
+        }
+        generator.setLiteralLength(literalLength, maxLiteralLength);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[2]),
+                Charset.forName("UTF-8")), 1 << 16);
+        try {
+            generator.write(args[0], Long.parseLong(args[1]), writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void checkProbability(double value) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException("Probability must be in [0, 1] range");
+        }
+    }
+
+    private void reset(long triples) {
+        random = new Random(seed);
+        remaining = triples;
+        resources = 0;
+        blankNodes = 0;
+    }
+
+    private Node nextNode(int depth) {
+        Node node;
+        if (random.nextDouble() < blankNodeRatio) {
+            node = new Node(RDF.BNODE_PREFIX + "b" + blankNodes++);
+        } else {
+            node = new Node(BASE + "resource/" + resources++);
+        }
+        int count = 1 + random.nextInt(2 * propertiesPerResource - 1);
+        boolean[] used = new boolean[predicates];
+        for (int i = 0; i < count && i < predicates && remaining > 0; i++) {
+            remaining--;
+            int predicate = random.nextInt(predicates);
+            while (used[predicate]) {
+                predicate = (predicate + 1) % predicates;
+            }
+            used[predicate] = true;
+            Property property = new Property(predicate);
+            if (i == 0 && depth < nestingDepth) {
+                property.child = nextNode(depth + 1);
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        property.value = nextReference();
+                        break;
+                    case 1:
+                        property.value = nextLiteral();
+                        property.lang = random.nextBoolean() ? LANGUAGES[random.nextInt(LANGUAGES.length)] : null;
+                        property.literal = true;
+                        break;
+                    default:
+                        property.value = String.valueOf(random.nextInt());
+                        property.type = XSD_INTEGER;
+                        property.literal = true;
+                        break;
+                }
+            }
+            node.properties.add(property);
+        }
+        return node;
+    }
+
+    private String nextReference() {
+        if (blankNodes > 0 && random.nextDouble() < blankNodeRatio) {
+            return RDF.BNODE_PREFIX + "b" + (long) (random.nextDouble() * blankNodes);
+        }
+        return BASE + "resource/" + (long) (random.nextDouble() * (resources + 1));
+    }
+
+    private String nextLiteral() {
+        int length = (int) Math.min(maxLiteralLength, -literalLength * Math.log(1 - random.nextDouble()));
+        StringBuilder result = new StringBuilder(length + 1);
+        for (int i = 0; i < length; i++) {
+            if (random.nextDouble() < escapeDensity) {
+                result.append(SPECIAL_CHARS[random.nextInt(SPECIAL_CHARS.length)]);
+            } else {
+                result.append(PLAIN_CHARS.charAt(random.nextInt(PLAIN_CHARS.length())));
+            }
+        }
+        return result.toString();
+    }
+
+    private String namespace(int predicate) {
+        return BASE + "ns" + predicate % prefixes + "/";
+    }
+
+    private String prefix(int predicate) {
+        return "ns" + predicate % prefixes;
+    }
+
+    private static String localName(int predicate) {
+        return "p" + predicate;
+    }
+
+    private static boolean isBlankNode(String value) {
+        return value.startsWith(RDF.BNODE_PREFIX);
+    }
+
+    private static final class Node {
+        private final String subject;
+        private final List<Property> properties = new ArrayList<Property>();
+
+        private Node(String subject) {
+            this.subject = subject;
+        }
+    }
+
+    private static final class Property {
+        private final int predicate;
+        private Node child;
+        private String value;
+        private String lang;
+        private String type;
+        private boolean literal;
+
+        private Property(int predicate) {
+            this.predicate = predicate;
+        }
+    }
+
+    private final class SinkWriter {
+        private final TripleSink sink;
+        private final QuadSink quadSink;
+        private String graph;
+
+        private SinkWriter(TripleSink sink) {
+            this.sink = sink;
+            this.quadSink = sink instanceof QuadSink ? (QuadSink) sink : null;
+        }
+
+        private void writeStatements(Node node) {
+            for (Property property : node.properties) {
+                String pred = namespace(property.predicate) + localName(property.predicate);
+                if (property.child != null) {
+                    addNonLiteral(node.subject, pred, property.child.subject);
+                    writeStatements(property.child);
+                } else if (!property.literal) {
+                    addNonLiteral(node.subject, pred, property.value);
+                } else if (property.type == null) {
+                    if (quadSink != null) {
+                        quadSink.addPlainLiteral(node.subject, pred, property.value, property.lang, graph);
+                    } else {
+                        sink.addPlainLiteral(node.subject, pred, property.value, property.lang);
+                    }
+                } else {
+                    if (quadSink != null) {
+                        quadSink.addTypedLiteral(node.subject, pred, property.value, property.type, graph);
+                    } else {
+                        sink.addTypedLiteral(node.subject, pred, property.value, property.type);
+                    }
+                }
+            }
+        }
+
+        private void addNonLiteral(String subj, String pred, String obj) {
+            if (quadSink != null) {
+                quadSink.addNonLiteral(subj, pred, obj, graph);
+            } else {
+                sink.addNonLiteral(subj, pred, obj);
+            }
+        }
+    }
+
+    private abstract class DocumentWriter {
+        protected final Writer writer;
+
+        protected DocumentWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        abstract void startDocument() throws IOException;
+
+        abstract void writeNode(Node node, int depth) throws IOException;
+
+        abstract void endDocument() throws IOException;
+
+        protected void indent(int depth) throws IOException {
+            for (int i = 0; i < depth; i++) {
+                writer.write("  ");
+            }
+        }
+
+        protected void writeXmlEscaped(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '<':
+                        writer.write("&lt;");
+                        break;
+                    case '>':
+                        writer.write("&gt;");
+                        break;
+                    case '&':
+                        writer.write("&amp;");
+                        break;
+                    case '"':
+                        writer.write("&quot;");
+                        break;
+                    default:
+                        writer.write(ch);
+                }
+            }
+        }
+    }
+
+    private final class RdfXmlWriter extends DocumentWriter {
+
+        private RdfXmlWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void startDocument() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rdf:RDF xmlns:rdf=\"");
+            writer.write(RDF.NS);
+            writer.write('"');
+            for (int i = 0; i < prefixes; i++) {
+                writer.write(" xmlns:" + prefix(i) + "=\"" + namespace(i) + "\"");
+            }
+            writer.write(">\n");
+        }
+
+        @Override
+        void writeNode(Node node, int depth) throws IOException {
+            indent(depth + 1);
+            writer.write("<rdf:Description ");
+            writeNodeRef(node.subject, "rdf:about");
+            writer.write(">\n");
+            for (Property property : node.properties) {
+                String qName = prefix(property.predicate) + ":" + localName(property.predicate);
+                indent(depth + 2);
+                writer.write("<" + qName);
+                if (property.child != null) {
+                    writer.write(">\n");
+                    writeNode(property.child, depth + 2);
+                    indent(depth + 2);
+                    writer.write("</" + qName + ">\n");
+                } else if (!property.literal) {
+                    writer.write(' ');
+                    writeNodeRef(property.value, "rdf:resource");
+                    writer.write("/>\n");
+                } else {
+                    if (property.lang != null) {
+                        writer.write(" xml:lang=\"" + property.lang + "\"");
+                    } else if (property.type != null) {
+                        writer.write(" rdf:datatype=\"" + property.type + "\"");
+                    }
+                    writer.write('>');
+                    writeXmlEscaped(property.value);
+                    writer.write("</" + qName + ">\n");
+                }
+            }
+            indent(depth + 1);
+            writer.write("</rdf:Description>\n");
+        }
+
+        private void writeNodeRef(String value, String iriAttr) throws IOException {
+            if (isBlankNode(value)) {
+                writer.write("rdf:nodeID=\"" + value.substring(RDF.BNODE_PREFIX.length()) + "\"");
+            } else {
+                writer.write(iriAttr + "=\"");
+                writeXmlEscaped(value);
+                writer.write('"');
+            }
+        }
+
+        @Override
+        void endDocument() throws IOException {
+            writer.write("</rdf:RDF>\n");
+        }
+    }
+
+    private final class RdfaWriter extends DocumentWriter {
+
+        private RdfaWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void startDocument() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<html xmlns=\"http://www.w3.org/1999/xhtml\" prefix=\"");
+            for (int i = 0; i < prefixes; i++) {
+                if (i > 0) {
+                    writer.write(' ');
+                }
+                writer.write(prefix(i) + ": " + namespace(i));
+            }
+            writer.write("\">\n<head><title>Generated document</title></head>\n<body>\n");
+        }
+
+        @Override
+        void writeNode(Node node, int depth) throws IOException {
+            indent(depth);
+            writer.write("<div about=\"" + toSafeCurie(node.subject) + "\">\n");
+            for (Property property : node.properties) {
+                String curie = prefix(property.predicate) + ":" + localName(property.predicate);
+                indent(depth + 1);
+                if (property.child != null) {
+                    writer.write("<div rel=\"" + curie + "\">\n");
+                    writeNode(property.child, depth + 2);
+                    indent(depth + 1);
+                    writer.write("</div>\n");
+                } else if (!property.literal) {
+                    writer.write("<span rel=\"" + curie + "\" resource=\"" + toSafeCurie(property.value)
+                            + "\"></span>\n");
+                } else {
+                    writer.write("<span property=\"" + curie + "\"");
+                    if (property.lang != null) {
+                        writer.write(" xml:lang=\"" + property.lang + "\"");
+                    } else if (property.type != null) {
+                        writer.write(" datatype=\"" + property.type + "\"");
+                    }
+                    writer.write('>');
+                    writeXmlEscaped(property.value);
+                    writer.write("</span>\n");
+                }
+            }
+            indent(depth);
+            writer.write("</div>\n");
+        }
+
+        private String toSafeCurie(String value) {
+            if (isBlankNode(value)) {
+                return "[" + value + "]";
+            }
+            return value;
+        }
+
+        @Override
+        void endDocument() throws IOException {
+            writer.write("</body>\n</html>\n");
+        }
+    }
+
+    private final class JsonLdWriter extends DocumentWriter {
+
+        private boolean first;
+
+        private JsonLdWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void startDocument() throws IOException {
+            writer.write("{\n  \"@context\": {");
+            for (int i = 0; i < prefixes; i++) {
+                writer.write(i > 0 ? ", \"" : "\"");
+                writer.write(prefix(i) + "\": \"" + namespace(i) + "\"");
+            }
+            writer.write("},\n  \"@graph\": [\n");
+            first = true;
+        }
+
+        @Override
+        void writeNode(Node node, int depth) throws IOException {
+            if (depth == 0) {
+                if (!first) {
+                    writer.write(",\n");
+                }
+                first = false;
+                indent(2);
+            }
+            writer.write("{\"@id\": ");
+            writeJsonString(node.subject);
+            for (Property property : node.properties) {
+                writer.write(", \"" + prefix(property.predicate) + ":" + localName(property.predicate) + "\": ");
+                if (property.child != null) {
+                    writeNode(property.child, depth + 1);
+                } else if (!property.literal) {
+                    writer.write("{\"@id\": ");
+                    writeJsonString(property.value);
+                    writer.write('}');
+                } else if (property.lang == null && property.type == null) {
+                    writeJsonString(property.value);
+                } else {
+                    writer.write("{\"@value\": ");
+                    writeJsonString(property.value);
+                    if (property.lang != null) {
+                        writer.write(", \"@language\": \"" + property.lang + "\"}");
+                    } else {
+                        writer.write(", \"@type\": \"" + property.type + "\"}");
+                    }
+                }
+            }
+            writer.write('}');
+        }
+
+        private void writeJsonString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                switch (ch) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (ch < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) ch));
+                        } else {
+                            writer.write(ch);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+
+        @Override
+        void endDocument() throws IOException {
+            writer.write("\n  ]\n}\n");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.semarglproject.sink.QuadSink;
+
+/**
+ * Sink which consumes statements by counting them and their terms' lengths,
+ * so benchmarked code can't be eliminated by JIT.
+ */
+final class CountingSink implements QuadSink {
+
+    private long count;
+    private long checksum;
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        count++;
+        checksum += subj.length() + pred.length() + obj.length();
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        count++;
+        checksum += subj.length() + pred.length() + content.length() + (lang == null ? 0 : lang.length());
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        count++;
+        checksum += subj.length() + pred.length() + content.length() + type.length();
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        addNonLiteral(subj, pred, obj);
+        checksum += graph == null ? 0 : graph.length();
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        addPlainLiteral(subj, pred, content, lang);
+        checksum += graph == null ? 0 : graph.length();
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        addTypedLiteral(subj, pred, content, type);
+        checksum += graph == null ? 0 : graph.length();
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    @Override
+    public void startStream() {
+    }
+
+    @Override
+    public void endStream() {
+    }
+
+    @Override
+    public boolean setProperty(String key, Object value) {
+        return false;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getChecksum() {
+        return checksum + count;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.ri.IriResolver;
+import org.semarglproject.ri.MalformedIriException;
+import org.semarglproject.ri.RIUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of IRI resolution on absolute IRIs and on relative references from RFC 3986 examples.
+ * Compares {@link RIUtils#resolveIri(String, String)}, reused {@link IriResolver} and
+ * former {@link java.net.URL} based implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IriResolutionBenchmark {
+
+    private static final String BASE = "http://a/b/c/d;p?q";
+
+    private static final String[] ABSOLUTE = {
+            "http://example.org/resource/1", "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+            "urn:isbn:0451450523", "mailto:someone@example.org", "https://example.org:8080/a/b?c=d#e"
+    };
+
+    private static final String[] RELATIVE = {
+            "g", "./g", "g/", "/g", "//g", "?y", "g?y", "#s", "g#s", "g?y#s", ";x", "g;x", "g;x?y#s", "",
+            ".", "./", "..", "../", "../g", "../..", "../../", "../../g", "../../../g", "/./g", "/../g",
+            "g.", ".g", "g..", "..g", "./../g", "./g/.", "g/./h", "g/../h", "g;x=1/./y", "g;x=1/../y"
+    };
+
+    @Param({"riutils", "resolver", "url"})
+    private String implementation;
+
+    private IriResolver resolver;
+
+    @Setup
+    public void setUp() {
+        resolver = new IriResolver(BASE);
+    }
+
+    @Benchmark
+    public int resolveAbsolute() throws MalformedIriException {
+        return resolveAll(ABSOLUTE);
+    }
+
+    @Benchmark
+    public int resolveRelative() throws MalformedIriException {
+        return resolveAll(RELATIVE);
+    }
+
+    private int resolveAll(String[] iris) throws MalformedIriException {
+        int result = 0;
+        if ("riutils".equals(implementation)) {
+            for (String iri : iris) {
+                result += RIUtils.resolveIri(BASE, iri).length();
+            }
+        } else if ("resolver".equals(implementation)) {
+            for (String iri : iris) {
+                result += resolver.resolve(iri).length();
+            }
+        } else {
+            for (String iri : iris) {
+                result += UrlIriResolution.resolveIri(BASE, iri).length();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.ri.RIUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of IRI and URN checks on typical IRIs, CURIEs
+ * and long data: URIs and query strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IriValidationBenchmark {
+
+    private static final String[] SHORT_VALUES = {
+            "http://example.org/resource/1", "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+            "urn:isbn:0451450523", "mailto:someone@example.org", "foaf:name", "_:b1", "#me", "relative/path"
+    };
+
+    private String[] longValues;
+
+    @Setup
+    public void setUp() {
+        StringBuilder data = new StringBuilder("data:image/png;base64,");
+        StringBuilder query = new StringBuilder("http://example.org/search?");
+        for (int i = 0; i < 4096; i++) {
+            data.append((char) ('A' + i % 26));
+            query.append("q").append(i).append("=v&");
+        }
+        longValues = new String[] {data.toString(), query.toString()};
+    }
+
+    @Benchmark
+    public int validateShort() {
+        return validateAll(SHORT_VALUES);
+    }
+
+    @Benchmark
+    public int validateLong() {
+        return validateAll(longValues);
+    }
+
+    private static int validateAll(String[] values) {
+        int result = 0;
+        for (String value : values) {
+            if (RIUtils.isIri(value)) {
+                result++;
+            }
+            if (RIUtils.isAbsoluteIri(value)) {
+                result++;
+            }
+            if (RIUtils.isUrn(value)) {
+                result++;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.jsonld.JsonLdParser;
+import org.semarglproject.rdf.NQuadsParser;
+import org.semarglproject.rdf.NTriplesParser;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.rdf.RdfXmlParser;
+import org.semarglproject.rdf.rdfa.RdfaParser;
+import org.semarglproject.sink.DataSink;
+import org.semarglproject.source.StreamProcessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing throughput of generated documents. Scaling with document size is measured
+ * by <code>triples</code> parameter, allocations per document are reported by GC profiler.
+ * Document shape can be changed by remaining parameters, see {@link CorpusGenerator}.
+ * Parallel and pipelined processing are enabled by <code>parallelism</code> and <code>pipelineDepth</code>
+ * parameters, parallel processing applies only to N-Triples and N-Quads files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"ntriples", "nquads", "rdfxml", "rdfa", "jsonld"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int triples;
+
+    @Param({"0"})
+    private int nestingDepth;
+
+    @Param({"0.01"})
+    private double escapeDensity;
+
+    @Param({"0.1"})
+    private double blankNodeRatio;
+
+    @Param({"1"})
+    private int parallelism;
+
+    @Param({"0"})
+    private int pipelineDepth;
+
+    private String document;
+    private byte[] documentBytes;
+    private File documentFile;
+    private CountingSink sink;
+    private StreamProcessor streamProcessor;
+
+    @Setup
+    public void setUp() throws ParseException, IOException {
+        sink = new CountingSink();
+        DataSink parser;
+        if (CorpusGenerator.NTRIPLES.equals(format)) {
+            parser = NTriplesParser.connect(sink);
+        } else if (CorpusGenerator.NQUADS.equals(format)) {
+            parser = NQuadsParser.connect(sink);
+        } else if (CorpusGenerator.RDFXML.equals(format)) {
+            parser = RdfXmlParser.connect(sink);
+        } else if (CorpusGenerator.RDFA.equals(format)) {
+            parser = RdfaParser.connect(sink);
+        } else if (CorpusGenerator.JSONLD.equals(format)) {
+            parser = JsonLdParser.connect(sink);
+        } else {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        document = new CorpusGenerator()
+                .setNestingDepth(nestingDepth)
+                .setEscapeDensity(escapeDensity)
+                .setBlankNodeRatio(blankNodeRatio)
+                .generate(format, triples);
+        documentBytes = document.getBytes(Charset.forName("UTF-8"));
+        documentFile = File.createTempFile("semargl-benchmark", "." + format);
+        OutputStream outputStream = new FileOutputStream(documentFile);
+        try {
+            outputStream.write(documentBytes);
+        } finally {
+            outputStream.close();
+        }
+        streamProcessor = new StreamProcessor(parser);
+        streamProcessor.setProperty(StreamProcessor.PARALLELISM_PROPERTY, parallelism);
+        streamProcessor.setProperty(StreamProcessor.PIPELINE_DEPTH_PROPERTY, pipelineDepth);
+    }
+
+    @TearDown
+    public void tearDown() {
+        documentFile.delete();
+    }
+
+    @Benchmark
+    public long parseChars() throws ParseException {
+        streamProcessor.process(new StringReader(document), CorpusGenerator.BASE);
+        return sink.getChecksum();
+    }
+
+    @Benchmark
+    public long parseBytes() throws ParseException {
+        streamProcessor.process(new ByteArrayInputStream(documentBytes), CorpusGenerator.BASE);
+        return sink.getChecksum();
+    }
+
+    @Benchmark
+    public long parseFile() throws ParseException {
+        streamProcessor.process(documentFile, CorpusGenerator.BASE);
+        return sink.getChecksum();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.rdf.RdfXmlParser;
+import org.semarglproject.source.StreamProcessor;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RDF/XML parsing of deeply nested documents shaped like Wikidata or DBpedia dumps,
+ * where each description holds chains of nested resources. Element stacks of parser are pushed
+ * and popped for each of them, so throughput and allocations per document depend on nesting depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RdfXmlDepthBenchmark {
+
+    @Param({"0", "8", "64"})
+    private int nestingDepth;
+
+    @Param({"100000"})
+    private int triples;
+
+    private String document;
+    private CountingSink sink;
+    private StreamProcessor streamProcessor;
+
+    @Setup
+    public void setUp() throws ParseException {
+        sink = new CountingSink();
+        document = new CorpusGenerator()
+                .setNestingDepth(nestingDepth)
+                .setBlankNodeRatio(0.5)
+                .generate(CorpusGenerator.RDFXML, triples);
+        streamProcessor = new StreamProcessor(RdfXmlParser.connect(sink));
+    }
+
+    @Benchmark
+    public long parse() throws ParseException {
+        streamProcessor.process(new StringReader(document), CorpusGenerator.BASE);
+        return sink.getChecksum();
+    }
+}
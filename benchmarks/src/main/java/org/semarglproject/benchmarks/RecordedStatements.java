@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.TripleSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records statements in memory to replay them into serializers without generation overhead.
+ */
+final class RecordedStatements implements QuadSink {
+
+    private static final String NON_LITERAL = null;
+    private static final String PLAIN_LITERAL = "";
+
+    // subject, predicate, object, lang or type (or flag for non literals and plain literals), graph
+    private final List<String[]> statements = new ArrayList<String[]>();
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        addNonLiteral(subj, pred, obj, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        addPlainLiteral(subj, pred, content, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        addTypedLiteral(subj, pred, content, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        statements.add(new String[] {subj, pred, obj, NON_LITERAL, null, graph});
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        statements.add(new String[] {subj, pred, content, PLAIN_LITERAL, lang, graph});
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        statements.add(new String[] {subj, pred, content, type, null, graph});
+    }
+
+    /**
+     * Passes recorded statements to specified sink. Graphs are passed to quad sinks only.
+     * @param sink sink to replay statements to
+     */
+    void replay(TripleSink sink) {
+        QuadSink quadSink = sink instanceof QuadSink ? (QuadSink) sink : null;
+        for (String[] st : statements) {
+            if (quadSink != null && st[5] != null) {
+                if (st[3] == NON_LITERAL) {
+                    quadSink.addNonLiteral(st[0], st[1], st[2], st[5]);
+                } else if (st[3] == PLAIN_LITERAL) {
+                    quadSink.addPlainLiteral(st[0], st[1], st[2], st[4], st[5]);
+                } else {
+                    quadSink.addTypedLiteral(st[0], st[1], st[2], st[3], st[5]);
+                }
+            } else if (st[3] == NON_LITERAL) {
+                sink.addNonLiteral(st[0], st[1], st[2]);
+            } else if (st[3] == PLAIN_LITERAL) {
+                sink.addPlainLiteral(st[0], st[1], st[2], st[4]);
+            } else {
+                sink.addTypedLiteral(st[0], st[1], st[2], st[3]);
+            }
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    @Override
+    public void startStream() {
+    }
+
+    @Override
+    public void endStream() {
+    }
+
+    @Override
+    public boolean setProperty(String key, Object value) {
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.rdf.NQuadsParser;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.rdf.RdfBinaryParser;
+import org.semarglproject.rdf.RdfBinarySerializer;
+import org.semarglproject.sink.DataSink;
+import org.semarglproject.source.StreamProcessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading of the same statements from NQuads document and from its binary representation
+ * produced by {@link RdfBinarySerializer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReloadBenchmark {
+
+    private static final String BINARY = "binary";
+
+    @Param({CorpusGenerator.NQUADS, BINARY})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int triples;
+
+    private byte[] documentBytes;
+    private CountingSink sink;
+    private StreamProcessor streamProcessor;
+
+    @Setup
+    public void setUp() throws ParseException {
+        sink = new CountingSink();
+        String document = new CorpusGenerator().generate(CorpusGenerator.NQUADS, triples);
+        DataSink parser;
+        if (CorpusGenerator.NQUADS.equals(format)) {
+            documentBytes = document.getBytes(Charset.forName("UTF-8"));
+            parser = NQuadsParser.connect(sink);
+        } else if (BINARY.equals(format)) {
+            ByteArrayOutputStream binaryOutput = new ByteArrayOutputStream();
+            new StreamProcessor(NQuadsParser.connect(RdfBinarySerializer.connect(binaryOutput)))
+                    .process(new StringReader(document), CorpusGenerator.BASE);
+            documentBytes = binaryOutput.toByteArray();
+            parser = RdfBinaryParser.connect(sink);
+        } else {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        streamProcessor = new StreamProcessor(parser);
+    }
+
+    @Benchmark
+    public long reload() throws ParseException {
+        streamProcessor.process(new ByteArrayInputStream(documentBytes), CorpusGenerator.BASE);
+        return sink.getChecksum();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.semarglproject.rdf.NQuadsSerializer;
+import org.semarglproject.rdf.NTriplesSerializer;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.rdf.RdfBinarySerializer;
+import org.semarglproject.rdf.TurtleSerializer;
+import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.TripleSink;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization throughput of recorded statements into discarding output stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializerBenchmark {
+
+    private static final int WINDOW_SIZE = 10000;
+
+    @Param({"ntriples", "nquads", "turtle", "turtle-window", "binary"})
+    private String format;
+
+    @Param({"1000", "100000"})
+    private int triples;
+
+    @Param({"20", "500"})
+    private int literalLength;
+
+    @Param({"0.01"})
+    private double escapeDensity;
+
+    private RecordedStatements statements;
+    private CountingOutputStream outputStream;
+    private TripleSink serializer;
+
+    @Setup
+    public void setUp() throws ParseException {
+        statements = new RecordedStatements();
+        new CorpusGenerator()
+                .setLiteralLength(literalLength, Math.max(1000, literalLength * 4))
+                .setEscapeDensity(escapeDensity)
+                .generate(statements, triples);
+        outputStream = new CountingOutputStream();
+        CharOutputSink charOutputSink = new CharOutputSink("UTF-8");
+        charOutputSink.connect(outputStream);
+        if ("ntriples".equals(format)) {
+            serializer = NTriplesSerializer.connect(charOutputSink);
+        } else if ("nquads".equals(format)) {
+            serializer = NQuadsSerializer.connect(charOutputSink);
+        } else if ("turtle".equals(format)) {
+            serializer = TurtleSerializer.connect(charOutputSink);
+        } else if ("turtle-window".equals(format)) {
+            serializer = TurtleSerializer.connect(charOutputSink);
+            serializer.setProperty(TurtleSerializer.WINDOW_SIZE_PROPERTY, WINDOW_SIZE);
+        } else if ("binary".equals(format)) {
+            serializer = RdfBinarySerializer.connect(outputStream);
+        } else {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    @Benchmark
+    public long serialize() throws ParseException {
+        serializer.startStream();
+        statements.replay(serializer);
+        serializer.endStream();
+        return outputStream.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
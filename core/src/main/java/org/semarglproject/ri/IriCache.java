@@ -0,0 +1,184 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.ri;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of resolved IRIs keyed by base and reference. References of each base are kept
+ * in their own LRU map along with parsed base, so change of base only switches to another map
+ * and entries of previous base stay valid. Least recently used bases are dropped when cache
+ * contains {@link #MAX_BASES} of them.
+ * <br>
+ * Cache is thread safe and can be shared between parsers processing documents with the same base.
+ */
+public final class IriCache {
+
+    /**
+     * Count of references per base cached by default
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Maximum count of bases kept in cache
+     */
+    public static final int MAX_BASES = 64;
+
+    private final int capacity;
+    private final Map<String, BaseEntry> bases;
+    private BaseEntry current;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates cache with default capacity
+     */
+    public IriCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates cache with specified capacity
+     * @param capacity maximum count of cached references per base
+     */
+    public IriCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.bases = new LinkedHashMap<String, BaseEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BaseEntry> eldest) {
+                return size() > MAX_BASES;
+            }
+        };
+    }
+
+    /**
+     * Resolves specified IRI against base using cached result if possible.
+     * Absolute IRIs are returned as is without cache lookup, malformed IRIs are not cached.
+     * @param base base to resolve against
+     * @param iri IRI to be resolved
+     * @return resolved absolute IRI
+     * @throws MalformedIriException
+     * @see RIUtils#resolveIri(String, String)
+     */
+    public String resolve(String base, String iri) throws MalformedIriException {
+        if (iri == null) {
+            return null;
+        }
+        // absolute IRIs need no resolution, caching them would only evict relative references
+        int schemeEnd = RIUtils.findSchemeEnd(iri);
+        if (schemeEnd != -1 && (RIUtils.isHierPart(iri, schemeEnd) || RIUtils.isOpaquePart(iri, schemeEnd))) {
+            return iri;
+        }
+        return resolveCached(base, iri);
+    }
+
+    private synchronized String resolveCached(String base, String iri) throws MalformedIriException {
+        BaseEntry entry = current;
+        if (entry == null || !(base == null ? entry.base == null : base.equals(entry.base))) {
+            entry = bases.get(base);
+            if (entry == null) {
+                entry = new BaseEntry(base);
+                bases.put(base, entry);
+            }
+            current = entry;
+        }
+        String result = entry.references.get(iri);
+        if (result != null) {
+            hitCount.incrementAndGet();
+            return result;
+        }
+        missCount.incrementAndGet();
+        result = entry.resolver.resolve(iri);
+        entry.references.put(iri, result);
+        return result;
+    }
+
+    /**
+     * Removes cached references of specified base
+     * @param base base IRI
+     */
+    public synchronized void invalidate(String base) {
+        bases.remove(base);
+        current = null;
+    }
+
+    /**
+     * Removes all cached references and resets statistics
+     */
+    public synchronized void clear() {
+        bases.clear();
+        current = null;
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+
+    /**
+     * @return count of lookups which returned cached IRI
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return count of lookups which resolved IRI
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return count of references removed from full per base maps
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return maximum count of cached references per base
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private final class BaseEntry {
+        private final String base;
+        private final IriResolver resolver;
+        private final Map<String, String> references;
+
+        private BaseEntry(String base) {
+            this.base = base;
+            this.resolver = new IriResolver(base);
+            this.references = new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    if (size() > capacity) {
+                        evictionCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
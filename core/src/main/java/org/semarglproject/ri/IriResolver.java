@@ -0,0 +1,235 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.ri;
+
+/**
+ * Resolves references against fixed base IRI according to
+ * <a href="http://tools.ietf.org/html/rfc3986#section-5.2">RFC 3986 section 5.2</a>.
+ * Base IRI is split into components once, so instances should be reused for all references
+ * which share the same base. Instances are immutable and can be shared between threads.
+ */
+public final class IriResolver {
+
+    private final String base;
+
+    // base IRI components, end positions are exclusive
+    private final int schemeEnd;
+    private final int authorityEnd;
+    private final int pathEnd;
+    private final int queryEnd;
+    private final boolean hasAuthority;
+    private final int lastSlash;
+    private final boolean baseHasDotSegments;
+
+    /**
+     * Creates resolver for specified base IRI. Resolvers with missing or relative base
+     * can resolve only absolute IRIs.
+     * @param base base IRI
+     */
+    public IriResolver(String base) {
+        this.base = base;
+        schemeEnd = base == null ? -1 : RIUtils.findSchemeEnd(base);
+        if (schemeEnd == -1) {
+            authorityEnd = pathEnd = queryEnd = lastSlash = -1;
+            hasAuthority = baseHasDotSegments = false;
+            return;
+        }
+        int length = base.length();
+        int pos = schemeEnd + 1;
+        hasAuthority = base.startsWith("//", pos);
+        if (hasAuthority) {
+            pos = findAny(base, pos + 2, length, "/?#");
+        }
+        authorityEnd = pos;
+        pathEnd = findAny(base, pos, length, "?#");
+        queryEnd = findAny(base, pathEnd, length, "#");
+        lastSlash = base.lastIndexOf('/', pathEnd - 1);
+        baseHasDotSegments = lastSlash >= authorityEnd && hasDotSegments(base, authorityEnd, lastSlash + 1);
+    }
+
+    /**
+     * @return base IRI used by this resolver
+     */
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * Resolves specified reference. Absolute IRIs and URNs are returned unmodified.
+     * @param iri reference to resolve
+     * @return resolved absolute IRI
+     * @throws MalformedIriException if resolved IRI is malformed
+     */
+    public String resolve(String iri) throws MalformedIriException {
+        if (iri == null) {
+            return null;
+        }
+        // scheme is scanned once for both validation and resolution
+        int refSchemeEnd = RIUtils.findSchemeEnd(iri);
+        if (refSchemeEnd != -1 && (RIUtils.isHierPart(iri, refSchemeEnd) || RIUtils.isOpaquePart(iri, refSchemeEnd)
+                || RIUtils.isUrn(iri))) {
+            return iri;
+        }
+        if (schemeEnd == -1) {
+            throw new MalformedIriException("Can't resolve " + iri + " against base " + base);
+        }
+        String result = resolveReference(iri, refSchemeEnd);
+        int resultSchemeEnd = refSchemeEnd == -1 ? schemeEnd : refSchemeEnd;
+        if (RIUtils.isHierPart(result, resultSchemeEnd) || RIUtils.isOpaquePart(result, resultSchemeEnd)) {
+            return result;
+        }
+        throw new MalformedIriException("Malformed IRI: " + iri);
+    }
+
+    private String resolveReference(String ref, int refSchemeEnd) {
+        int length = ref.length();
+        int pos = refSchemeEnd + 1;
+        if (refSchemeEnd != -1) {
+            // absolute reference
+            boolean refHasAuthority = ref.startsWith("//", pos);
+            int refAuthorityEnd = refHasAuthority ? findAny(ref, pos + 2, length, "/?#") : pos;
+            int refPathEnd = findAny(ref, refAuthorityEnd, length, "?#");
+            if (!hasDotSegments(ref, refAuthorityEnd, refPathEnd)) {
+                return ref;
+            }
+            StringBuilder result = new StringBuilder(length);
+            result.append(ref, 0, refAuthorityEnd);
+            removeDotSegments(ref, refAuthorityEnd, refPathEnd, result);
+            return result.append(ref, refPathEnd, length).toString();
+        }
+        if (ref.startsWith("//")) {
+            // network path reference
+            int refAuthorityEnd = findAny(ref, 2, length, "/?#");
+            int refPathEnd = findAny(ref, refAuthorityEnd, length, "?#");
+            StringBuilder result = new StringBuilder(schemeEnd + 1 + length);
+            result.append(base, 0, schemeEnd + 1).append(ref, 0, refAuthorityEnd);
+            removeDotSegments(ref, refAuthorityEnd, refPathEnd, result);
+            return result.append(ref, refPathEnd, length).toString();
+        }
+        if (length == 0) {
+            return base.substring(0, queryEnd);
+        }
+        char first = ref.charAt(0);
+        if (first == '#') {
+            return new StringBuilder(queryEnd + length).append(base, 0, queryEnd).append(ref).toString();
+        }
+        if (first == '?') {
+            return new StringBuilder(pathEnd + length).append(base, 0, pathEnd).append(ref).toString();
+        }
+        int refPathEnd = findAny(ref, 0, length, "?#");
+        StringBuilder result = new StringBuilder(pathEnd + length + 1);
+        result.append(base, 0, authorityEnd);
+        if (first == '/') {
+            removeDotSegments(ref, 0, refPathEnd, result);
+        } else if (hasAuthority && authorityEnd == pathEnd) {
+            // base with authority and empty path
+            result.append('/');
+            removeDotSegments(ref, 0, refPathEnd, result);
+        } else if (baseHasDotSegments || hasDotSegments(ref, 0, refPathEnd)) {
+            // merged path
+            String merged;
+            if (lastSlash >= authorityEnd) {
+                merged = base.substring(authorityEnd, lastSlash + 1).concat(ref.substring(0, refPathEnd));
+            } else {
+                merged = ref.substring(0, refPathEnd);
+            }
+            removeDotSegments(merged, 0, merged.length(), result);
+        } else {
+            if (lastSlash >= authorityEnd) {
+                result.append(base, authorityEnd, lastSlash + 1);
+            }
+            result.append(ref, 0, refPathEnd);
+        }
+        return result.append(ref, refPathEnd, length).toString();
+    }
+
+    /**
+     * Implements remove_dot_segments routine from RFC 3986 section 5.2.4.
+     * Path with dot segments removed is appended to output.
+     */
+    private static void removeDotSegments(String path, int start, int end, StringBuilder output) {
+        if (!hasDotSegments(path, start, end)) {
+            output.append(path, start, end);
+            return;
+        }
+        int outputStart = output.length();
+        int pos = start;
+        while (pos < end) {
+            if (path.startsWith("../", pos)) {
+                pos += 3;
+            } else if (path.startsWith("./", pos)) {
+                pos += 2;
+            } else if (path.startsWith("/./", pos)) {
+                pos += 2;
+            } else if (pos + 2 == end && path.startsWith("/.", pos)) {
+                output.append('/');
+                pos = end;
+            } else if (path.startsWith("/../", pos)) {
+                pos += 3;
+                removeLastSegment(output, outputStart);
+            } else if (pos + 3 == end && path.startsWith("/..", pos)) {
+                removeLastSegment(output, outputStart);
+                output.append('/');
+                pos = end;
+            } else if (pos + 1 == end && path.charAt(pos) == '.'
+                    || pos + 2 == end && path.startsWith("..", pos)) {
+                pos = end;
+            } else {
+                int segmentEnd = path.indexOf('/', pos + 1);
+                if (segmentEnd == -1 || segmentEnd > end) {
+                    segmentEnd = end;
+                }
+                output.append(path, pos, segmentEnd);
+                pos = segmentEnd;
+            }
+        }
+    }
+
+    private static void removeLastSegment(StringBuilder output, int outputStart) {
+        int pos = output.length() - 1;
+        while (pos >= outputStart && output.charAt(pos) != '/') {
+            pos--;
+        }
+        output.setLength(Math.max(pos, outputStart));
+    }
+
+    /**
+     * Checks if path contains "." or ".." segments
+     */
+    private static boolean hasDotSegments(String path, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            if (path.charAt(pos) == '.' && (pos == start || path.charAt(pos - 1) == '/')) {
+                int next = pos + 1;
+                if (next < end && path.charAt(next) == '.') {
+                    next++;
+                }
+                if (next == end || path.charAt(next) == '/') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int findAny(String value, int start, int end, String chars) {
+        for (int pos = start; pos < end; pos++) {
+            if (chars.indexOf(value.charAt(pos)) != -1) {
+                return pos;
+            }
+        }
+        return end;
+    }
+}
@@ -15,46 +15,50 @@
  */
 package org.semarglproject.ri;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.regex.Pattern;
-
 /**
  * Utility class. Provides methods related to resource identifiers.
+ * <br>
+ * IRI checks are single pass scans equivalent to following regular expressions:
+ * <ul>
+ *     <li>hierarchical IRI: <code>[a-zA-Z][a-zA-Z0-9+.-]*:/{1,3}(([^/?#@]*)@)?(\[[^@/?#]+\]|([^@/?#:]+))
+ *     (:([^/?#]*))?([^#?]*)?(\?([^#]*))?(#[^#]*)?</code></li>
+ *     <li>opaque IRI: <code>[a-zA-Z][a-zA-Z0-9+.-]*:[^#/][^#]*</code></li>
+ *     <li>URN: <code>urn:[a-zA-Z0-9][a-zA-Z0-9-]{1,31}:.+</code></li>
+ * </ul>
  */
 public final class RIUtils {
 
-    private static final Pattern ABS_OPAQUE_IRI_PATTERN = Pattern.compile(
-            // scheme
-            "[a-zA-Z][a-zA-Z0-9+.-]*:"
-            // opaque part
-            + "[^#/][^#]*",
-            Pattern.DOTALL);
-
-    private static final Pattern ABS_HIER_IRI_PATTERN = Pattern.compile(
-            // scheme
-            "[a-zA-Z][a-zA-Z0-9+.-]*:"
-            // user
-            + "/{1,3}(([^/?#@]*)@)?"
-            // host
-            + "(\\[[^@/?#]+\\]|([^@/?#:]+))"
-            // port
-            + "(:([^/?#]*))?"
-            // path
-            + "([^#?]*)?"
-            // query
-            + "(\\?([^#]*))?"
-            // fragment
-            + "(#[^#]*)?",
-            Pattern.DOTALL);
-
-    private static final Pattern URN_PATTERN = Pattern.compile("urn:[a-zA-Z0-9][a-zA-Z0-9-]{1,31}:.+");
+    private static final int ASCII_SIZE = 128;
+
+    private static final boolean[] ALPHA = new boolean[ASCII_SIZE];
+    private static final boolean[] SCHEME_CHAR = new boolean[ASCII_SIZE];
+    private static final boolean[] URN_NID_CHAR = new boolean[ASCII_SIZE];
+
+    private static final String URN_PREFIX = "urn:";
+    private static final int URN_NID_MIN_LENGTH = 2;
+    private static final int URN_NID_MAX_LENGTH = 32;
+    private static final int MAX_HIER_SLASHES = 3;
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            ALPHA[ch] = true;
+            ALPHA[Character.toUpperCase(ch)] = true;
+        }
+        for (int ch = 0; ch < ASCII_SIZE; ch++) {
+            SCHEME_CHAR[ch] = ALPHA[ch] || ch >= '0' && ch <= '9' || ch == '+' || ch == '.' || ch == '-';
+            URN_NID_CHAR[ch] = ALPHA[ch] || ch >= '0' && ch <= '9' || ch == '-';
+        }
+    }
+
+    private static volatile IriResolver lastResolver;
 
     private RIUtils() {
     }
 
     /**
-     * Resolves specified IRI. Absolute IRI are returned unmodified
+     * Resolves specified IRI. Absolute IRI are returned unmodified.
+     * Most recently used base is kept parsed, so consecutive calls with the same base
+     * don't parse it again.
      * @param base base to resolve against
      * @param iri IRI to be resolved
      * @return resolved absolute IRI
@@ -64,27 +68,12 @@ public final class RIUtils {
         if (iri == null) {
             return null;
         }
-        if (isIri(iri) || isUrn(iri)) {
-            return iri;
-        } else {
-            if (iri.startsWith("?") || iri.isEmpty()) {
-                if (base.endsWith("#")) {
-                    return base.substring(0, base.length() - 1) + iri;
-                }
-                return base + iri;
-            }
-            String result;
-            try {
-                URL basePart = new URL(base);
-                result = new URL(basePart, iri).toString();
-            } catch (MalformedURLException e) {
-                result = base + iri;
-            }
-            if (isIri(result)) {
-                return result;
-            }
-            throw new MalformedIriException("Malformed IRI: " + iri);
+        IriResolver resolver = lastResolver;
+        if (resolver == null || base == null || !base.equals(resolver.getBase())) {
+            resolver = new IriResolver(base);
+            lastResolver = resolver;
         }
+        return resolver.resolve(iri);
     }
 
     /**
@@ -93,7 +82,8 @@ public final class RIUtils {
      * @return true if value is IRI
      */
     public static boolean isIri(String value) {
-        return ABS_HIER_IRI_PATTERN.matcher(value).matches() || ABS_OPAQUE_IRI_PATTERN.matcher(value).matches();
+        int schemeEnd = findSchemeEnd(value);
+        return schemeEnd != -1 && (isHierPart(value, schemeEnd) || isOpaquePart(value, schemeEnd));
     }
 
     /**
@@ -102,7 +92,8 @@ public final class RIUtils {
      * @return true if value is absolute IRI
      */
     public static boolean isAbsoluteIri(String value) {
-        return ABS_HIER_IRI_PATTERN.matcher(value).matches();
+        int schemeEnd = findSchemeEnd(value);
+        return schemeEnd != -1 && isHierPart(value, schemeEnd);
     }
 
     /**
@@ -111,7 +102,114 @@ public final class RIUtils {
      * @return true if value is URN
      */
     public static boolean isUrn(String value) {
-        return URN_PATTERN.matcher(value).matches();
+        return value.startsWith(URN_PREFIX) && isUrnPart(value);
+    }
+
+    /**
+     * Finds end of IRI scheme
+     * @param value value to scan
+     * @return position of colon after scheme or -1 if value doesn't start with scheme
+     */
+    static int findSchemeEnd(String value) {
+        int length = value.length();
+        if (length == 0 || !isAscii(ALPHA, value.charAt(0))) {
+            return -1;
+        }
+        for (int pos = 1; pos < length; pos++) {
+            char ch = value.charAt(pos);
+            if (ch == ':') {
+                return pos;
+            }
+            if (!isAscii(SCHEME_CHAR, ch)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if part of value after scheme is hierarchical part of IRI
+     * @param value value to check
+     * @param schemeEnd position of colon after scheme
+     * @return true if value is hierarchical IRI
+     */
+    static boolean isHierPart(String value, int schemeEnd) {
+        int length = value.length();
+        int pos = schemeEnd + 1;
+        while (pos < length && value.charAt(pos) == '/') {
+            pos++;
+        }
+        int slashes = pos - schemeEnd - 1;
+        if (slashes == 0 || slashes > MAX_HIER_SLASHES || pos == length) {
+            return false;
+        }
+        if (!isHostStart(value.charAt(pos))) {
+            // host can start only after user info
+            int at = pos;
+            while (at < length && value.charAt(at) != '@') {
+                char ch = value.charAt(at);
+                if (ch == '/' || ch == '?' || ch == '#') {
+                    return false;
+                }
+                at++;
+            }
+            if (at + 1 >= length || !isHostStart(value.charAt(at + 1))) {
+                return false;
+            }
+        }
+        // path and query can't contain fragment delimiter
+        int fragmentStart = value.indexOf('#', pos);
+        return fragmentStart == -1 || value.indexOf('#', fragmentStart + 1) == -1;
+    }
+
+    /**
+     * Checks if part of value after scheme is opaque part of IRI
+     * @param value value to check
+     * @param schemeEnd position of colon after scheme
+     * @return true if value is opaque IRI
+     */
+    static boolean isOpaquePart(String value, int schemeEnd) {
+        int pos = schemeEnd + 1;
+        if (pos == value.length()) {
+            return false;
+        }
+        char ch = value.charAt(pos);
+        return ch != '#' && ch != '/' && value.indexOf('#', pos) == -1;
+    }
+
+    private static boolean isUrnPart(String value) {
+        int length = value.length();
+        int pos = URN_PREFIX.length();
+        if (pos == length || value.charAt(pos) == '-' || !isAscii(URN_NID_CHAR, value.charAt(pos))) {
+            return false;
+        }
+        int nidEnd = pos + 1;
+        while (nidEnd < length && isAscii(URN_NID_CHAR, value.charAt(nidEnd))) {
+            nidEnd++;
+        }
+        int nidLength = nidEnd - pos;
+        if (nidLength < URN_NID_MIN_LENGTH || nidLength > URN_NID_MAX_LENGTH || nidEnd + 1 >= length
+                || value.charAt(nidEnd) != ':') {
+            return false;
+        }
+        for (int i = nidEnd + 1; i < length; i++) {
+            if (isLineTerminator(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHostStart(char ch) {
+        return ch != '@' && ch != '/' && ch != '?' && ch != '#' && ch != ':';
+    }
+
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+    }
+
+    private static boolean isAscii(boolean[] charClass, char ch) {
+        return ch < ASCII_SIZE && charClass[ch];
     }
 
 }
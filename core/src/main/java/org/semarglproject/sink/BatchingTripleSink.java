@@ -0,0 +1,155 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+import org.semarglproject.rdf.ParseException;
+
+/**
+ * Pipe which accumulates triples and quads into fixed size batches and passes them
+ * to {@link TripleBatchSink}. Graphs are passed only to {@link QuadBatchSink} instances.
+ * Incomplete batch is flushed on end stream event.
+ */
+public final class BatchingTripleSink extends Pipe<TripleBatchSink> implements QuadSink {
+
+    /**
+     * Count of statements in a single batch used by default
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final int batchSize;
+    private final boolean quadSink;
+
+    private final String[] subjs;
+    private final String[] preds;
+    private final String[] objs;
+    private final byte[] objTypes;
+    private final String[] langsOrTypes;
+    private final String[] graphs;
+    private int count = 0;
+
+    private BatchingTripleSink(TripleBatchSink sink, int batchSize) {
+        super(sink);
+        this.batchSize = batchSize;
+        this.quadSink = sink instanceof QuadBatchSink;
+        subjs = new String[batchSize];
+        preds = new String[batchSize];
+        objs = new String[batchSize];
+        objTypes = new byte[batchSize];
+        langsOrTypes = new String[batchSize];
+        graphs = quadSink ? new String[batchSize] : null;
+    }
+
+    /**
+     * Creates instance of BatchingTripleSink connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of BatchingTripleSink
+     */
+    public static QuadSink connect(TripleBatchSink sink) {
+        return new BatchingTripleSink(sink, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates instance of BatchingTripleSink connected to specified sink.
+     * @param sink sink to be connected to
+     * @param batchSize maximum count of statements in a single batch
+     * @return instance of BatchingTripleSink
+     */
+    public static QuadSink connect(TripleBatchSink sink, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        return new BatchingTripleSink(sink, batchSize);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        add(subj, pred, obj, TripleBatchSink.NON_LITERAL, null, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        add(subj, pred, content, TripleBatchSink.PLAIN_LITERAL, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        add(subj, pred, content, TripleBatchSink.TYPED_LITERAL, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        add(subj, pred, obj, TripleBatchSink.NON_LITERAL, null, graph);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        add(subj, pred, content, TripleBatchSink.PLAIN_LITERAL, lang, graph);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        add(subj, pred, content, TripleBatchSink.TYPED_LITERAL, type, graph);
+    }
+
+    private void add(String subj, String pred, String obj, byte objType, String langOrType, String graph) {
+        subjs[count] = subj;
+        preds[count] = pred;
+        objs[count] = obj;
+        objTypes[count] = objType;
+        langsOrTypes[count] = langOrType;
+        if (quadSink) {
+            graphs[count] = graph;
+        }
+        count++;
+        if (count == batchSize) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+        if (quadSink) {
+            ((QuadBatchSink) sink).addQuads(subjs, preds, objs, objTypes, langsOrTypes, graphs, count);
+        } else {
+            sink.addTriples(subjs, preds, objs, objTypes, langsOrTypes, count);
+        }
+        count = 0;
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+        sink.setBaseUri(baseUri);
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        count = 0;
+        super.startStream();
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        flush();
+        super.endStream();
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        return false;
+    }
+}
@@ -23,25 +23,52 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * Implementation of {@link CharSink}. Provides bridging to Java IO APIs
  * ({@link Writer}, {@link OutputStream}, {@link File}).
+ * Chars are collected in reusable buffer. Output to streams and files is encoded directly
+ * into reusable byte buffer, files are written using {@link FileChannel}.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link #BUFFER_SIZE_PROPERTY}</li>
+ *     </ul>
  */
 public final class CharOutputSink implements CharSink {
 
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Size in chars of output buffer. Integer value must be passed, default size is 32768.
+     * New size is applied on next start stream event.
+     */
+    public static final String BUFFER_SIZE_PROPERTY = "http://semarglproject.org/core/properties/output-buffer-size";
+
+    private static final int DEFAULT_BATCH_SIZE = 1 << 15;
+
     private File file;
     private Writer writer;
     private OutputStream outputStream;
-    private boolean closeOnEndStream;
     private final Charset charset;
 
-    private static final short BATCH_SIZE = 256;
-    private StringBuilder buffer;
-    private short bufferSize;
+    private FileOutputStream fileOutputStream;
+    private FileChannel channel;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private char[] buffer;
+    private int bufferSize;
+
+    private CharBuffer charBuffer;
+    private ByteBuffer byteBuffer;
+    private CharsetEncoder encoder;
 
     /**
      * Creates class instance with default charset encoding..
@@ -74,7 +101,6 @@ public final class CharOutputSink implements CharSink {
         this.file = file;
         this.writer = null;
         this.outputStream = null;
-        this.closeOnEndStream = true;
     }
 
     /**
@@ -85,7 +111,6 @@ public final class CharOutputSink implements CharSink {
         this.file = null;
         this.writer = writer;
         this.outputStream = null;
-        this.closeOnEndStream = false;
     }
 
     /**
@@ -96,47 +121,89 @@ public final class CharOutputSink implements CharSink {
         this.file = null;
         this.writer = null;
         this.outputStream = outputStream;
-        this.closeOnEndStream = false;
     }
 
     @Override
     public CharOutputSink process(String str) throws ParseException {
-        buffer.append(str);
-        bufferSize += str.length();
-        writeBuffer();
+        int length = str.length();
+        int pos = 0;
+        while (pos < length) {
+            int count = Math.min(length - pos, buffer.length - bufferSize);
+            str.getChars(pos, pos + count, buffer, bufferSize);
+            bufferSize += count;
+            pos += count;
+            if (bufferSize == buffer.length) {
+                writeBuffer(false);
+            }
+        }
         return this;
     }
 
     @Override
     public CharOutputSink process(char ch) throws ParseException {
-        buffer.append(ch);
-        bufferSize++;
-        writeBuffer();
+        buffer[bufferSize++] = ch;
+        if (bufferSize == buffer.length) {
+            writeBuffer(false);
+        }
         return this;
     }
 
     @Override
     public CharOutputSink process(char[] buffer, int start, int count) throws ParseException {
-        this.buffer.append(buffer, start, count);
-        bufferSize += count;
-        writeBuffer();
+        int pos = start;
+        int end = start + count;
+        while (pos < end) {
+            int length = Math.min(end - pos, this.buffer.length - bufferSize);
+            System.arraycopy(buffer, pos, this.buffer, bufferSize, length);
+            bufferSize += length;
+            pos += length;
+            if (bufferSize == this.buffer.length) {
+                writeBuffer(false);
+            }
+        }
         return this;
     }
 
-    private void writeBuffer() {
-        if (bufferSize >= BATCH_SIZE) {
-            try {
-                try {
-                    writer.write(buffer.toString());
-                } catch (IOException e) {
-                    throw new ParseException(e);
+    private void writeBuffer(boolean endOfInput) throws ParseException {
+        try {
+            if (writer != null) {
+                writer.write(buffer, 0, bufferSize);
+                bufferSize = 0;
+                return;
+            }
+            charBuffer.limit(bufferSize);
+            charBuffer.position(0);
+            CoderResult result;
+            do {
+                result = encoder.encode(charBuffer, byteBuffer, endOfInput);
+                writeBytes();
+            } while (result.isOverflow());
+            if (endOfInput) {
+                while (encoder.flush(byteBuffer).isOverflow()) {
+                    writeBytes();
                 }
-            } catch (ParseException e) {
-                // do nothing
+                writeBytes();
+                encoder.reset();
             }
-            buffer = new StringBuilder(BATCH_SIZE);
-            bufferSize = 0;
+            // unpaired high surrogate at the end of buffer is encoded with the next batch
+            int remaining = charBuffer.remaining();
+            System.arraycopy(buffer, charBuffer.position(), buffer, 0, remaining);
+            bufferSize = remaining;
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    private void writeBytes() throws IOException {
+        byteBuffer.flip();
+        if (channel != null) {
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        } else {
+            outputStream.write(byteBuffer.array(), 0, byteBuffer.limit());
         }
+        byteBuffer.clear();
     }
 
     @Override
@@ -145,44 +212,66 @@ public final class CharOutputSink implements CharSink {
 
     @Override
     public void startStream() throws ParseException {
-        buffer = new StringBuilder();
+        if (buffer == null || buffer.length != batchSize) {
+            buffer = new char[batchSize];
+            charBuffer = CharBuffer.wrap(buffer);
+            byteBuffer = null;
+        }
         bufferSize = 0;
         if (writer == null) {
             if (file != null) {
                 try {
-                    writer = new OutputStreamWriter(new FileOutputStream(file), charset);
+                    fileOutputStream = new FileOutputStream(file);
                 } catch (FileNotFoundException e) {
                     throw new ParseException(e);
                 }
-            } else if (outputStream != null) {
-                writer = new OutputStreamWriter(outputStream, charset);
+                channel = fileOutputStream.getChannel();
+            }
+            if (encoder == null) {
+                encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            } else {
+                encoder.reset();
+            }
+            if (byteBuffer == null) {
+                byteBuffer = ByteBuffer.allocate((int) Math.ceil(batchSize * encoder.maxBytesPerChar()));
             }
         }
     }
 
     @Override
     public void endStream() throws ParseException {
-        buffer.append("\n");
-        bufferSize = BATCH_SIZE;
-        writeBuffer();
         try {
-            writer.flush();
-        } catch (IOException e) {
-            throw new ParseException(e);
-        }
-        if (closeOnEndStream) {
-            if (writer != null) {
-                closeQuietly(writer);
-                writer = null;
-            } else if (outputStream != null) {
-                closeQuietly(outputStream);
-                outputStream = null;
+            process('\n');
+            writeBuffer(true);
+            try {
+                if (writer != null) {
+                    writer.flush();
+                } else if (channel == null) {
+                    outputStream.flush();
+                }
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        } finally {
+            if (fileOutputStream != null) {
+                closeQuietly(fileOutputStream);
+                fileOutputStream = null;
+                channel = null;
             }
         }
     }
 
     @Override
     public boolean setProperty(String key, Object value) {
+        if (BUFFER_SIZE_PROPERTY.equals(key) && value instanceof Integer) {
+            if ((Integer) value < 2) {
+                throw new IllegalArgumentException("Buffer size must be at least 2 chars");
+            }
+            batchSize = (Integer) value;
+            return true;
+        }
         return false;
     }
 
@@ -195,4 +284,4 @@ public final class CharOutputSink implements CharSink {
             // ignore
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded thread safe table of canonical string instances. Table uses open addressing
+ * with limited probe sequence. When all slots of a probe sequence are occupied one of them
+ * is replaced, so table never grows and frequently used strings tend to stay in it.
+ * After eviction equal string can be interned to a different instance, so interned strings
+ * still have to be compared with {@link String#equals(Object)}.
+ */
+public final class InternTable {
+
+    /**
+     * Table capacity used by default
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int PROBE_LIMIT = 8;
+
+    // statistics are striped by thread, so parsers sharing table don't contend on counters,
+    // each stripe spans a cache line
+    private static final int STRIPES = 16;
+    private static final int STRIPE_WIDTH = 8;
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int EVICTIONS = 2;
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+    /**
+     * Creates table with default capacity
+     */
+    public InternTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates table with specified capacity
+     * @param capacity maximum count of strings in table, rounded up to power of two
+     */
+    public InternTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Illegal capacity " + capacity);
+        }
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, PROBE_LIMIT);
+        slots = new AtomicReferenceArray<String>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Returns canonical instance of specified string. If table doesn't contain equal string,
+     * specified instance becomes canonical.
+     * @param str string to intern, can be null
+     * @return canonical instance
+     */
+    public String intern(String str) {
+        if (str == null) {
+            return null;
+        }
+        int hash = str.hashCode();
+        // spread higher bits since strings with common prefixes often differ only in them
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        int home = hash & mask;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int index = (home + i) & mask;
+            String current = slots.get(index);
+            if (current == null) {
+                if (slots.compareAndSet(index, null, str)) {
+                    count(MISSES);
+                    return str;
+                }
+                current = slots.get(index);
+            }
+            if (current == str || current.hashCode() == str.hashCode() && current.equals(str)) {
+                count(HITS);
+                return current;
+            }
+        }
+        // probe sequence is full, replace slot chosen by higher hash bits
+        slots.set((home + (hash >>> 28) % PROBE_LIMIT) & mask, str);
+        count(EVICTIONS);
+        count(MISSES);
+        return str;
+    }
+
+    /**
+     * Removes all strings from table and resets statistics
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private void count(int counter) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counters.incrementAndGet(stripe * STRIPE_WIDTH + counter);
+    }
+
+    private long sum(int counter) {
+        long result = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            result += counters.get(i * STRIPE_WIDTH + counter);
+        }
+        return result;
+    }
+
+    /**
+     * @return count of lookups which returned previously stored instance
+     */
+    public long getHitCount() {
+        return sum(HITS);
+    }
+
+    /**
+     * @return count of lookups which stored new instance
+     */
+    public long getMissCount() {
+        return sum(MISSES);
+    }
+
+    /**
+     * @return count of strings replaced because of full probe sequence
+     */
+    public long getEvictionCount() {
+        return sum(EVICTIONS);
+    }
+
+    /**
+     * @return maximum count of strings in table
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+}
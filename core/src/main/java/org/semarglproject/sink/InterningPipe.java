@@ -0,0 +1,103 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+/**
+ * Pipe which replaces IRIs, BNode names, literal langs and datatypes with canonical instances
+ * from {@link InternTable}, so downstream sinks keep single copy of frequently repeated terms.
+ * Table evicts strings when it is full, so equal terms aren't guaranteed to be the same instance
+ * and sinks must compare them with {@link String#equals(Object)}. Literal contents are passed as is.
+ * Sink must implement {@link QuadSink} to receive quads.
+ */
+public final class InterningPipe extends Pipe<TripleSink> implements QuadSink {
+
+    private final InternTable table;
+
+    private InterningPipe(TripleSink sink, InternTable table) {
+        super(sink);
+        this.table = table;
+    }
+
+    /**
+     * Creates instance of InterningPipe with its own intern table connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of InterningPipe
+     */
+    public static QuadSink connect(TripleSink sink) {
+        return new InterningPipe(sink, new InternTable());
+    }
+
+    /**
+     * Creates instance of InterningPipe connected to specified sink. Intern table can be
+     * shared between pipes used from different threads.
+     * @param sink sink to be connected to
+     * @param table intern table
+     * @return instance of InterningPipe
+     */
+    public static QuadSink connect(TripleSink sink, InternTable table) {
+        return new InterningPipe(sink, table);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        sink.addNonLiteral(table.intern(subj), table.intern(pred), table.intern(obj));
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        sink.addPlainLiteral(table.intern(subj), table.intern(pred), content, table.intern(lang));
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        sink.addTypedLiteral(table.intern(subj), table.intern(pred), content, table.intern(type));
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        ((QuadSink) sink).addNonLiteral(table.intern(subj), table.intern(pred), table.intern(obj),
+                table.intern(graph));
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        ((QuadSink) sink).addPlainLiteral(table.intern(subj), table.intern(pred), content, table.intern(lang),
+                table.intern(graph));
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        ((QuadSink) sink).addTypedLiteral(table.intern(subj), table.intern(pred), content, table.intern(type),
+                table.intern(graph));
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+        sink.setBaseUri(baseUri);
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        return false;
+    }
+
+    /**
+     * @return intern table used by pipe
+     */
+    public InternTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.source.StreamProcessor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pipe which passes triples and quads to its sink on a separate thread. Statements are collected
+ * into blocks of fixed size, count of blocks in flight is bounded, so producer waits when sink
+ * falls behind. Quads are passed to sink as triples if sink doesn't implement {@link QuadSink}.
+ * Exceptions thrown by sink are rethrown as {@link ParseException} on end stream event.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link StreamProcessor#PIPELINE_DEPTH_PROPERTY}</li>
+ *     </ul>
+ */
+public final class PipelinedTripleSink extends Pipe<TripleSink> implements QuadSink {
+
+    /**
+     * Count of statements in a single block used by default
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final int DEFAULT_DEPTH = 4;
+
+    private static final byte NON_LITERAL = 0;
+    private static final byte PLAIN_LITERAL = 1;
+    private static final byte TYPED_LITERAL = 2;
+
+    private final QuadSink quadSink;
+    private final int blockSize;
+    private int depth = DEFAULT_DEPTH;
+
+    private BlockingQueue<Block> freeBlocks = null;
+    private BlockingQueue<Block> filledBlocks = null;
+    private Block currentBlock = null;
+    private Thread thread = null;
+    private volatile Throwable error = null;
+
+    private PipelinedTripleSink(TripleSink sink, int blockSize) {
+        super(sink);
+        quadSink = sink instanceof QuadSink ? (QuadSink) sink : null;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates instance of PipelinedTripleSink connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of PipelinedTripleSink
+     */
+    public static QuadSink connect(TripleSink sink) {
+        return new PipelinedTripleSink(sink, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates instance of PipelinedTripleSink connected to specified sink.
+     * @param sink sink to be connected to
+     * @param blockSize count of statements in a single block
+     * @return instance of PipelinedTripleSink
+     */
+    public static QuadSink connect(TripleSink sink, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        return new PipelinedTripleSink(sink, blockSize);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        add(NON_LITERAL, subj, pred, obj, null, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        add(PLAIN_LITERAL, subj, pred, content, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        add(TYPED_LITERAL, subj, pred, content, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        add(NON_LITERAL, subj, pred, obj, null, graph);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        add(PLAIN_LITERAL, subj, pred, content, lang, graph);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        add(TYPED_LITERAL, subj, pred, content, type, graph);
+    }
+
+    private void add(byte type, String subj, String pred, String obj, String langOrType, String graph) {
+        Block block = currentBlock;
+        int index = block.count++;
+        block.types[index] = type;
+        block.subjects[index] = subj;
+        block.predicates[index] = pred;
+        block.objects[index] = obj;
+        block.langsOrTypes[index] = langOrType;
+        block.graphs[index] = graph;
+        if (block.count == blockSize) {
+            try {
+                filledBlocks.put(block);
+                currentBlock = freeBlocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+        sink.setBaseUri(baseUri);
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        super.startStream();
+        freeBlocks = new ArrayBlockingQueue<Block>(depth + 1);
+        filledBlocks = new ArrayBlockingQueue<Block>(depth + 2);
+        for (int i = 0; i < depth; i++) {
+            freeBlocks.add(new Block(blockSize));
+        }
+        currentBlock = new Block(blockSize);
+        error = null;
+        thread = new Thread(new Consumer(), "semargl-pipeline-sink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        if (thread != null) {
+            try {
+                filledBlocks.put(currentBlock);
+                filledBlocks.put(new Block(0));
+                thread.join();
+            } catch (InterruptedException e) {
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+                throw new ParseException(e);
+            } finally {
+                thread = null;
+                currentBlock = null;
+                freeBlocks = null;
+                filledBlocks = null;
+            }
+            if (error != null) {
+                try {
+                    super.endStream();
+                } catch (ParseException e) {
+                    // sink failure is reported instead
+                }
+                throw new ParseException(error);
+            }
+        }
+        super.endStream();
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        if (StreamProcessor.PIPELINE_DEPTH_PROPERTY.equals(key) && value instanceof Integer) {
+            depth = Math.max((Integer) value, 1);
+            return true;
+        }
+        return false;
+    }
+
+    private void replay(Block block) {
+        for (int i = 0; i < block.count; i++) {
+            String graph = block.graphs[i];
+            switch (block.types[i]) {
+                case NON_LITERAL:
+                    if (graph == null || quadSink == null) {
+                        sink.addNonLiteral(block.subjects[i], block.predicates[i], block.objects[i]);
+                    } else {
+                        quadSink.addNonLiteral(block.subjects[i], block.predicates[i],
+                                block.objects[i], graph);
+                    }
+                    break;
+                case PLAIN_LITERAL:
+                    if (graph == null || quadSink == null) {
+                        sink.addPlainLiteral(block.subjects[i], block.predicates[i], block.objects[i],
+                                block.langsOrTypes[i]);
+                    } else {
+                        quadSink.addPlainLiteral(block.subjects[i], block.predicates[i],
+                                block.objects[i], block.langsOrTypes[i], graph);
+                    }
+                    break;
+                default:
+                    if (graph == null || quadSink == null) {
+                        sink.addTypedLiteral(block.subjects[i], block.predicates[i], block.objects[i],
+                                block.langsOrTypes[i]);
+                    } else {
+                        quadSink.addTypedLiteral(block.subjects[i], block.predicates[i],
+                                block.objects[i], block.langsOrTypes[i], graph);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private final class Consumer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Block block = filledBlocks.take();
+                    if (block.types.length == 0) {
+                        break;
+                    }
+                    if (error == null) {
+                        try {
+                            replay(block);
+                        } catch (Throwable e) {
+                            error = e;
+                        }
+                    }
+                    block.clear();
+                    freeBlocks.put(block);
+                }
+            } catch (InterruptedException e) {
+                // processing was aborted by producer
+            }
+        }
+    }
+
+    private static final class Block {
+        private final byte[] types;
+        private final String[] subjects;
+        private final String[] predicates;
+        private final String[] objects;
+        private final String[] langsOrTypes;
+        private final String[] graphs;
+        private int count;
+
+        private Block(int size) {
+            types = new byte[size];
+            subjects = new String[size];
+            predicates = new String[size];
+            objects = new String[size];
+            langsOrTypes = new String[size];
+            graphs = new String[size];
+            count = 0;
+        }
+
+        private void clear() {
+            for (int i = 0; i < count; i++) {
+                subjects[i] = null;
+                predicates[i] = null;
+                objects[i] = null;
+                langsOrTypes[i] = null;
+                graphs[i] = null;
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+/**
+ * Interface for consuming quads in batches. See {@link TripleBatchSink} for columns layout.
+ */
+public interface QuadBatchSink extends QuadSink, TripleBatchSink {
+
+    /**
+     * Callback for handling batch of quads
+     * @param subjs subjects' IRIs or BNode names
+     * @param preds predicates' IRIs
+     * @param objs objects' IRIs, BNode names or unescaped literal contents
+     * @param objTypes object types, one of {@link #NON_LITERAL}, {@link #PLAIN_LITERAL}, {@link #TYPED_LITERAL}
+     * @param langsOrTypes literals' langs or datatype IRIs, null for non literal objects and plain literals
+     *                     without language
+     * @param graphs graphs' IRIs, null for triples of default graph
+     * @param count count of quads in batch
+     */
+    void addQuads(String[] subjs, String[] preds, String[] objs, byte[] objTypes, String[] langsOrTypes,
+                  String[] graphs, int count);
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+/**
+ * Interface for char sinks of line oriented formats. Input of such sinks can be split
+ * at line boundaries and processed by independent sinks concurrently.
+ */
+public interface SplittableSink extends CharSink {
+
+    /**
+     * Creates sink with its own processing state which streams to the same output as this sink.
+     * Created sinks can be used from different threads simultaneously, calls to the shared output
+     * are synchronized. Start and end stream events of created sinks are not passed to the output.
+     * @return new sink for processing of single input chunk
+     */
+    CharSink createChunkSink();
+
+}
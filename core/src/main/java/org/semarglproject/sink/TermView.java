@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+/**
+ * Reusable char sequence which is used to pass terms to {@link TripleViewSink} without allocations.
+ * Content of a view is valid only during the callback it was passed to, sinks must call
+ * {@link #toString()} to keep it. {@link #getBuffer()} and {@link #getOffset()} give direct access
+ * to underlying chars, e.g. for passing them to {@link CharSink#process(char[], int, int)}.
+ */
+public final class TermView implements CharSequence {
+
+    private static final int INITIAL_SIZE = 64;
+
+    private char[] buffer = new char[INITIAL_SIZE];
+    private int offset = 0;
+    private int length = 0;
+
+    /**
+     * @return buffer which holds view's chars
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return position of view's first char in buffer
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return buffer[offset + index];
+    }
+
+    /**
+     * Returns copy of view's part
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @return new string
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new String(buffer, offset + start, end - start);
+    }
+
+    /**
+     * Checks if view has the same content as specified char sequence
+     * @param seq char sequence to compare with
+     * @return true if contents are equal
+     */
+    public boolean contentEquals(CharSequence seq) {
+        if (seq.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[offset + i] != seq.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, offset, length);
+    }
+
+    /**
+     * Clears view's content. Used by producers of views.
+     */
+    public void clear() {
+        offset = 0;
+        length = 0;
+    }
+
+    /**
+     * Appends chars to view's content. Used by producers of views.
+     * @param chars source buffer
+     * @param start position to start
+     * @param count count of chars to append
+     */
+    public void append(char[] chars, int start, int count) {
+        ensureCapacity(count);
+        System.arraycopy(chars, start, buffer, offset + length, count);
+        length += count;
+    }
+
+    /**
+     * Appends part of char sequence to view's content. Used by producers of views.
+     * @param seq source sequence
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     */
+    public void append(CharSequence seq, int start, int end) {
+        ensureCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            buffer[offset + length++] = seq.charAt(i);
+        }
+    }
+
+    /**
+     * Appends char to view's content. Used by producers of views.
+     * @param ch char to append
+     */
+    public void append(char ch) {
+        ensureCapacity(1);
+        buffer[offset + length++] = ch;
+    }
+
+    /**
+     * Narrows view to its part without copying. Used by producers of views.
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     */
+    public void narrow(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        offset += start;
+        length = end - start;
+    }
+
+    /**
+     * Sets length of view's content. Used by producers of views which modify content in place.
+     * @param length new length, must not exceed current one
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IndexOutOfBoundsException(String.valueOf(length));
+        }
+        this.length = length;
+    }
+
+    private void ensureCapacity(int count) {
+        if (offset + length + count > buffer.length) {
+            char[] newBuffer = new char[Math.max(buffer.length * 2, length + count)];
+            System.arraycopy(buffer, offset, newBuffer, 0, length);
+            buffer = newBuffer;
+            offset = 0;
+        }
+    }
+}
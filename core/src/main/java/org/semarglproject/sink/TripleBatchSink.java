@@ -0,0 +1,53 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+/**
+ * Interface for consuming triples in batches. Triples are passed as columns of equal size,
+ * only first count elements of each column are meaningful. Columns are reused by caller
+ * after callback returns, so implementations must copy data they want to keep.
+ */
+public interface TripleBatchSink extends TripleSink {
+
+    /**
+     * Object type of triple with non literal object
+     */
+    byte NON_LITERAL = 0;
+
+    /**
+     * Object type of triple with plain literal object
+     */
+    byte PLAIN_LITERAL = 1;
+
+    /**
+     * Object type of triple with typed literal object
+     */
+    byte TYPED_LITERAL = 2;
+
+    /**
+     * Callback for handling batch of triples
+     * @param subjs subjects' IRIs or BNode names
+     * @param preds predicates' IRIs
+     * @param objs objects' IRIs, BNode names or unescaped literal contents
+     * @param objTypes object types, one of {@link #NON_LITERAL}, {@link #PLAIN_LITERAL}, {@link #TYPED_LITERAL}
+     * @param langsOrTypes literals' langs or datatype IRIs, null for non literal objects and plain literals
+     *                     without language
+     * @param count count of triples in batch
+     */
+    void addTriples(String[] subjs, String[] preds, String[] objs, byte[] objTypes, String[] langsOrTypes,
+                    int count);
+
+}
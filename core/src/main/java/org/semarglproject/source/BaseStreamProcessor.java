@@ -16,6 +16,7 @@
 package org.semarglproject.source;
 
 import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.ByteSink;
 import org.semarglproject.sink.CharSink;
 import org.semarglproject.sink.DataSink;
 import org.semarglproject.sink.XmlSink;
@@ -70,6 +71,22 @@ public abstract class BaseStreamProcessor {
      * @throws ParseException
      */
     public final void process(File file, String baseUri) throws ParseException {
+        startStream();
+        try {
+            processInternal(file, baseUri);
+        } finally {
+            endStream();
+        }
+    }
+
+    /**
+     * Processes document's file between start and end stream events. Subclasses can override
+     * this method to use file specific processing strategies.
+     * @param file document's file
+     * @param baseUri document's URI
+     * @throws ParseException
+     */
+    protected void processInternal(File file, String baseUri) throws ParseException {
         FileReader reader;
         try {
             reader = new FileReader(file);
@@ -77,7 +94,7 @@ public abstract class BaseStreamProcessor {
             throw new ParseException(e);
         }
         try {
-            process(reader, null, baseUri);
+            processInternal(reader, null, baseUri);
         } finally {
             closeQuietly(reader);
         }
@@ -180,6 +197,8 @@ public abstract class BaseStreamProcessor {
             return new CharSource((CharSink) sink);
         } else if (sink instanceof XmlSink) {
             return new XmlSource((XmlSink) sink);
+        } else if (sink instanceof ByteSink) {
+            return new ByteSource((ByteSink) sink);
         }
         return null;
     }
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.source;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.ByteSink;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+final class ByteSource extends AbstractSource<ByteSink> {
+
+    private static final long MAP_WINDOW_SIZE = 1 << 26;
+
+    private int bufferSize = CharSource.DEFAULT_BUFFER_SIZE;
+    private byte[] buffer = null;
+
+    ByteSource(ByteSink sink) {
+        super(sink);
+    }
+
+    @Override
+    public void process(Reader reader, String mimeType, String baseUri) throws ParseException {
+        CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(bufferSize);
+        ByteBuffer bytes = ByteBuffer.wrap(getBuffer());
+        try {
+            sink.setBaseUri(baseUri);
+            while (reader.read(chars) != -1) {
+                chars.flip();
+                encode(encoder, chars, bytes, false);
+                chars.compact();
+            }
+            chars.flip();
+            encode(encoder, chars, bytes, true);
+            encoder.flush(bytes);
+            flush(bytes, sink);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            BaseStreamProcessor.closeQuietly(reader);
+        }
+    }
+
+    private void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes,
+                        boolean endOfInput) throws ParseException {
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, endOfInput);
+            flush(bytes, sink);
+        } while (result.isOverflow());
+    }
+
+    private static void flush(ByteBuffer bytes, ByteSink sink) throws ParseException {
+        if (bytes.position() > 0) {
+            sink.process(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+
+    @Override
+    public void process(InputStream inputStream, String mimeType, String baseUri) throws ParseException {
+        sink.setBaseUri(baseUri);
+        process(inputStream, sink, getBuffer());
+    }
+
+    /**
+     * Processes document's file. File is memory mapped and passed to sink without decoding.
+     * @param file document's file
+     * @param baseUri document's base URI
+     * @throws ParseException
+     */
+    void process(File file, String baseUri) throws ParseException {
+        sink.setBaseUri(baseUri);
+        process(file, sink, getBuffer());
+    }
+
+    /**
+     * Streams bytes of input stream to specified sink.
+     * @param inputStream stream to read
+     * @param sink sink to stream to
+     * @param buffer buffer for read bytes
+     * @throws ParseException
+     */
+    static void process(InputStream inputStream, ByteSink sink, byte[] buffer) throws ParseException {
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                sink.process(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            BaseStreamProcessor.closeQuietly(inputStream);
+        }
+    }
+
+    static void process(File file, ByteSink sink, byte[] buffer) throws ParseException {
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            FileChannel channel = inputStream.getChannel();
+            process(channel, 0, channel.size(), sink, buffer);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            BaseStreamProcessor.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Streams file region to specified sink. Region is memory mapped by windows.
+     * @param channel file's channel
+     * @param start region start position
+     * @param end region end position
+     * @param sink sink to stream to
+     * @param buffer buffer for passing bytes to sink
+     * @throws IOException
+     * @throws ParseException
+     */
+    static void process(FileChannel channel, long start, long end, ByteSink sink,
+                        byte[] buffer) throws IOException, ParseException {
+        long pos = start;
+        while (pos < end) {
+            long size = Math.min(end - pos, MAP_WINDOW_SIZE);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            while (bytes.hasRemaining()) {
+                int count = Math.min(bytes.remaining(), buffer.length);
+                bytes.get(buffer, 0, count);
+                sink.process(buffer, 0, count);
+            }
+            pos += size;
+        }
+    }
+
+    void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.buffer = null;
+    }
+
+    private byte[] getBuffer() {
+        if (buffer == null) {
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+}
@@ -16,41 +16,64 @@
 package org.semarglproject.source;
 
 import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.ByteSink;
 import org.semarglproject.sink.CharSink;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 final class CharSource extends AbstractSource<CharSink> {
 
+    static final int DEFAULT_BUFFER_SIZE = 1 << 13;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAP_WINDOW_SIZE = 1 << 26;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private char[] buffer = null;
+    private byte[] byteBuffer = null;
+
     CharSource(CharSink sink) {
         super(sink);
     }
 
     @Override
     public void process(Reader reader, String mimeType, String baseUri) throws ParseException {
-        BufferedReader bufferedReader = new BufferedReader(reader);
         try {
             sink.setBaseUri(baseUri);
-            char[] buffer = new char[512];
+            char[] buffer = getBuffer();
             int read;
-            while ((read = bufferedReader.read(buffer)) != -1) {
+            while ((read = reader.read(buffer)) != -1) {
                 sink.process(buffer, 0, read);
             }
         } catch (IOException e) {
             throw new ParseException(e);
         } finally {
-            BaseStreamProcessor.closeQuietly(bufferedReader);
+            BaseStreamProcessor.closeQuietly(reader);
         }
     }
 
     @Override
     public void process(InputStream inputStream, String mimeType, String baseUri) throws ParseException {
-        Reader reader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
+        if (sink instanceof ByteSink) {
+            sink.setBaseUri(baseUri);
+            ByteSource.process(inputStream, (ByteSink) sink, getByteBuffer());
+            return;
+        }
+        Reader reader = new InputStreamReader(inputStream, UTF8);
         try {
             process(reader, mimeType, baseUri);
         } finally {
@@ -58,4 +81,96 @@ final class CharSource extends AbstractSource<CharSink> {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Processes UTF-8 encoded file. File is memory mapped and decoded directly to reusable buffer
+     * or passed as is to sinks which implement {@link ByteSink}.
+     * @param file document's file
+     * @param baseUri document's base URI
+     * @throws ParseException
+     */
+    void process(File file, String baseUri) throws ParseException {
+        if (sink instanceof ByteSink) {
+            sink.setBaseUri(baseUri);
+            ByteSource.process(file, (ByteSink) sink, getByteBuffer());
+            return;
+        }
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            FileChannel channel = inputStream.getChannel();
+            sink.setBaseUri(baseUri);
+            process(channel, 0, channel.size(), sink, getBuffer());
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            BaseStreamProcessor.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Streams UTF-8 encoded file region to specified sink. Region is memory mapped by windows.
+     * @param channel file's channel
+     * @param start region start position
+     * @param end region end position
+     * @param sink sink to stream to
+     * @param buffer buffer for decoded chars
+     * @throws IOException
+     * @throws ParseException
+     */
+    static void process(FileChannel channel, long start, long end, CharSink sink,
+                        char[] buffer) throws IOException, ParseException {
+        CharsetDecoder decoder = UTF8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        long pos = start;
+        while (pos < end) {
+            long size = Math.min(end - pos, MAP_WINDOW_SIZE);
+            boolean lastWindow = pos + size == end;
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            decode(decoder, bytes, chars, lastWindow, sink);
+            // incomplete char sequence at the end of window is decoded with the next window
+            pos += bytes.position();
+        }
+        decode(decoder, EMPTY_BUFFER, chars, true, sink);
+        decoder.flush(chars);
+        flush(chars, sink);
+    }
+
+    private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean endOfInput,
+                               CharSink sink) throws ParseException {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chars, endOfInput);
+            flush(chars, sink);
+        } while (result.isOverflow());
+    }
+
+    private static void flush(CharBuffer chars, CharSink sink) throws ParseException {
+        if (chars.position() > 0) {
+            sink.process(chars.array(), 0, chars.position());
+            chars.clear();
+        }
+    }
+
+    void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.buffer = null;
+        this.byteBuffer = null;
+    }
+
+    private char[] getBuffer() {
+        if (buffer == null) {
+            buffer = new char[bufferSize];
+        }
+        return buffer;
+    }
+
+    private byte[] getByteBuffer() {
+        if (byteBuffer == null) {
+            byteBuffer = new byte[bufferSize];
+        }
+        return byteBuffer;
+    }
+
+}
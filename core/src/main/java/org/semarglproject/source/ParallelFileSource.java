@@ -0,0 +1,181 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.source;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.ByteSink;
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.SplittableSink;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits file at line boundaries and streams each chunk to its own sink created by
+ * {@link SplittableSink#createChunkSink()}. Chunks are processed by a fixed size thread pool.
+ */
+final class ParallelFileSource {
+
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final SplittableSink sink;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int bufferSize;
+
+    ParallelFileSource(SplittableSink sink, int parallelism, long chunkSize, int bufferSize) {
+        this.sink = sink;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.bufferSize = bufferSize;
+    }
+
+    void process(File file, String baseUri) throws ParseException {
+        List<Long> bounds = split(file);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 1; i < bounds.size(); i++) {
+                results.add(executor.submit(new ChunkTask(file, baseUri, bounds.get(i - 1), bounds.get(i))));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            }
+            throw new ParseException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds chunk bounds. Each chunk except the last one ends right after line feed.
+     * @param file file to split
+     * @return sorted list of chunk bounds including 0 and file length
+     * @throws ParseException
+     */
+    private List<Long> split(File file) throws ParseException {
+        long length = file.length();
+        long size = chunkSize;
+        if (size <= 0) {
+            size = Math.max(length / (parallelism * CHUNKS_PER_THREAD), MIN_CHUNK_SIZE);
+        }
+        List<Long> bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            FileChannel channel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long start = 0;
+            while (start + size < length) {
+                start = findLineEnd(channel, buffer, start + size);
+                bounds.add(start);
+            }
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            BaseStreamProcessor.closeQuietly(inputStream);
+        }
+        if (bounds.get(bounds.size() - 1) < length) {
+            bounds.add(length);
+        }
+        return bounds;
+    }
+
+    private static long findLineEnd(FileChannel channel, ByteBuffer buffer, long from) throws IOException {
+        long pos = from;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read == -1) {
+                return pos;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+    }
+
+    private final class ChunkTask implements Callable<Void> {
+
+        private final File file;
+        private final String baseUri;
+        private final long start;
+        private final long end;
+
+        private ChunkTask(File file, String baseUri, long start, long end) {
+            this.file = file;
+            this.baseUri = baseUri;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() throws ParseException {
+            CharSink chunkSink = sink.createChunkSink();
+            chunkSink.setBaseUri(baseUri);
+            chunkSink.startStream();
+            FileInputStream inputStream = null;
+            boolean completed = false;
+            try {
+                inputStream = new FileInputStream(file);
+                FileChannel channel = inputStream.getChannel();
+                if (chunkSink instanceof ByteSink) {
+                    ByteSource.process(channel, start, end, (ByteSink) chunkSink, new byte[bufferSize]);
+                } else {
+                    CharSource.process(channel, start, end, chunkSink, new char[bufferSize]);
+                }
+                completed = true;
+            } catch (IOException e) {
+                throw new ParseException(e);
+            } finally {
+                BaseStreamProcessor.closeQuietly(inputStream);
+                try {
+                    chunkSink.endStream();
+                } catch (ParseException e) {
+                    // error of unfinished chunk shouldn't hide the one which interrupted it
+                    if (completed) {
+                        throw e;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.source;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.ByteSink;
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.DataSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads input on a separate thread. Reader thread fills blocks from a bounded pool and passes
+ * them to calling thread which streams them to sink, so I/O and decoding overlap with parsing.
+ * Reader thread waits for free blocks when sink falls behind.
+ */
+final class PipelinedSource {
+
+    private final DataSink sink;
+    private final int depth;
+    private final int blockSize;
+
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> filledBlocks;
+
+    /**
+     * @param sink char or byte sink to stream to
+     * @param depth count of blocks in flight
+     * @param blockSize size of single block
+     */
+    PipelinedSource(DataSink sink, int depth, int blockSize) {
+        this.sink = sink;
+        this.depth = depth;
+        this.blockSize = blockSize;
+        this.freeBlocks = new ArrayBlockingQueue<Block>(depth);
+        this.filledBlocks = new ArrayBlockingQueue<Block>(depth);
+    }
+
+    void process(InputStream inputStream, String baseUri) throws ParseException {
+        if (sink instanceof ByteSink) {
+            process(new ByteFiller(inputStream), baseUri);
+        } else {
+            process(new InputStreamReader(inputStream, Charset.forName("UTF-8")), baseUri);
+        }
+    }
+
+    void process(Reader reader, String baseUri) throws ParseException {
+        if (!(sink instanceof CharSink)) {
+            throw new ParseException("Sink doesn't accept char input");
+        }
+        process(new CharFiller(reader), baseUri);
+    }
+
+    private void process(Filler filler, String baseUri) throws ParseException {
+        for (int i = 0; i < depth; i++) {
+            freeBlocks.add(new Block());
+        }
+        sink.setBaseUri(baseUri);
+        Thread thread = new Thread(filler, "semargl-pipeline-reader");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            while (true) {
+                Block block = filledBlocks.take();
+                if (block.error != null) {
+                    throw new ParseException(block.error);
+                }
+                if (block.length == -1) {
+                    break;
+                }
+                if (block.bytes != null) {
+                    ((ByteSink) sink).process(block.bytes, 0, block.length);
+                } else {
+                    ((CharSink) sink).process(block.chars, 0, block.length);
+                }
+                freeBlocks.add(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(e);
+        } finally {
+            thread.interrupt();
+            BaseStreamProcessor.closeQuietly(filler.input);
+        }
+    }
+
+    private static final class Block {
+        private char[] chars;
+        private byte[] bytes;
+        private int length;
+        private Throwable error;
+    }
+
+    private abstract class Filler implements Runnable {
+
+        private final Closeable input;
+
+        protected Filler(Closeable input) {
+            this.input = input;
+        }
+
+        protected abstract int fill(Block block) throws IOException;
+
+        @Override
+        public void run() {
+            Block block = null;
+            try {
+                while (true) {
+                    block = freeBlocks.take();
+                    block.length = fill(block);
+                    filledBlocks.put(block);
+                    if (block.length == -1) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // processing was aborted by sink
+            } catch (Throwable e) {
+                // calling thread waits for a block, so any failure has to be passed to it
+                if (block == null) {
+                    block = new Block();
+                }
+                block.error = e;
+                filledBlocks.offer(block);
+            }
+        }
+    }
+
+    private final class CharFiller extends Filler {
+
+        private final Reader reader;
+
+        private CharFiller(Reader reader) {
+            super(reader);
+            this.reader = reader;
+        }
+
+        @Override
+        protected int fill(Block block) throws IOException {
+            if (block.chars == null) {
+                block.chars = new char[blockSize];
+            }
+            return reader.read(block.chars);
+        }
+    }
+
+    private final class ByteFiller extends Filler {
+
+        private final InputStream inputStream;
+
+        private ByteFiller(InputStream inputStream) {
+            super(inputStream);
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        protected int fill(Block block) throws IOException {
+            if (block.bytes == null) {
+                block.bytes = new byte[blockSize];
+            }
+            return inputStream.read(block.bytes);
+        }
+    }
+
+}
@@ -16,10 +16,15 @@
 package org.semarglproject.source;
 
 import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.CharSink;
 import org.semarglproject.sink.DataSink;
+import org.semarglproject.sink.SplittableSink;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.Reader;
 
@@ -30,6 +35,11 @@ import java.io.Reader;
  * List of supported properties:
  *     <ul>
  *         <li>{@link #XML_READER_PROPERTY}</li>
+ *         <li>{@link #PARALLELISM_PROPERTY}</li>
+ *         <li>{@link #CHUNK_SIZE_PROPERTY}</li>
+ *         <li>{@link #BUFFER_SIZE_PROPERTY}</li>
+ *         <li>{@link #PIPELINE_DEPTH_PROPERTY}</li>
+ *         <li>{@link #IRI_CACHE_PROPERTY}</li>
  *     </ul>
  */
 public final class StreamProcessor extends BaseStreamProcessor {
@@ -55,9 +65,59 @@ public final class StreamProcessor extends BaseStreamProcessor {
     public static final String PROCESSOR_GRAPH_HANDLER_PROPERTY =
             "http://semarglproject.org/core/properties/processor-graph-handler";
 
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Number of threads used to process files streamed to {@link SplittableSink} instances.
+     * Files are split at line boundaries and chunks are processed in parallel, so triples
+     * can reach pipe's output in an order which differs from document's order. Processor graph
+     * handlers can be called from several threads.
+     * Integer value must be passed, parallel processing is disabled by default.
+     */
+    public static final String PARALLELISM_PROPERTY =
+            "http://semarglproject.org/core/properties/parallelism";
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Approximate size in bytes of file chunks processed in parallel mode.
+     * By default it is chosen according to file size and {@link #PARALLELISM_PROPERTY}.
+     */
+    public static final String CHUNK_SIZE_PROPERTY =
+            "http://semarglproject.org/core/properties/chunk-size";
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Size of buffer used to pass data to {@link org.semarglproject.sink.CharSink} and
+     * {@link org.semarglproject.sink.ByteSink} instances.
+     * Integer value must be passed, default size is 8192.
+     */
+    public static final String BUFFER_SIZE_PROPERTY =
+            "http://semarglproject.org/core/properties/buffer-size";
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Enables pipelined processing for char and byte sinks: input is read on a separate thread
+     * into blocks of {@link #BUFFER_SIZE_PROPERTY} size and parsed on calling thread.
+     * Integer value specifies maximum count of blocks in flight, pipelining is disabled by default.
+     */
+    public static final String PIPELINE_DEPTH_PROPERTY =
+            "http://semarglproject.org/core/properties/pipeline-depth";
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Allows to share {@link org.semarglproject.ri.IriCache} between RDF/XML and RDFa parsers processing
+     * documents with the same base. By default each parser uses its own cache cleared after each document.
+     */
+    public static final String IRI_CACHE_PROPERTY =
+            "http://semarglproject.org/core/properties/iri-cache";
+
     private final DataSink sink;
     private final AbstractSource source;
 
+    private int parallelism = 1;
+    private long chunkSize = 0;
+    private int bufferSize = CharSource.DEFAULT_BUFFER_SIZE;
+    private int pipelineDepth = 0;
+
     /**
      * Instantiates stream processor for pipe starting with specified sink.
      * @param sink pipe's input
@@ -69,7 +129,11 @@ public final class StreamProcessor extends BaseStreamProcessor {
 
     @Override
     public void processInternal(InputStream inputStream, String mimeType, String baseUri) throws ParseException {
-        source.process(inputStream, mimeType, baseUri);
+        if (isPipelined()) {
+            new PipelinedSource(sink, pipelineDepth, bufferSize).process(inputStream, baseUri);
+        } else {
+            source.process(inputStream, mimeType, baseUri);
+        }
     }
 
     @Override
@@ -84,12 +148,62 @@ public final class StreamProcessor extends BaseStreamProcessor {
 
     @Override
     public void processInternal(Reader reader, String mimeType, String baseUri) throws ParseException {
-        source.process(reader, mimeType, baseUri);
+        if (isPipelined() && sink instanceof CharSink) {
+            new PipelinedSource(sink, pipelineDepth, bufferSize).process(reader, baseUri);
+        } else {
+            source.process(reader, mimeType, baseUri);
+        }
+    }
+
+    @Override
+    protected void processInternal(File file, String baseUri) throws ParseException {
+        if (parallelism > 1 && sink instanceof SplittableSink) {
+            new ParallelFileSource((SplittableSink) sink, parallelism, chunkSize, bufferSize).process(file, baseUri);
+        } else if (isPipelined()) {
+            InputStream inputStream;
+            try {
+                inputStream = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                throw new ParseException(e);
+            }
+            processInternal(inputStream, null, baseUri);
+        } else if (source instanceof CharSource) {
+            ((CharSource) source).process(file, baseUri);
+        } else if (source instanceof ByteSource) {
+            ((ByteSource) source).process(file, baseUri);
+        } else {
+            super.processInternal(file, baseUri);
+        }
+    }
+
+    private boolean isPipelined() {
+        return pipelineDepth > 0 && (source instanceof CharSource || source instanceof ByteSource);
     }
 
     @Override
     public boolean setProperty(String key, Object value) {
         boolean result = false;
+        if (PARALLELISM_PROPERTY.equals(key) && value instanceof Integer) {
+            parallelism = (Integer) value;
+            result = true;
+        } else if (CHUNK_SIZE_PROPERTY.equals(key) && value instanceof Number) {
+            chunkSize = ((Number) value).longValue();
+            result = true;
+        } else if (PIPELINE_DEPTH_PROPERTY.equals(key) && value instanceof Integer) {
+            pipelineDepth = (Integer) value;
+            result = true;
+        } else if (BUFFER_SIZE_PROPERTY.equals(key) && value instanceof Integer) {
+            if ((Integer) value <= 0) {
+                throw new IllegalArgumentException("Buffer size must be positive");
+            }
+            bufferSize = (Integer) value;
+            if (source instanceof CharSource) {
+                ((CharSource) source).setBufferSize(bufferSize);
+            } else if (source instanceof ByteSource) {
+                ((ByteSource) source).setBufferSize(bufferSize);
+            }
+            result = true;
+        }
         if (XML_READER_PROPERTY.equals(key) && value instanceof XMLReader && source instanceof XmlSource) {
             try {
                 if (value != null) {
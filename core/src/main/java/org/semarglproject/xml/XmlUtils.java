@@ -142,28 +142,44 @@ public final class XmlUtils {
      */
     public static String serializeOpenTag(String nsUri, String qname, Map<String, String> nsMappings,
                                           Attributes attrs, boolean optimizeNs) {
-        String result = "<" + qname;
+        StringBuilder result = new StringBuilder();
+        serializeOpenTag(result, nsUri, qname, nsMappings, attrs, optimizeNs);
+        return result.toString();
+    }
+
+    /**
+     * Serializes node open tag to specified buffer
+     * @param result buffer to append open tag to
+     * @param nsUri node's NS URI
+     * @param qname node's QName
+     * @param nsMappings node's namespace mappings
+     * @param attrs node's attributes
+     * @param optimizeNs should unused namespaces be skipped
+     */
+    public static void serializeOpenTag(StringBuilder result, String nsUri, String qname,
+                                        Map<String, String> nsMappings, Attributes attrs, boolean optimizeNs) {
+        result.append('<').append(qname);
         if (nsUri != null && nsUri.length() > 0) {
             int idx = Math.max(qname.indexOf(':'), 0);
             nsMappings.put(qname.substring(0, idx), nsUri);
         }
         for (int i = 0; i < attrs.getLength(); i++) {
-            result += " " + attrs.getQName(i) + "=\"" + attrs.getValue(i) + "\"";
+            result.append(' ').append(attrs.getQName(i)).append("=\"").append(attrs.getValue(i)).append('"');
         }
-        for (String key : nsMappings.keySet()) {
+        for (Map.Entry<String, String> entry : nsMappings.entrySet()) {
+            String key = entry.getKey();
             if (optimizeNs && isPrefixIgnorable(key, qname, attrs)) {
                 continue;
             }
 
             if (key.isEmpty()) {
-                String value = nsMappings.get(key);
-                result += " xmlns=\"" + value + "\"";
+                result.append(" xmlns=\"");
             } else {
-                result += " xmlns:" + key + "=\"" + nsMappings.get(key) + "\"";
+                result.append(" xmlns:").append(key).append("=\"");
             }
+            result.append(entry.getValue()).append('"');
         }
-        result += ">";
-        return result;
+        result.append('>');
     }
 
     private static boolean isPrefixIgnorable(String key, String qname, Attributes attrs) {
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.ri;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.assertEquals;
+
+public final class RIUtilsTest {
+
+    private static final String BASE = "http://a/b/c/d;p?q";
+
+    // regular expressions used by validators before they were hand-coded
+    private static final Pattern ABS_OPAQUE_IRI_PATTERN = Pattern.compile(
+            "[a-zA-Z][a-zA-Z0-9+.-]*:[^#/][^#]*", Pattern.DOTALL);
+    private static final Pattern ABS_HIER_IRI_PATTERN = Pattern.compile(
+            "[a-zA-Z][a-zA-Z0-9+.-]*:/{1,3}(([^/?#@]*)@)?(\\[[^@/?#]+\\]|([^@/?#:]+))(:([^/?#]*))?([^#?]*)?"
+            + "(\\?([^#]*))?(#[^#]*)?", Pattern.DOTALL);
+    private static final Pattern URN_PATTERN = Pattern.compile("urn:[a-zA-Z0-9][a-zA-Z0-9-]{1,31}:.+");
+
+    private static final String[] PREFIXES = {"", "h", "http:", "http://", "x+y.z-1:", "1a:", "urn:", "urn:isbn:",
+            "urn:a:", "urn:-a:", "urn:abcdefghijklmnopqrstuvwxyz01234:", "urn:abcdefghijklmnopqrstuvwxyz0123:"};
+    private static final String ALPHABET = "aZ09+.-:/?#@[]% \n\r\u2028\u00e9";
+
+    @DataProvider
+    public static Object[][] getRfc3986Examples() {
+        return new Object[][] {
+                // normal examples, RFC 3986 section 5.4.1
+                {"g:h", "g:h"},
+                {"g", "http://a/b/c/g"},
+                {"./g", "http://a/b/c/g"},
+                {"g/", "http://a/b/c/g/"},
+                {"/g", "http://a/g"},
+                {"//g", "http://g"},
+                {"?y", "http://a/b/c/d;p?y"},
+                {"g?y", "http://a/b/c/g?y"},
+                {"#s", "http://a/b/c/d;p?q#s"},
+                {"g#s", "http://a/b/c/g#s"},
+                {"g?y#s", "http://a/b/c/g?y#s"},
+                {";x", "http://a/b/c/;x"},
+                {"g;x", "http://a/b/c/g;x"},
+                {"g;x?y#s", "http://a/b/c/g;x?y#s"},
+                {"", "http://a/b/c/d;p?q"},
+                {".", "http://a/b/c/"},
+                {"./", "http://a/b/c/"},
+                {"..", "http://a/b/"},
+                {"../", "http://a/b/"},
+                {"../g", "http://a/b/g"},
+                {"../..", "http://a/"},
+                {"../../", "http://a/"},
+                {"../../g", "http://a/g"},
+                // abnormal examples, RFC 3986 section 5.4.2
+                {"../../../g", "http://a/g"},
+                {"../../../../g", "http://a/g"},
+                {"/./g", "http://a/g"},
+                {"/../g", "http://a/g"},
+                {"g.", "http://a/b/c/g."},
+                {".g", "http://a/b/c/.g"},
+                {"g..", "http://a/b/c/g.."},
+                {"..g", "http://a/b/c/..g"},
+                {"./../g", "http://a/b/g"},
+                {"./g/.", "http://a/b/c/g/"},
+                {"g/./h", "http://a/b/c/g/h"},
+                {"g/../h", "http://a/b/c/h"},
+                {"g;x=1/./y", "http://a/b/c/g;x=1/y"},
+                {"g;x=1/../y", "http://a/b/c/y"},
+                {"g?y/./x", "http://a/b/c/g?y/./x"},
+                {"g?y/../x", "http://a/b/c/g?y/../x"},
+                {"g#s/./x", "http://a/b/c/g#s/./x"},
+                {"g#s/../x", "http://a/b/c/g#s/../x"},
+                {"http:g", "http:g"}
+        };
+    }
+
+    @Test(dataProvider = "getRfc3986Examples")
+    public void resolveRfc3986Examples(String reference, String expected) throws MalformedIriException {
+        assertEquals(RIUtils.resolveIri(BASE, reference), expected);
+        assertEquals(new IriResolver(BASE).resolve(reference), expected);
+    }
+
+    @Test
+    public void validatorsMatchRegularExpressions() {
+        Random random = new Random(0);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder value = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            String str = value.toString();
+            boolean hier = ABS_HIER_IRI_PATTERN.matcher(str).matches();
+            assertEquals(RIUtils.isAbsoluteIri(str), hier, str);
+            assertEquals(RIUtils.isIri(str), hier || ABS_OPAQUE_IRI_PATTERN.matcher(str).matches(), str);
+            assertEquals(RIUtils.isUrn(str), URN_PATTERN.matcher(str).matches(), str);
+        }
+    }
+
+    @Test
+    public void resolveAgainstBaseWithoutPath() throws MalformedIriException {
+        assertEquals(RIUtils.resolveIri("http://a", "g"), "http://a/g");
+        assertEquals(RIUtils.resolveIri("http://a", "#s"), "http://a#s");
+        assertEquals(RIUtils.resolveIri("http://a/b#frag", ""), "http://a/b");
+        assertEquals(RIUtils.resolveIri("http://a/b#", "?y"), "http://a/b?y");
+    }
+
+    @Test
+    public void absoluteIrisAreNotResolved() throws MalformedIriException {
+        assertEquals(RIUtils.resolveIri(null, "http://a/b/../c"), "http://a/b/../c");
+        assertEquals(RIUtils.resolveIri("relative", "urn:isbn:0451450523"), "urn:isbn:0451450523");
+    }
+
+    @Test
+    public void iriCacheKeepsReferencesPerBase() throws MalformedIriException {
+        IriCache cache = new IriCache(2);
+        assertEquals(cache.resolve(BASE, "g"), "http://a/b/c/g");
+        assertEquals(cache.resolve(BASE, "g"), "http://a/b/c/g");
+        assertEquals(cache.resolve("http://x/y", "g"), "http://x/g");
+        assertEquals(cache.resolve(BASE, "g"), "http://a/b/c/g");
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 2);
+
+        cache.resolve(BASE, "h");
+        cache.resolve(BASE, "i");
+        assertEquals(cache.getEvictionCount(), 1);
+
+        cache.invalidate(BASE);
+        assertEquals(cache.resolve(BASE, "i"), "http://a/b/c/i");
+        assertEquals(cache.getMissCount(), 5);
+    }
+
+    @Test
+    public void iriCacheSkipsAbsoluteIris() throws MalformedIriException {
+        IriCache cache = new IriCache(2);
+        assertEquals(cache.resolve(BASE, "#me"), "http://a/b/c/d;p?q#me");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(cache.resolve(BASE, "http://example.org/" + i), "http://example.org/" + i);
+        }
+        assertEquals(cache.resolve(BASE, "http://a/b/../c"), "http://a/b/../c");
+        assertEquals(cache.resolve(BASE, "#me"), "http://a/b/c/d;p?q#me");
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getEvictionCount(), 0);
+    }
+
+    @Test(expectedExceptions = MalformedIriException.class)
+    public void relativeBaseFails() throws MalformedIriException {
+        RIUtils.resolveIri("relative/base", "g");
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public final class InterningPipeTest {
+
+    @Test
+    public void internTableReturnsCanonicalInstances() {
+        InternTable table = new InternTable(8);
+        String iri = new String("http://example.org/1");
+        assertTrue(table.intern(iri) == iri);
+        assertTrue(table.intern(new String("http://example.org/1")) == iri);
+        for (int i = 0; i < 100; i++) {
+            table.intern("http://example.org/" + i);
+        }
+        assertEquals(table.getHitCount() + table.getMissCount(), 102);
+        assertTrue(table.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void statisticsCountLookupsFromAllThreads() throws InterruptedException {
+        final InternTable table = new InternTable(64);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        table.intern("http://example.org/" + j % 100);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(table.getHitCount() + table.getMissCount(), 4000);
+        table.clear();
+        assertEquals(table.getHitCount() + table.getMissCount() + table.getEvictionCount(), 0);
+    }
+
+    @Test
+    public void pipeInternsTermsButNotContent() {
+        RecordingSink recordingSink = new RecordingSink();
+        TripleSink pipe = InterningPipe.connect(recordingSink, new InternTable(16));
+        pipe.addNonLiteral(new String("http://example.org/s"), new String("http://example.org/p"),
+                new String("http://example.org/s"));
+        String content = new String("http://example.org/s");
+        pipe.addPlainLiteral(new String("http://example.org/s"), new String("http://example.org/p"), content, null);
+        List<String> terms = recordingSink.terms;
+        assertTrue(terms.get(0) == terms.get(2));
+        assertTrue(terms.get(0) == terms.get(3));
+        assertTrue(terms.get(1) == terms.get(4));
+        assertTrue(terms.get(5) == content);
+    }
+
+    private static final class RecordingSink implements TripleSink {
+
+        private final List<String> terms = new ArrayList<String>();
+
+        @Override
+        public void addNonLiteral(String subj, String pred, String obj) {
+            terms.add(subj);
+            terms.add(pred);
+            terms.add(obj);
+        }
+
+        @Override
+        public void addPlainLiteral(String subj, String pred, String content, String lang) {
+            terms.add(subj);
+            terms.add(pred);
+            terms.add(content);
+        }
+
+        @Override
+        public void addTypedLiteral(String subj, String pred, String content, String type) {
+            terms.add(subj);
+            terms.add(pred);
+            terms.add(content);
+        }
+
+        @Override
+        public void setBaseUri(String baseUri) {
+        }
+
+        @Override
+        public void startStream() {
+        }
+
+        @Override
+        public void endStream() {
+        }
+
+        @Override
+        public boolean setProperty(String key, Object value) {
+            return false;
+        }
+    }
+}
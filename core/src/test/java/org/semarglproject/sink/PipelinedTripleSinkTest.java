@@ -0,0 +1,114 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.sink;
+
+import org.semarglproject.rdf.ParseException;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public final class PipelinedTripleSinkTest {
+
+    @Test
+    public void quadsArePassedAsTriplesToTripleSink() throws ParseException {
+        RecordingSink recordingSink = new RecordingSink(false);
+        QuadSink pipe = PipelinedTripleSink.connect(recordingSink, 2);
+        pipe.startStream();
+        pipe.addNonLiteral("http://example.org/s", "http://example.org/p", "http://example.org/o",
+                "http://example.org/g");
+        pipe.addPlainLiteral("http://example.org/s", "http://example.org/p", "a", "en", "http://example.org/g");
+        pipe.addTypedLiteral("http://example.org/s", "http://example.org/p", "1", "http://example.org/t");
+        pipe.endStream();
+        assertEquals(recordingSink.statements.size(), 3);
+        assertEquals(recordingSink.statements.get(1), "http://example.org/s http://example.org/p a");
+        assertTrue(recordingSink.ended);
+    }
+
+    @Test
+    public void sinkFailureIsReportedAfterSinkIsEnded() throws ParseException {
+        RecordingSink recordingSink = new RecordingSink(true);
+        QuadSink pipe = PipelinedTripleSink.connect(recordingSink, 2);
+        pipe.startStream();
+        for (int i = 0; i < 10; i++) {
+            pipe.addNonLiteral("http://example.org/s", "http://example.org/p", "http://example.org/" + i);
+        }
+        try {
+            pipe.endStream();
+            fail();
+        } catch (ParseException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(recordingSink.ended);
+        assertEquals(recordingSink.statements.size(), 0);
+    }
+
+    private static final class RecordingSink implements TripleSink {
+
+        private final List<String> statements = new ArrayList<String>();
+        private final boolean failing;
+        private boolean ended;
+
+        private RecordingSink(boolean failing) {
+            this.failing = failing;
+        }
+
+        private void add(String subj, String pred, String obj) {
+            if (failing) {
+                throw new IllegalStateException("Sink failure");
+            }
+            statements.add(subj + " " + pred + " " + obj);
+        }
+
+        @Override
+        public void addNonLiteral(String subj, String pred, String obj) {
+            add(subj, pred, obj);
+        }
+
+        @Override
+        public void addPlainLiteral(String subj, String pred, String content, String lang) {
+            add(subj, pred, content);
+        }
+
+        @Override
+        public void addTypedLiteral(String subj, String pred, String content, String type) {
+            add(subj, pred, content);
+        }
+
+        @Override
+        public void setBaseUri(String baseUri) {
+        }
+
+        @Override
+        public void startStream() {
+            ended = false;
+        }
+
+        @Override
+        public void endStream() {
+            ended = true;
+        }
+
+        @Override
+        public boolean setProperty(String key, Object value) {
+            return false;
+        }
+    }
+}
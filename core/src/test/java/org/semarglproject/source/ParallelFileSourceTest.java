@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.source;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.SplittableSink;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public final class ParallelFileSourceTest {
+
+    @Test
+    public void failedChunksAreFinished() throws IOException {
+        File file = File.createTempFile("chunks", ".nt");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                writer.write("<http://example.org/s> <http://example.org/p> \"o\" .\n");
+            } finally {
+                writer.close();
+            }
+            FailingSink sink = new FailingSink();
+            try {
+                new ParallelFileSource(sink, 2, 0, 16).process(file, "http://example.org/");
+                fail("Parse error expected");
+            } catch (ParseException e) {
+                assertEquals(e.getMessage(), "Broken chunk");
+            }
+            assertEquals(sink.startedChunks.get(), 1);
+            assertEquals(sink.finishedChunks.get(), 1);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static final class FailingSink implements SplittableSink {
+
+        private final AtomicInteger startedChunks = new AtomicInteger();
+        private final AtomicInteger finishedChunks = new AtomicInteger();
+
+        @Override
+        public CharSink createChunkSink() {
+            // sink is used directly by parallel source, so it can count chunk events itself
+            return this;
+        }
+
+        @Override
+        public CharSink process(String str) throws ParseException {
+            throw new ParseException("Broken chunk");
+        }
+
+        @Override
+        public CharSink process(char ch) throws ParseException {
+            throw new ParseException("Broken chunk");
+        }
+
+        @Override
+        public CharSink process(char[] buffer, int start, int count) throws ParseException {
+            throw new ParseException("Broken chunk");
+        }
+
+        @Override
+        public void setBaseUri(String baseUri) {
+        }
+
+        @Override
+        public void startStream() {
+            startedChunks.incrementAndGet();
+        }
+
+        @Override
+        public void endStream() {
+            finishedChunks.incrementAndGet();
+        }
+
+        @Override
+        public boolean setProperty(String key, Object value) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,485 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.jsonld;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.Pipe;
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.vocab.JsonLd;
+import org.semarglproject.vocab.RDF;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of {@link QuadSink} which serializes quads to {@link CharSink} using
+ * <a href="http://www.w3.org/TR/json-ld/">JSON-LD</a> syntax.
+ * <br>
+ * Output is streamed: consecutive quads with the same subject and graph are grouped into single node object,
+ * consecutive quads of the same named graph are wrapped into graph object. Nothing but the current node
+ * is kept in memory, so nodes whose quads aren't consecutive are written as several node objects with
+ * the same @id. Typed literals are written in expanded form to preserve their lexical values.
+ * <br>
+ * IRIs are compacted using prefixes of top-level @context. By default it consists of well-known prefixes
+ * (rdf, rdfs, xsd, owl, foaf, dc, dcterms, skos, schema), custom one can be set using
+ * {@link #CONTEXT_PROPERTY}. IRIs which would be read as compact IRIs (like <code>foaf:name</code> when
+ * <code>foaf</code> prefix is defined) are written as is, local context of their node or graph object
+ * undefines the prefix.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link #CONTEXT_PROPERTY}</li>
+ *     </ul>
+ */
+public final class JsonLdSerializer extends Pipe<CharSink> implements QuadSink {
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Allows to specify prefixes of top-level @context. Map from prefix to namespace IRI must be passed
+     * as a value, prefixes are declared in map's iteration order.
+     */
+    public static final String CONTEXT_PROPERTY = "http://semarglproject.org/jsonld/properties/context";
+
+    private static final String EOL = "\n";
+    private static final String INDENT = "  ";
+
+    private static final Map<String, String> DEFAULT_CONTEXT = new LinkedHashMap<String, String>();
+
+    static {
+        DEFAULT_CONTEXT.put("rdf", RDF.NS);
+        DEFAULT_CONTEXT.put("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
+        DEFAULT_CONTEXT.put("xsd", "http://www.w3.org/2001/XMLSchema#");
+        DEFAULT_CONTEXT.put("owl", "http://www.w3.org/2002/07/owl#");
+        DEFAULT_CONTEXT.put("foaf", "http://xmlns.com/foaf/0.1/");
+        DEFAULT_CONTEXT.put("dc", "http://purl.org/dc/elements/1.1/");
+        DEFAULT_CONTEXT.put("dcterms", "http://purl.org/dc/terms/");
+        DEFAULT_CONTEXT.put("skos", "http://www.w3.org/2004/02/skos/core#");
+        DEFAULT_CONTEXT.put("schema", "http://schema.org/");
+    }
+
+    private Map<String, String> context = DEFAULT_CONTEXT;
+    private final Map<String, String> namespaces = new HashMap<String, String>();
+
+    // predicates written to current node object
+    private final Set<String> nodePredicates = new HashSet<String>();
+    // prefixes undefined by local contexts of current graph and node objects
+    private final Set<String> graphUndefinedPrefixes = new HashSet<String>();
+    private final Set<String> nodeUndefinedPrefixes = new LinkedHashSet<String>();
+
+    private boolean nodeOpened;
+    private boolean graphOpened;
+    private boolean firstNode;
+    private boolean firstGraphNode;
+    private String prevGraph;
+    private String prevSubj;
+    private String prevPred;
+
+    private JsonLdSerializer(CharSink sink) {
+        super(sink);
+        initNamespaces();
+    }
+
+    /**
+     * Creates instance of JsonLdSerializer connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of JsonLdSerializer
+     */
+    public static QuadSink connect(CharSink sink) {
+        return new JsonLdSerializer(sink);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        addNonLiteral(subj, pred, obj, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        addPlainLiteral(subj, pred, content, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        addTypedLiteral(subj, pred, content, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        try {
+            if (RDF.TYPE.equals(pred)) {
+                startValue(subj, JsonLd.TYPE_KEY, obj, graph);
+                serializeIri(obj);
+            } else {
+                startValue(subj, pred, obj, graph);
+                sink.process("{\"").process(JsonLd.ID_KEY).process("\": ");
+                serializeIri(obj);
+                sink.process('}');
+            }
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        try {
+            startValue(subj, pred, null, graph);
+            if (lang == null) {
+                serializeString(content);
+                return;
+            }
+            sink.process("{\"").process(JsonLd.VALUE_KEY).process("\": ");
+            serializeString(content);
+            sink.process(", \"").process(JsonLd.LANGUAGE_KEY).process("\": ");
+            serializeString(lang);
+            sink.process('}');
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        try {
+            startValue(subj, pred, type, graph);
+            sink.process("{\"").process(JsonLd.VALUE_KEY).process("\": ");
+            serializeString(content);
+            sink.process(", \"").process(JsonLd.TYPE_KEY).process("\": ");
+            serializeIri(type);
+            sink.process('}');
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        super.startStream();
+        nodeOpened = false;
+        graphOpened = false;
+        firstNode = true;
+        prevGraph = null;
+        prevSubj = null;
+        prevPred = null;
+        nodePredicates.clear();
+        graphUndefinedPrefixes.clear();
+        nodeUndefinedPrefixes.clear();
+        sink.process('{').process(EOL);
+        sink.process(INDENT).process('"').process(JsonLd.CONTEXT_KEY).process("\": {");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : context.entrySet()) {
+            if (!first) {
+                sink.process(',');
+            }
+            sink.process(EOL).process(INDENT).process(INDENT);
+            serializeString(entry.getKey());
+            sink.process(": ");
+            serializeString(entry.getValue());
+            first = false;
+        }
+        if (!first) {
+            sink.process(EOL).process(INDENT);
+        }
+        sink.process("},").process(EOL);
+        sink.process(INDENT).process('"').process(JsonLd.GRAPH_KEY).process("\": [");
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        closeNode();
+        closeGraph();
+        if (!firstNode) {
+            sink.process(EOL).process(INDENT);
+        }
+        sink.process(']').process(EOL).process('}').process(EOL);
+        super.endStream();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        if (CONTEXT_PROPERTY.equals(key) && value instanceof Map) {
+            context = new LinkedHashMap<String, String>((Map<String, String>) value);
+            initNamespaces();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    private void initNamespaces() {
+        namespaces.clear();
+        for (Map.Entry<String, String> entry : context.entrySet()) {
+            if (!namespaces.containsKey(entry.getValue())) {
+                namespaces.put(entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Opens graph, node and predicate array if necessary and writes value separator.
+     * Node is reopened if its local context doesn't undefine prefixes colliding with key or value.
+     * @param subj subject of current quad
+     * @param key predicate IRI or JSON-LD keyword
+     * @param value object or datatype IRI of current quad, null for plain literals
+     * @param graph graph of current quad
+     * @throws ParseException
+     */
+    private void startValue(String subj, String key, String value, String graph) throws ParseException {
+        boolean sameGraph = graph == null ? prevGraph == null : graph.equals(prevGraph);
+        boolean collides = getKeyPrefix(key) != null || value != null && getCollidingPrefix(value) != null;
+        if (nodeOpened && sameGraph && subj.equals(prevSubj) && key.equals(prevPred) && !collides) {
+            sink.process(", ");
+            return;
+        }
+        if (!sameGraph || !subj.equals(prevSubj) || nodePredicates.contains(key) || collides) {
+            closeNode();
+        }
+        if (!sameGraph) {
+            closeGraph();
+            if (graph != null) {
+                openGraph(graph);
+            }
+            prevGraph = graph;
+        }
+        if (nodeOpened) {
+            sink.process("],");
+        } else {
+            openNode(subj, key, value);
+        }
+        sink.process(EOL);
+        indent();
+        sink.process(INDENT).process(INDENT);
+        if (key.startsWith("@")) {
+            sink.process('"').process(key).process('"');
+        } else {
+            serializeIri(key);
+        }
+        sink.process(": [");
+        nodePredicates.add(key);
+        prevPred = key;
+    }
+
+    private void openGraph(String graph) throws ParseException {
+        startArrayItem(firstNode);
+        firstNode = false;
+        sink.process('{').process(EOL);
+        String prefix = getCollidingPrefix(graph);
+        if (prefix != null) {
+            sink.process(INDENT).process(INDENT).process(INDENT);
+            sink.process('"').process(JsonLd.CONTEXT_KEY).process("\": {");
+            serializeString(prefix);
+            sink.process(": null},").process(EOL);
+            graphUndefinedPrefixes.add(prefix);
+        }
+        sink.process(INDENT).process(INDENT).process(INDENT).process('"').process(JsonLd.ID_KEY).process("\": ");
+        serializeIri(graph);
+        sink.process(',').process(EOL);
+        sink.process(INDENT).process(INDENT).process(INDENT).process('"').process(JsonLd.GRAPH_KEY).process("\": [");
+        graphOpened = true;
+        firstGraphNode = true;
+    }
+
+    private void closeGraph() throws ParseException {
+        if (!graphOpened) {
+            return;
+        }
+        sink.process(EOL).process(INDENT).process(INDENT).process(INDENT).process(']');
+        sink.process(EOL).process(INDENT).process(INDENT).process('}');
+        graphOpened = false;
+        graphUndefinedPrefixes.clear();
+    }
+
+    private void openNode(String subj, String key, String value) throws ParseException {
+        if (graphOpened) {
+            startArrayItem(firstGraphNode);
+            firstGraphNode = false;
+        } else {
+            startArrayItem(firstNode);
+            firstNode = false;
+        }
+        sink.process('{').process(EOL);
+        undefinePrefix(getCollidingPrefix(subj));
+        undefinePrefix(getKeyPrefix(key));
+        if (value != null) {
+            undefinePrefix(getCollidingPrefix(value));
+        }
+        if (!nodeUndefinedPrefixes.isEmpty()) {
+            indent();
+            sink.process(INDENT).process(INDENT).process('"').process(JsonLd.CONTEXT_KEY).process("\": {");
+            boolean first = true;
+            for (String prefix : nodeUndefinedPrefixes) {
+                if (!first) {
+                    sink.process(", ");
+                }
+                serializeString(prefix);
+                sink.process(": null");
+                first = false;
+            }
+            sink.process("},").process(EOL);
+        }
+        indent();
+        sink.process(INDENT).process(INDENT).process('"').process(JsonLd.ID_KEY).process("\": ");
+        serializeIri(subj);
+        sink.process(',');
+        nodeOpened = true;
+        prevSubj = subj;
+    }
+
+    private void closeNode() throws ParseException {
+        if (!nodeOpened) {
+            return;
+        }
+        sink.process(']').process(EOL);
+        indent();
+        sink.process(INDENT).process('}');
+        nodeOpened = false;
+        prevSubj = null;
+        prevPred = null;
+        nodePredicates.clear();
+        nodeUndefinedPrefixes.clear();
+    }
+
+    private void startArrayItem(boolean first) throws ParseException {
+        if (!first) {
+            sink.process(',');
+        }
+        sink.process(EOL);
+        indent();
+        sink.process(INDENT);
+    }
+
+    private void indent() throws ParseException {
+        sink.process(INDENT);
+        if (graphOpened) {
+            sink.process(INDENT).process(INDENT);
+        }
+    }
+
+    private void undefinePrefix(String prefix) {
+        if (prefix != null) {
+            nodeUndefinedPrefixes.add(prefix);
+        }
+    }
+
+    private String getKeyPrefix(String key) {
+        return key.startsWith("@") ? null : getCollidingPrefix(key);
+    }
+
+    /**
+     * Finds context prefix which would turn absolute IRI into compact one after expansion
+     * in current graph and node objects
+     * @param iri IRI to check
+     * @return colliding prefix or null if IRI is read as is
+     */
+    private String getCollidingPrefix(String iri) {
+        int colon = iri.indexOf(':');
+        if (colon == -1 || iri.startsWith(RDF.BNODE_PREFIX) || iri.startsWith("//", colon + 1)
+                || compact(iri) != null) {
+            return null;
+        }
+        String prefix = iri.substring(0, colon);
+        return context.containsKey(prefix) && !isUndefined(prefix) ? prefix : null;
+    }
+
+    private boolean isUndefined(String prefix) {
+        return graphUndefinedPrefixes.contains(prefix) || nodeUndefinedPrefixes.contains(prefix);
+    }
+
+    private String compact(String iri) {
+        if (iri.startsWith(RDF.BNODE_PREFIX)) {
+            return null;
+        }
+        int localNameStart = Math.max(iri.lastIndexOf('#'), iri.lastIndexOf('/')) + 1;
+        if (localNameStart == 0 || localNameStart == iri.length()) {
+            return null;
+        }
+        String prefix = namespaces.get(iri.substring(0, localNameStart));
+        if (prefix == null || isUndefined(prefix)) {
+            return null;
+        }
+        return prefix + ':' + iri.substring(localNameStart);
+    }
+
+    private void serializeIri(String iri) throws ParseException {
+        String compacted = compact(iri);
+        serializeString(compacted == null ? iri : compacted);
+    }
+
+    private void serializeString(String str) throws ParseException {
+        sink.process('"');
+        escape(str);
+        sink.process('"');
+    }
+
+    private void escape(String str) throws ParseException {
+        int length = str.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = str.charAt(i);
+            if (ch >= 0x20 && ch != '"' && ch != '\\' && ch != '\u2028' && ch != '\u2029') {
+                continue;
+            }
+            if (start < i) {
+                sink.process(str.substring(start, i));
+            }
+            start = i + 1;
+            switch (ch) {
+                case '"':
+                    sink.process("\\\"");
+                    break;
+                case '\\':
+                    sink.process("\\\\");
+                    break;
+                case '\n':
+                    sink.process("\\n");
+                    break;
+                case '\r':
+                    sink.process("\\r");
+                    break;
+                case '\t':
+                    sink.process("\\t");
+                    break;
+                case '\b':
+                    sink.process("\\b");
+                    break;
+                case '\f':
+                    sink.process("\\f");
+                    break;
+                default:
+                    String hex = Integer.toHexString(ch);
+                    sink.process("\\u");
+                    for (int j = hex.length(); j < 4; j++) {
+                        sink.process('0');
+                    }
+                    sink.process(hex);
+            }
+        }
+        if (start == 0) {
+            sink.process(str);
+        } else if (start < length) {
+            sink.process(str.substring(start));
+        }
+    }
+}
@@ -22,9 +22,12 @@ import org.openrdf.model.util.ModelUtil;
 import org.semarglproject.rdf.NQuadsSerializer;
 import org.semarglproject.rdf.ParseException;
 import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.QuadSink;
 import org.semarglproject.source.StreamProcessor;
 import org.semarglproject.test.SesameTestHelper;
 import org.semarglproject.test.TestNGHelper;
+import org.semarglproject.vocab.RDF;
+import org.semarglproject.vocab.XSD;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -37,8 +40,13 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -58,6 +66,7 @@ public class JsonLdParserTest {
 
     private CharOutputSink charOutputSink;
     private StreamProcessor streamProcessor;
+    private StreamProcessor roundTripProcessor;
     private SesameTestHelper sth;
 
     @BeforeClass
@@ -71,6 +80,13 @@ public class JsonLdParserTest {
         charOutputSink.connect(System.out);
 
         streamProcessor = new StreamProcessor(JsonLdParser.connect(NQuadsSerializer.connect(charOutputSink)));
+        roundTripProcessor = new StreamProcessor(JsonLdParser.connect(JsonLdSerializer.connect(charOutputSink)));
+        Map<String, String> context = new LinkedHashMap<String, String>();
+        context.put("rdf", RDF.NS);
+        context.put("xsd", XSD.NS);
+        context.put("excom", "http://example.com/");
+        context.put("exorg", "http://example.org/");
+        roundTripProcessor.setProperty(JsonLdSerializer.CONTEXT_PROPERTY, context);
     }
 
     @DataProvider
@@ -96,8 +112,59 @@ public class JsonLdParserTest {
         });
     }
 
+    @Test(dataProvider = "getTestSuite")
+    public void runWithJsonLdSink(TestCase testCase) throws IOException {
+        runTest(testCase, "jsonld.nq", new SaveToFileCallback() {
+            @Override
+            public void run(Reader input, String inputUri, Writer output) throws ParseException {
+                StringWriter jsonLd = new StringWriter();
+                charOutputSink.connect(jsonLd);
+                roundTripProcessor.process(input, inputUri);
+                charOutputSink.connect(output);
+                streamProcessor.process(new StringReader(jsonLd.toString()), inputUri);
+            }
+        });
+    }
+
+    @Test
+    public void runWithIrisCollidingWithPrefixes() throws ParseException {
+        String[] quads = {
+                "<foaf:bob> <http://xmlns.com/foaf/0.1/name> \"Bob\" .",
+                "<foaf:bob> <schema:name> \"Bob\" .",
+                "<http://example.org/s> <http://xmlns.com/foaf/0.1/knows> <foaf:bob> .",
+                "<http://example.org/s> <schema:knows> <http://xmlns.com/foaf/0.1/Person> .",
+                "<http://example.org/s> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <foaf:Person> .",
+                "<http://example.org/s> <http://xmlns.com/foaf/0.1/age> \"1\"^^<xsd:int> .",
+                "<http://example.org/s> <http://xmlns.com/foaf/0.1/name> \"S\" <dc:g> .",
+                "<foaf:bob> <http://xmlns.com/foaf/0.1/name> \"Bob\" <dc:g> ."
+        };
+        StringWriter jsonLd = new StringWriter();
+        charOutputSink.connect(jsonLd);
+        QuadSink serializer = JsonLdSerializer.connect(charOutputSink);
+        serializer.startStream();
+        serializer.addPlainLiteral("foaf:bob", "http://xmlns.com/foaf/0.1/name", "Bob", null);
+        serializer.addPlainLiteral("foaf:bob", "schema:name", "Bob", null);
+        serializer.addNonLiteral("http://example.org/s", "http://xmlns.com/foaf/0.1/knows", "foaf:bob");
+        serializer.addNonLiteral("http://example.org/s", "schema:knows", "http://xmlns.com/foaf/0.1/Person");
+        serializer.addNonLiteral("http://example.org/s", RDF.TYPE, "foaf:Person");
+        serializer.addTypedLiteral("http://example.org/s", "http://xmlns.com/foaf/0.1/age", "1", "xsd:int");
+        serializer.addPlainLiteral("http://example.org/s", "http://xmlns.com/foaf/0.1/name", "S", null, "dc:g");
+        serializer.addPlainLiteral("foaf:bob", "http://xmlns.com/foaf/0.1/name", "Bob", null, "dc:g");
+        serializer.endStream();
+
+        StringWriter nquads = new StringWriter();
+        charOutputSink.connect(nquads);
+        streamProcessor.process(new StringReader(jsonLd.toString()), "http://example.org/");
+        assertEquals(new HashSet<String>(Arrays.asList(nquads.toString().trim().split("\n"))),
+                new HashSet<String>(Arrays.asList(quads)), jsonLd.toString());
+    }
+
     public void runTest(TestCase testCase, SaveToFileCallback callback) throws IOException {
-        String resultFilePath = sth.getOutputPath(testCase.input, "nq");
+        runTest(testCase, "nq", callback);
+    }
+
+    public void runTest(TestCase testCase, String outputExt, SaveToFileCallback callback) throws IOException {
+        String resultFilePath = sth.getOutputPath(testCase.input, outputExt);
         new File(resultFilePath).getParentFile().mkdirs();
 
         try {
@@ -0,0 +1,1278 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.ri.MalformedIriException;
+import org.semarglproject.ri.RIUtils;
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.Pipe;
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.source.StreamProcessor;
+import org.semarglproject.vocab.RDF;
+import org.semarglproject.vocab.XSD;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of streaming <a href="http://www.w3.org/TR/turtle/">Turtle</a> and
+ * <a href="http://www.w3.org/TR/trig/">TriG</a> parsers. Input is tokenized char by char, tokens drive
+ * grammar state machine which keeps state of enclosing blank node property lists and collections in a stack,
+ * so memory usage depends on nesting depth and count of declared prefixes only.
+ * <br>
+ * Blank nodes of anonymous and property list nodes are marked as shortenable. Labels which can collide
+ * with generated ones are prefixed by 'x'.
+ */
+abstract class AbstractTurtleParser extends Pipe<TripleSink> implements CharSink {
+
+    // tokenizer states
+    private static final short TOKEN_OUTSIDE = 0;
+    private static final short TOKEN_IRI = 1;
+    private static final short TOKEN_WORD = 2;
+    private static final short TOKEN_QUOTE = 3;
+    private static final short TOKEN_DOUBLE_QUOTE = 4;
+    private static final short TOKEN_STRING = 5;
+    private static final short TOKEN_LONG_STRING = 6;
+    private static final short TOKEN_COMMENT = 7;
+    private static final short TOKEN_CARET = 8;
+
+    // grammar states
+    private static final short EXPECTING_STATEMENT = 0;
+    private static final short EXPECTING_PREFIX_NAME = 1;
+    private static final short EXPECTING_PREFIX_IRI = 2;
+    private static final short EXPECTING_BASE_IRI = 3;
+    private static final short EXPECTING_DIRECTIVE_END = 4;
+    private static final short EXPECTING_GRAPH_LABEL = 5;
+    private static final short EXPECTING_GRAPH_START = 6;
+    private static final short EXPECTING_PREDICATE = 7;
+    private static final short EXPECTING_OPTIONAL_PREDICATE = 8;
+    private static final short EXPECTING_OBJECT = 9;
+    private static final short AFTER_OBJECT = 10;
+    private static final short EXPECTING_LIST_ITEM = 11;
+
+    // what to do with node produced by closed frame
+    private static final short RETURN_TO_SUBJECT = 0;
+    private static final short RETURN_TO_OBJECT = 1;
+    private static final short RETURN_TO_LIST = 2;
+    private static final short RETURN_TO_GRAPH_LABEL = 3;
+
+    private static final char SENTENCE_END = '.';
+    private static final char DATATYPE_MARK = '^';
+
+    private static final String BNODE_LABEL_PREFIX = "_:";
+    private static final String PREFIX_DIRECTIVE = "@prefix";
+    private static final String BASE_DIRECTIVE = "@base";
+    private static final String SPARQL_PREFIX = "PREFIX";
+    private static final String SPARQL_BASE = "BASE";
+    private static final String GRAPH_KEYWORD = "GRAPH";
+
+    private static final BitSet WHITESPACE = new BitSet();
+    private static final BitSet WORD_DELIMITER = new BitSet();
+    private static final BitSet IRI_FORBIDDEN = new BitSet();
+    private static final BitSet LOCAL_NAME_ESCAPABLE = new BitSet();
+
+    static {
+        WHITESPACE.set('\t');
+        WHITESPACE.set(' ');
+        WHITESPACE.set('\r');
+        WHITESPACE.set('\n');
+
+        WORD_DELIMITER.or(WHITESPACE);
+        for (char ch : "<>\"'{}()[],;#^".toCharArray()) {
+            WORD_DELIMITER.set(ch);
+        }
+
+        IRI_FORBIDDEN.set(0, ' ' + 1);
+        for (char ch : "<>\"{}|^`\\".toCharArray()) {
+            IRI_FORBIDDEN.set(ch);
+        }
+
+        for (char ch : "_~.-!$&'()*+,;=/?#@%".toCharArray()) {
+            LOCAL_NAME_ESCAPABLE.set(ch);
+        }
+    }
+
+    private final String errorClass;
+    private final boolean graphsAllowed;
+
+    private ProcessorGraphHandler processorGraphHandler = null;
+    private boolean ignoreErrors = false;
+    private boolean skipSentence = false;
+
+    private final StringBuilder token = new StringBuilder();
+    private short tokenState;
+    private char quoteChar;
+    private int quoteCount;
+    private boolean escaped;
+
+    private short state;
+    private String subj;
+    private String pred;
+    private String graph;
+    private boolean insideGraph;
+    private boolean labelCandidate;
+    private String graphLabel;
+
+    private String pendingLiteral;
+    private boolean expectingDatatype;
+
+    private String prefixName;
+    private boolean sparqlDirective;
+
+    private String baseUri;
+    private final Map<String, String> prefixes = new HashMap<String, String>();
+    private int nextBnodeId;
+
+    private final List<Frame> frames = new ArrayList<Frame>();
+    private int depth;
+
+    // set when error is thrown, so end of stream doesn't report another one
+    private boolean fatalError;
+
+    AbstractTurtleParser(TripleSink sink, String errorClass, boolean graphsAllowed) {
+        super(sink);
+        this.errorClass = errorClass;
+        this.graphsAllowed = graphsAllowed;
+    }
+
+    private void error(String msg) throws ParseException {
+        if (skipSentence) {
+            return;
+        }
+        if (processorGraphHandler != null) {
+            processorGraphHandler.error(errorClass, msg);
+        }
+        if (!ignoreErrors) {
+            fatalError = true;
+            throw new ParseException(msg);
+        } else {
+            skipSentence = true;
+            resetStatement();
+        }
+    }
+
+    @Override
+    public final CharSink process(String str) throws ParseException {
+        return process(str.toCharArray(), 0, str.length());
+    }
+
+    @Override
+    public final CharSink process(char ch) throws ParseException {
+        processChar(ch);
+        return this;
+    }
+
+    @Override
+    public final CharSink process(char[] buffer, int start, int count) throws ParseException {
+        int end = start + count;
+        for (int pos = start; pos < end; pos++) {
+            processChar(buffer[pos]);
+        }
+        return this;
+    }
+
+    private void processChar(char ch) throws ParseException {
+        switch (tokenState) {
+            case TOKEN_OUTSIDE:
+                processOutsideChar(ch);
+                break;
+            case TOKEN_COMMENT:
+                if (ch == '\n' || ch == '\r') {
+                    tokenState = TOKEN_OUTSIDE;
+                }
+                break;
+            case TOKEN_IRI:
+                if (ch == '>') {
+                    tokenState = TOKEN_OUTSIDE;
+                    onIriRef(unescapeIri(token));
+                } else if (WHITESPACE.get(ch)) {
+                    tokenState = TOKEN_OUTSIDE;
+                    error("Unexpected whitespace in IRI");
+                } else {
+                    token.append(ch);
+                }
+                break;
+            case TOKEN_WORD:
+                if (escaped) {
+                    token.append(ch);
+                    escaped = false;
+                } else if (WORD_DELIMITER.get(ch) || ch == ':' && isColonDelimiter()) {
+                    tokenState = TOKEN_OUTSIDE;
+                    finishWord();
+                    processOutsideChar(ch);
+                } else if (token.length() == 1 && token.charAt(0) == SENTENCE_END && (ch < '0' || ch > '9')) {
+                    // only numbers can start with dot
+                    tokenState = TOKEN_OUTSIDE;
+                    onPunctuation(SENTENCE_END);
+                    processOutsideChar(ch);
+                } else {
+                    escaped = ch == '\\';
+                    token.append(ch);
+                }
+                break;
+            case TOKEN_QUOTE:
+                if (ch == quoteChar) {
+                    tokenState = TOKEN_DOUBLE_QUOTE;
+                } else {
+                    tokenState = TOKEN_STRING;
+                    processStringChar(ch);
+                }
+                break;
+            case TOKEN_DOUBLE_QUOTE:
+                if (ch == quoteChar) {
+                    tokenState = TOKEN_LONG_STRING;
+                    quoteCount = 0;
+                } else {
+                    tokenState = TOKEN_OUTSIDE;
+                    onString("");
+                    processOutsideChar(ch);
+                }
+                break;
+            case TOKEN_STRING:
+                processStringChar(ch);
+                break;
+            case TOKEN_LONG_STRING:
+                processLongStringChar(ch);
+                break;
+            case TOKEN_CARET:
+                tokenState = TOKEN_OUTSIDE;
+                if (ch == DATATYPE_MARK) {
+                    onPunctuation(DATATYPE_MARK);
+                } else {
+                    error("Unexpected character '^'");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void processOutsideChar(char ch) throws ParseException {
+        if (WHITESPACE.get(ch)) {
+            return;
+        }
+        token.setLength(0);
+        switch (ch) {
+            case '#':
+                tokenState = TOKEN_COMMENT;
+                break;
+            case '<':
+                tokenState = TOKEN_IRI;
+                break;
+            case '"':
+            case '\'':
+                tokenState = TOKEN_QUOTE;
+                quoteChar = ch;
+                escaped = false;
+                break;
+            case DATATYPE_MARK:
+                tokenState = TOKEN_CARET;
+                break;
+            case ',':
+            case ';':
+            case '[':
+            case ']':
+            case '(':
+            case ')':
+            case '{':
+            case '}':
+                onPunctuation(ch);
+                break;
+            case '>':
+                error("Unexpected character '>'");
+                break;
+            default:
+                tokenState = TOKEN_WORD;
+                escaped = ch == '\\';
+                token.append(ch);
+        }
+    }
+
+    private void processStringChar(char ch) throws ParseException {
+        if (escaped) {
+            escaped = false;
+        } else if (ch == '\\') {
+            escaped = true;
+        } else if (ch == quoteChar) {
+            tokenState = TOKEN_OUTSIDE;
+            onString(unescapeString(token));
+            return;
+        } else if (ch == '\n' || ch == '\r') {
+            tokenState = TOKEN_OUTSIDE;
+            error("Line break in short string");
+            return;
+        }
+        token.append(ch);
+    }
+
+    private void processLongStringChar(char ch) throws ParseException {
+        if (escaped) {
+            escaped = false;
+            quoteCount = 0;
+        } else if (ch == '\\') {
+            escaped = true;
+            quoteCount = 0;
+        } else if (ch == quoteChar) {
+            quoteCount++;
+            if (quoteCount == 3) {
+                tokenState = TOKEN_OUTSIDE;
+                token.setLength(token.length() - 2);
+                onString(unescapeString(token));
+                return;
+            }
+        } else {
+            quoteCount = 0;
+        }
+        token.append(ch);
+    }
+
+    /**
+     * Colon can't be a part of directives, language tags and blank node labels, so it starts next token
+     */
+    private boolean isColonDelimiter() {
+        return token.charAt(0) == '@' || token.length() > 2 && token.charAt(0) == '_' && token.charAt(1) == ':';
+    }
+
+    /**
+     * Splits trailing dots from word since they can't end prefixed names and numbers
+     * @throws ParseException
+     */
+    private void finishWord() throws ParseException {
+        int end = token.length();
+        while (end > 0 && token.charAt(end - 1) == SENTENCE_END && (end == 1 || token.charAt(end - 2) != '\\')) {
+            end--;
+        }
+        int dots = token.length() - end;
+        if (end > 0) {
+            token.setLength(end);
+            onWord(token.toString());
+        }
+        for (int i = 0; i < dots; i++) {
+            onPunctuation(SENTENCE_END);
+        }
+    }
+
+    // grammar
+
+    private void onString(String value) throws ParseException {
+        if (skipSentence) {
+            return;
+        }
+        flushLiteral();
+        if (state != EXPECTING_OBJECT && state != EXPECTING_LIST_ITEM) {
+            error("Literal is not an object");
+            return;
+        }
+        pendingLiteral = value;
+    }
+
+    /**
+     * Emits pending literal if it wasn't followed by language tag or datatype
+     * @return true if literal is waiting for datatype
+     * @throws ParseException
+     */
+    private boolean flushLiteral() throws ParseException {
+        if (expectingDatatype) {
+            expectingDatatype = false;
+            pendingLiteral = null;
+            error("Datatype IRI expected");
+            return true;
+        }
+        if (pendingLiteral != null) {
+            String value = pendingLiteral;
+            pendingLiteral = null;
+            onLiteral(value, null, null);
+        }
+        return false;
+    }
+
+    private void onIriRef(String iri) throws ParseException {
+        if (skipSentence || iri == null) {
+            return;
+        }
+        String resolved = iri;
+        try {
+            if (!hasScheme(iri)) {
+                resolved = RIUtils.resolveIri(baseUri, iri);
+            }
+        } catch (MalformedIriException e) {
+            error("Malformed IRI: " + iri);
+            return;
+        }
+        onIri(resolved);
+    }
+
+    private void onIri(String iri) throws ParseException {
+        if (expectingDatatype) {
+            String value = pendingLiteral;
+            expectingDatatype = false;
+            pendingLiteral = null;
+            onLiteral(value, null, iri);
+            return;
+        }
+        flushLiteral();
+        switch (state) {
+            case EXPECTING_PREFIX_IRI:
+                prefixes.put(prefixName, iri);
+                state = sparqlDirective ? EXPECTING_STATEMENT : EXPECTING_DIRECTIVE_END;
+                break;
+            case EXPECTING_BASE_IRI:
+                baseUri = iri;
+                state = sparqlDirective ? EXPECTING_STATEMENT : EXPECTING_DIRECTIVE_END;
+                break;
+            case EXPECTING_PREDICATE:
+            case EXPECTING_OPTIONAL_PREDICATE:
+                onPredicate(iri);
+                break;
+            default:
+                onNode(iri);
+        }
+    }
+
+    private void onPredicate(String iri) {
+        pred = iri;
+        labelCandidate = false;
+        if (depth > 0) {
+            frames.get(depth - 1).hasProperties = true;
+        }
+        state = EXPECTING_OBJECT;
+    }
+
+    private void onNode(String node) throws ParseException {
+        switch (state) {
+            case EXPECTING_STATEMENT:
+                subj = node;
+                labelCandidate = graphsAllowed && !insideGraph;
+                state = EXPECTING_PREDICATE;
+                break;
+            case EXPECTING_OBJECT:
+                addNonLiteral(subj, pred, node);
+                state = AFTER_OBJECT;
+                break;
+            case EXPECTING_LIST_ITEM:
+                addNonLiteral(addListNode(depth - 1), RDF.FIRST, node);
+                break;
+            case EXPECTING_GRAPH_LABEL:
+                graphLabel = node;
+                state = EXPECTING_GRAPH_START;
+                break;
+            case EXPECTING_PREDICATE:
+            case EXPECTING_OPTIONAL_PREDICATE:
+                error("Predicate must be an IRI");
+                break;
+            default:
+                error("Unexpected term " + node);
+        }
+    }
+
+    private void onLiteral(String value, String lang, String type) throws ParseException {
+        if (state == EXPECTING_OBJECT) {
+            addLiteral(subj, pred, value, lang, type);
+            state = AFTER_OBJECT;
+        } else if (state == EXPECTING_LIST_ITEM) {
+            addLiteral(addListNode(depth - 1), RDF.FIRST, value, lang, type);
+        } else {
+            error("Literal is not an object");
+        }
+    }
+
+    private void onWord(String word) throws ParseException {
+        if (skipSentence) {
+            return;
+        }
+        if (pendingLiteral != null && !expectingDatatype && word.charAt(0) == '@') {
+            if (!isLangTag(word)) {
+                error("Malformed language tag " + word);
+                return;
+            }
+            String value = pendingLiteral;
+            pendingLiteral = null;
+            onLiteral(value, word.substring(1), null);
+            return;
+        }
+        if (expectingDatatype && word.indexOf(':') != -1 && !word.startsWith(BNODE_LABEL_PREFIX)) {
+            onPrefixedName(word);
+            return;
+        }
+        if (flushLiteral()) {
+            return;
+        }
+        if (state == EXPECTING_STATEMENT) {
+            if (onDirective(word)) {
+                return;
+            }
+        } else if (state == EXPECTING_PREFIX_NAME) {
+            int colon = word.length() - 1;
+            if (word.charAt(colon) != ':' || !isPrefix(word, colon)) {
+                error("Malformed prefix " + word);
+                return;
+            }
+            prefixName = word.substring(0, colon);
+            state = EXPECTING_PREFIX_IRI;
+            return;
+        }
+        if (word.equals("a")) {
+            if (state == EXPECTING_PREDICATE || state == EXPECTING_OPTIONAL_PREDICATE) {
+                onPredicate(RDF.TYPE);
+            } else {
+                error("Unexpected keyword 'a'");
+            }
+        } else if (word.equals("true") || word.equals("false")) {
+            onLiteral(word, null, XSD.BOOLEAN);
+        } else if (word.startsWith(BNODE_LABEL_PREFIX)) {
+            if (!isBnodeLabel(word)) {
+                error("Malformed blank node label " + word);
+            } else {
+                onNode(RDF.BNODE_PREFIX + escapeBnodeLabel(word));
+            }
+        } else if (word.indexOf(':') != -1) {
+            onPrefixedName(word);
+        } else {
+            String type = getNumberType(word);
+            if (type == null) {
+                error("Unexpected token " + word);
+            } else {
+                onLiteral(word, null, type);
+            }
+        }
+    }
+
+    private boolean onDirective(String word) throws ParseException {
+        boolean prefix = word.equals(PREFIX_DIRECTIVE) || word.equalsIgnoreCase(SPARQL_PREFIX);
+        boolean base = word.equals(BASE_DIRECTIVE) || word.equalsIgnoreCase(SPARQL_BASE);
+        if (prefix || base) {
+            if (insideGraph) {
+                error("Directives are not allowed inside graphs");
+                return true;
+            }
+            sparqlDirective = word.charAt(0) != '@';
+            state = prefix ? EXPECTING_PREFIX_NAME : EXPECTING_BASE_IRI;
+            return true;
+        }
+        if (graphsAllowed && !insideGraph && word.equalsIgnoreCase(GRAPH_KEYWORD)) {
+            state = EXPECTING_GRAPH_LABEL;
+            return true;
+        }
+        if (word.charAt(0) == '@') {
+            error("Unknown directive " + word);
+            return true;
+        }
+        return false;
+    }
+
+    private void onPrefixedName(String word) throws ParseException {
+        int colon = word.indexOf(':');
+        if (!isPrefix(word, colon)) {
+            error("Malformed prefixed name " + word);
+            return;
+        }
+        String namespace = prefixes.get(word.substring(0, colon));
+        if (namespace == null) {
+            error("Undefined prefix in " + word);
+            return;
+        }
+        String localName = unescapeLocalName(word, colon + 1);
+        if (localName != null) {
+            onIri(namespace + localName);
+        }
+    }
+
+    private void onPunctuation(char ch) throws ParseException {
+        if (skipSentence) {
+            if (ch == SENTENCE_END) {
+                skipSentence = false;
+            } else if (ch == '}' && insideGraph) {
+                skipSentence = false;
+                insideGraph = false;
+                graph = null;
+            }
+            return;
+        }
+        if (ch == DATATYPE_MARK) {
+            if (pendingLiteral == null || expectingDatatype) {
+                error("Unexpected '^^'");
+            } else {
+                expectingDatatype = true;
+            }
+            return;
+        }
+        if (flushLiteral()) {
+            return;
+        }
+        switch (ch) {
+            case SENTENCE_END:
+                onSentenceEnd();
+                break;
+            case ',':
+                if (state == AFTER_OBJECT) {
+                    state = EXPECTING_OBJECT;
+                } else {
+                    error("Unexpected ','");
+                }
+                break;
+            case ';':
+                if (state == AFTER_OBJECT || state == EXPECTING_OPTIONAL_PREDICATE
+                        && (depth == 0 || frames.get(depth - 1).hasProperties)) {
+                    state = EXPECTING_OPTIONAL_PREDICATE;
+                } else {
+                    error("Unexpected ';'");
+                }
+                break;
+            case '[':
+                openPropertyList();
+                break;
+            case ']':
+                closePropertyList();
+                break;
+            case '(':
+                openList();
+                break;
+            case ')':
+                closeList();
+                break;
+            case '{':
+                openGraph();
+                break;
+            case '}':
+                closeGraph();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onSentenceEnd() throws ParseException {
+        if (state == EXPECTING_DIRECTIVE_END) {
+            state = EXPECTING_STATEMENT;
+        } else if (depth == 0 && (state == AFTER_OBJECT || state == EXPECTING_OPTIONAL_PREDICATE)) {
+            state = EXPECTING_STATEMENT;
+            subj = null;
+            pred = null;
+        } else {
+            error("Unexpected end of sentence");
+            skipSentence = false;
+        }
+    }
+
+    private void openPropertyList() throws ParseException {
+        String node = createBnode(true);
+        short returnTo;
+        if (state == EXPECTING_STATEMENT) {
+            returnTo = RETURN_TO_SUBJECT;
+        } else if (state == EXPECTING_OBJECT) {
+            addNonLiteral(subj, pred, node);
+            returnTo = RETURN_TO_OBJECT;
+        } else if (state == EXPECTING_LIST_ITEM) {
+            addNonLiteral(addListNode(depth - 1), RDF.FIRST, node);
+            returnTo = RETURN_TO_LIST;
+        } else if (state == EXPECTING_GRAPH_LABEL) {
+            returnTo = RETURN_TO_GRAPH_LABEL;
+        } else {
+            error("Unexpected '['");
+            return;
+        }
+        pushFrame(false, returnTo);
+        subj = node;
+        state = EXPECTING_OPTIONAL_PREDICATE;
+    }
+
+    private void closePropertyList() throws ParseException {
+        if (depth == 0 || frames.get(depth - 1).list
+                || state != AFTER_OBJECT && state != EXPECTING_OPTIONAL_PREDICATE) {
+            error("Unexpected ']'");
+            return;
+        }
+        Frame frame = frames.get(--depth);
+        String node = subj;
+        subj = frame.subj;
+        pred = frame.pred;
+        switch (frame.returnTo) {
+            case RETURN_TO_SUBJECT:
+                subj = node;
+                labelCandidate = graphsAllowed && !insideGraph && !frame.hasProperties;
+                state = frame.hasProperties ? EXPECTING_OPTIONAL_PREDICATE : EXPECTING_PREDICATE;
+                break;
+            case RETURN_TO_OBJECT:
+                state = AFTER_OBJECT;
+                break;
+            case RETURN_TO_LIST:
+                state = EXPECTING_LIST_ITEM;
+                break;
+            default:
+                if (frame.hasProperties) {
+                    error("Graph label must be a blank node or IRI");
+                } else {
+                    graphLabel = node;
+                    state = EXPECTING_GRAPH_START;
+                }
+        }
+    }
+
+    private void openList() throws ParseException {
+        short returnTo;
+        if (state == EXPECTING_STATEMENT) {
+            returnTo = RETURN_TO_SUBJECT;
+        } else if (state == EXPECTING_OBJECT) {
+            returnTo = RETURN_TO_OBJECT;
+        } else if (state == EXPECTING_LIST_ITEM) {
+            returnTo = RETURN_TO_LIST;
+        } else {
+            error("Unexpected '('");
+            return;
+        }
+        pushFrame(true, returnTo);
+        state = EXPECTING_LIST_ITEM;
+    }
+
+    private void closeList() throws ParseException {
+        if (state != EXPECTING_LIST_ITEM) {
+            error("Unexpected ')'");
+            return;
+        }
+        Frame frame = frames.get(depth - 1);
+        if (frame.listNode == null) {
+            linkListHead(depth - 1, RDF.NIL);
+        } else {
+            addNonLiteral(frame.listNode, RDF.REST, RDF.NIL);
+        }
+        depth--;
+        subj = frame.subj;
+        pred = frame.pred;
+        if (frame.returnTo == RETURN_TO_SUBJECT) {
+            labelCandidate = false;
+            state = EXPECTING_PREDICATE;
+        } else if (frame.returnTo == RETURN_TO_OBJECT) {
+            state = AFTER_OBJECT;
+        } else {
+            state = EXPECTING_LIST_ITEM;
+        }
+    }
+
+    /**
+     * Appends node to list of specified frame
+     * @param frameIndex index of list frame
+     * @return list node which should be used as subject of rdf:first triple
+     */
+    private String addListNode(int frameIndex) {
+        Frame frame = frames.get(frameIndex);
+        String node = createBnode(false);
+        if (frame.listNode == null) {
+            linkListHead(frameIndex, node);
+        } else {
+            addNonLiteral(frame.listNode, RDF.REST, node);
+        }
+        frame.listNode = node;
+        return node;
+    }
+
+    private void linkListHead(int frameIndex, String head) {
+        Frame frame = frames.get(frameIndex);
+        if (frame.returnTo == RETURN_TO_SUBJECT) {
+            frame.subj = head;
+        } else if (frame.returnTo == RETURN_TO_OBJECT) {
+            addNonLiteral(frame.subj, frame.pred, head);
+        } else {
+            addNonLiteral(addListNode(frameIndex - 1), RDF.FIRST, head);
+        }
+    }
+
+    private void openGraph() throws ParseException {
+        if (!graphsAllowed) {
+            error("Graphs are not allowed");
+        } else if (state == EXPECTING_STATEMENT && !insideGraph) {
+            startGraph(null);
+        } else if (state == EXPECTING_PREDICATE && labelCandidate && depth == 0) {
+            startGraph(subj);
+        } else if (state == EXPECTING_GRAPH_START) {
+            startGraph(graphLabel);
+        } else {
+            error("Unexpected '{'");
+        }
+    }
+
+    private void startGraph(String label) {
+        graph = label;
+        insideGraph = true;
+        subj = null;
+        state = EXPECTING_STATEMENT;
+    }
+
+    private void closeGraph() throws ParseException {
+        if (!insideGraph || depth > 0
+                || state != EXPECTING_STATEMENT && state != AFTER_OBJECT && state != EXPECTING_OPTIONAL_PREDICATE) {
+            error("Unexpected '}'");
+            return;
+        }
+        insideGraph = false;
+        graph = null;
+        subj = null;
+        pred = null;
+        state = EXPECTING_STATEMENT;
+    }
+
+    private void pushFrame(boolean list, short returnTo) {
+        if (depth == frames.size()) {
+            frames.add(new Frame());
+        }
+        Frame frame = frames.get(depth++);
+        frame.list = list;
+        frame.returnTo = returnTo;
+        frame.subj = subj;
+        frame.pred = pred;
+        frame.listNode = null;
+        frame.hasProperties = false;
+    }
+
+    private String createBnode(boolean shortenable) {
+        if (shortenable) {
+            return RDF.BNODE_PREFIX + 'n' + (nextBnodeId++) + RDF.SHORTENABLE_BNODE_SUFFIX;
+        }
+        return RDF.BNODE_PREFIX + 'n' + nextBnodeId++;
+    }
+
+    /**
+     * Maps document's blank node labels to labels which can't collide with generated ones
+     * and contain only ASCII letters and digits.
+     * @param word blank node label with '_:' prefix
+     * @return escaped label
+     */
+    private static String escapeBnodeLabel(String word) {
+        boolean alphanumeric = isAsciiLetter(word.charAt(2));
+        for (int i = 3; i < word.length() && alphanumeric; i++) {
+            char ch = word.charAt(i);
+            alphanumeric = isAsciiLetter(ch) || ch >= '0' && ch <= '9';
+        }
+        if (!alphanumeric) {
+            StringBuilder result = new StringBuilder("xu");
+            for (int i = 2; i < word.length(); i++) {
+                String code = Integer.toHexString(word.charAt(i));
+                for (int j = code.length(); j < 4; j++) {
+                    result.append('0');
+                }
+                result.append(code);
+            }
+            return result.toString();
+        }
+        char first = word.charAt(2);
+        if (first == 'x' || first == 'n' && word.length() > 3 && word.charAt(3) >= '0' && word.charAt(3) <= '9') {
+            return 'x' + word.substring(2);
+        }
+        return word.substring(2);
+    }
+
+    private void addNonLiteral(String subj, String pred, String obj) {
+        if (graph == null) {
+            sink.addNonLiteral(subj, pred, obj);
+        } else {
+            ((QuadSink) sink).addNonLiteral(subj, pred, obj, graph);
+        }
+    }
+
+    private void addLiteral(String subj, String pred, String value, String lang, String type) {
+        if (type != null) {
+            if (graph == null) {
+                sink.addTypedLiteral(subj, pred, value, type);
+            } else {
+                ((QuadSink) sink).addTypedLiteral(subj, pred, value, type, graph);
+            }
+        } else if (graph == null) {
+            sink.addPlainLiteral(subj, pred, value, lang);
+        } else {
+            ((QuadSink) sink).addPlainLiteral(subj, pred, value, lang, graph);
+        }
+    }
+
+    private void resetStatement() {
+        depth = 0;
+        subj = null;
+        pred = null;
+        pendingLiteral = null;
+        expectingDatatype = false;
+        labelCandidate = false;
+        state = EXPECTING_STATEMENT;
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        if (StreamProcessor.PROCESSOR_GRAPH_HANDLER_PROPERTY.equals(key) && value instanceof ProcessorGraphHandler) {
+            processorGraphHandler = (ProcessorGraphHandler) value;
+        } else if (StreamProcessor.ENABLE_ERROR_RECOVERY.equals(key) && value instanceof Boolean) {
+            ignoreErrors = (Boolean) value;
+        }
+        return false;
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        super.startStream();
+        tokenState = TOKEN_OUTSIDE;
+        token.setLength(0);
+        skipSentence = false;
+        fatalError = false;
+        insideGraph = false;
+        graph = null;
+        prefixes.clear();
+        nextBnodeId = 0;
+        resetStatement();
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        if (fatalError) {
+            super.endStream();
+            return;
+        }
+        if (tokenState == TOKEN_WORD) {
+            tokenState = TOKEN_OUTSIDE;
+            finishWord();
+        } else if (tokenState == TOKEN_DOUBLE_QUOTE) {
+            tokenState = TOKEN_OUTSIDE;
+            onString("");
+        }
+        if (!skipSentence) {
+            flushLiteral();
+        }
+        if (tokenState != TOKEN_OUTSIDE && tokenState != TOKEN_COMMENT || insideGraph
+                || state != EXPECTING_STATEMENT) {
+            error("Unexpected end of stream");
+        }
+        super.endStream();
+    }
+
+    // lexical checks
+
+    private String unescapeIri(CharSequence str) throws ParseException {
+        StringBuilder result = null;
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char ch = str.charAt(i);
+            if (ch == '\\') {
+                if (result == null) {
+                    result = new StringBuilder(length);
+                    result.append(str, 0, i);
+                }
+                int next = i + 1 < length ? str.charAt(i + 1) : -1;
+                if (next != 'u' && next != 'U') {
+                    error("Illegal escape sequence in IRI");
+                    return null;
+                }
+                int codePoint = parseCodePoint(str, i + 2, next == 'u' ? 4 : 8);
+                if (codePoint < 0) {
+                    return null;
+                }
+                i += next == 'u' ? 5 : 9;
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT && IRI_FORBIDDEN.get(codePoint)) {
+                    error("Illegal character in IRI");
+                    return null;
+                }
+                result.appendCodePoint(codePoint);
+            } else if (IRI_FORBIDDEN.get(ch)) {
+                error("Illegal character in IRI");
+                return null;
+            } else if (result != null) {
+                result.append(ch);
+            }
+        }
+        return result == null ? str.toString() : result.toString();
+    }
+
+    private String unescapeString(CharSequence str) throws ParseException {
+        int length = str.length();
+        int escape = -1;
+        for (int i = 0; i < length && escape == -1; i++) {
+            if (str.charAt(i) == '\\') {
+                escape = i;
+            }
+        }
+        if (escape == -1) {
+            return str.toString();
+        }
+        StringBuilder result = new StringBuilder(length);
+        result.append(str, 0, escape);
+        for (int i = escape; i < length; i++) {
+            char ch = str.charAt(i);
+            if (ch != '\\') {
+                result.append(ch);
+                continue;
+            }
+            i++;
+            ch = i < length ? str.charAt(i) : 0;
+            switch (ch) {
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case '"':
+                case '\'':
+                case '\\':
+                    result.append(ch);
+                    break;
+                case 'u':
+                case 'U':
+                    int codePoint = parseCodePoint(str, i + 1, ch == 'u' ? 4 : 8);
+                    if (codePoint < 0) {
+                        return "";
+                    }
+                    result.appendCodePoint(codePoint);
+                    i += ch == 'u' ? 4 : 8;
+                    break;
+                default:
+                    error("Illegal escape sequence in string");
+                    return "";
+            }
+        }
+        return result.toString();
+    }
+
+    private int parseCodePoint(CharSequence str, int start, int length) throws ParseException {
+        if (start + length > str.length()) {
+            error("Malformed escape sequence");
+            return -1;
+        }
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = Character.digit(str.charAt(i), 16);
+            if (digit < 0) {
+                error("Malformed escape sequence");
+                return -1;
+            }
+            result = result * 16 + digit;
+        }
+        if (result > Character.MAX_CODE_POINT) {
+            error("Malformed escape sequence");
+            return -1;
+        }
+        return result;
+    }
+
+    private String unescapeLocalName(String word, int start) throws ParseException {
+        StringBuilder result = new StringBuilder(word.length() - start);
+        int length = word.length();
+        for (int i = start; i < length; i++) {
+            char ch = word.charAt(i);
+            boolean valid;
+            if (ch == '\\') {
+                i++;
+                valid = i < length && LOCAL_NAME_ESCAPABLE.get(word.charAt(i));
+                if (valid) {
+                    result.append(word.charAt(i));
+                }
+            } else if (ch == '%') {
+                valid = i + 2 < length && Character.digit(word.charAt(i + 1), 16) >= 0
+                        && Character.digit(word.charAt(i + 2), 16) >= 0;
+                if (valid) {
+                    result.append(word, i, i + 3);
+                    i += 2;
+                }
+            } else {
+                valid = ch == ':' || isNameChar(ch) || ch == SENTENCE_END && i > start && i < length - 1
+                        || i == start && ch >= '0' && ch <= '9';
+                if (i == start && (ch == '-' || ch == '\u00B7' || ch == SENTENCE_END
+                        || ch >= '\u0300' && ch <= '\u036F' || ch == '\u203F' || ch == '\u2040')) {
+                    valid = false;
+                }
+                result.append(ch);
+            }
+            if (!valid) {
+                error("Malformed local name in " + word);
+                return null;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Checks PN_PREFIX production
+     * @param str string which starts with prefix
+     * @param end end position of prefix
+     * @return true if prefix is empty or valid
+     */
+    private static boolean isPrefix(String str, int end) {
+        if (end == 0) {
+            return true;
+        }
+        if (!isNameStartChar(str.charAt(0)) || str.charAt(0) == '_' || str.charAt(end - 1) == SENTENCE_END) {
+            return false;
+        }
+        for (int i = 1; i < end; i++) {
+            char ch = str.charAt(i);
+            if (!isNameChar(ch) && ch != SENTENCE_END) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if IRI starts with scheme. Such IRIs are passed as is since Turtle doesn't restrict
+     * syntax of absolute IRIs beyond set of allowed chars.
+     */
+    private static boolean hasScheme(String iri) {
+        int length = iri.length();
+        if (length == 0 || !isAsciiLetter(iri.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            char ch = iri.charAt(i);
+            if (ch == ':') {
+                return true;
+            }
+            if (!isAsciiLetter(ch) && (ch < '0' || ch > '9') && ch != '+' && ch != '-' && ch != '.') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z';
+    }
+
+    private static boolean isBnodeLabel(String word) {
+        int length = word.length();
+        if (length == 2) {
+            return false;
+        }
+        char first = word.charAt(2);
+        if (!isNameStartChar(first) && (first < '0' || first > '9') || word.charAt(length - 1) == SENTENCE_END) {
+            return false;
+        }
+        for (int i = 3; i < length; i++) {
+            char ch = word.charAt(i);
+            if (!isNameChar(ch) && ch != SENTENCE_END) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLangTag(String word) {
+        int length = word.length();
+        int partLength = 0;
+        boolean firstPart = true;
+        for (int i = 1; i < length; i++) {
+            char ch = word.charAt(i);
+            if (ch == '-') {
+                if (partLength == 0) {
+                    return false;
+                }
+                firstPart = false;
+                partLength = 0;
+            } else if (ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || !firstPart && ch >= '0' && ch <= '9') {
+                partLength++;
+            } else {
+                return false;
+            }
+        }
+        return partLength > 0;
+    }
+
+    /**
+     * Detects type of numeric literal
+     * @param word literal
+     * @return xsd:integer, xsd:decimal, xsd:double or null if word isn't a number
+     */
+    private static String getNumberType(String word) {
+        int length = word.length();
+        int pos = 0;
+        if (word.charAt(0) == '+' || word.charAt(0) == '-') {
+            pos++;
+        }
+        int integerDigits = countDigits(word, pos);
+        pos += integerDigits;
+        int fractionDigits = 0;
+        boolean point = pos < length && word.charAt(pos) == SENTENCE_END;
+        if (point) {
+            pos++;
+            fractionDigits = countDigits(word, pos);
+            pos += fractionDigits;
+        }
+        if (pos == length) {
+            if (point) {
+                return fractionDigits > 0 ? XSD.DECIMAL : null;
+            }
+            return integerDigits > 0 ? XSD.INTEGER : null;
+        }
+        if (integerDigits + fractionDigits == 0 || word.charAt(pos) != 'e' && word.charAt(pos) != 'E') {
+            return null;
+        }
+        pos++;
+        if (pos < length && (word.charAt(pos) == '+' || word.charAt(pos) == '-')) {
+            pos++;
+        }
+        int exponentDigits = countDigits(word, pos);
+        return exponentDigits > 0 && pos + exponentDigits == length ? XSD.DOUBLE : null;
+    }
+
+    private static int countDigits(String str, int start) {
+        int pos = start;
+        while (pos < str.length() && str.charAt(pos) >= '0' && str.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    /**
+     * Checks PN_CHARS_U production. Surrogates are accepted since all supplementary chars
+     * up to U+EFFFF are allowed.
+     */
+    private static boolean isNameStartChar(char ch) {
+        return ch >= 'A' && ch <= 'Z' || ch >= 'a' && ch <= 'z' || ch == '_'
+                || ch >= '\u00C0' && ch <= '\u00D6' || ch >= '\u00D8' && ch <= '\u00F6'
+                || ch >= '\u00F8' && ch <= '\u02FF' || ch >= '\u0370' && ch <= '\u037D'
+                || ch >= '\u037F' && ch <= '\u1FFF' || ch >= '\u200C' && ch <= '\u200D'
+                || ch >= '\u2070' && ch <= '\u218F' || ch >= '\u2C00' && ch <= '\u2FEF'
+                || ch >= '\u3001' && ch <= '\uD7FF' || ch >= '\uF900' && ch <= '\uFDCF'
+                || ch >= '\uFDF0' && ch <= '\uFFFD' || Character.isHighSurrogate(ch) || Character.isLowSurrogate(ch);
+    }
+
+    /**
+     * Checks PN_CHARS production
+     */
+    private static boolean isNameChar(char ch) {
+        return isNameStartChar(ch) || ch == '-' || ch >= '0' && ch <= '9' || ch == '\u00B7'
+                || ch >= '\u0300' && ch <= '\u036F' || ch == '\u203F' || ch == '\u2040';
+    }
+
+    private static final class Frame {
+        private boolean list;
+        private short returnTo;
+        private String subj;
+        private String pred;
+        private String listNode;
+        private boolean hasProperties;
+    }
+}
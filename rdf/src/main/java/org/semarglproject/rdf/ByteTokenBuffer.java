@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.TermView;
+
+import java.nio.charset.Charset;
+
+/**
+ * Accumulates tokens of byte oriented parsers and converts them to strings.
+ * UTF-8 decoder is used only for tokens which contain non-ASCII bytes.
+ */
+final class ByteTokenBuffer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int INITIAL_SIZE = 64;
+
+    private byte[] bytes = new byte[INITIAL_SIZE];
+    private char[] chars = new char[INITIAL_SIZE];
+    private int length = 0;
+
+    /**
+     * Appends bytes to accumulated token
+     * @param buffer source buffer
+     * @param start position to start
+     * @param count count of bytes to append
+     */
+    void append(byte[] buffer, int start, int count) {
+        if (length + count > bytes.length) {
+            byte[] newBytes = new byte[Math.max(bytes.length * 2, length + count)];
+            System.arraycopy(bytes, 0, newBytes, 0, length);
+            bytes = newBytes;
+        }
+        System.arraycopy(buffer, start, bytes, length, count);
+        length += count;
+    }
+
+    /**
+     * Converts accumulated token to string and clears buffer
+     * @param trimSize count of bytes to skip at token's start
+     * @return decoded token
+     */
+    String extract(int trimSize) {
+        String result = decode(bytes, trimSize, length - trimSize);
+        length = 0;
+        return result;
+    }
+
+    /**
+     * Decodes accumulated token to specified view and clears buffer
+     * @param trimSize count of bytes to skip at token's start
+     * @param view view to append decoded chars to
+     */
+    void extract(int trimSize, TermView view) {
+        decode(bytes, trimSize, length - trimSize, view);
+        length = 0;
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    /**
+     * Converts bytes to string using accumulated token's char buffer
+     * @param buffer source buffer
+     * @param start position to start
+     * @param count count of bytes to decode
+     * @return decoded string
+     */
+    String decode(byte[] buffer, int start, int count) {
+        if (count > chars.length) {
+            chars = new char[Math.max(chars.length * 2, count)];
+        }
+        for (int i = 0; i < count; i++) {
+            byte b = buffer[start + i];
+            if (b < 0) {
+                return new String(buffer, start, count, UTF8);
+            }
+            chars[i] = (char) b;
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Decodes bytes to specified view
+     * @param buffer source buffer
+     * @param start position to start
+     * @param count count of bytes to decode
+     * @param view view to append decoded chars to
+     */
+    void decode(byte[] buffer, int start, int count, TermView view) {
+        int viewLength = view.length();
+        for (int i = 0; i < count; i++) {
+            byte b = buffer[start + i];
+            if (b < 0) {
+                view.setLength(viewLength);
+                String str = new String(buffer, start, count, UTF8);
+                view.append(str, 0, str.length());
+                return;
+            }
+            view.append((char) b);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.CharSink;
+
+/**
+ * Escapes strings in a single pass while streaming them to {@link CharSink}. Replacements of ASCII chars
+ * are looked up in a table, non-ASCII chars are optionally replaced with UCHAR escape sequences.
+ * Unescaped runs are passed to sink without copying to intermediate strings, strings which don't
+ * require escaping are passed as is.
+ * <br>
+ * Instances are not thread safe since they reuse internal buffer.
+ */
+final class CharEscaper {
+
+    private static final int ASCII_LIMIT = 0x80;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String[] replacements;
+    private final boolean escapeNonAscii;
+
+    private char[] buffer = new char[256];
+    private final char[] escapeBuffer = new char[10];
+
+    /**
+     * @param replacements table of replacements for ASCII chars, null for chars which shouldn't be escaped
+     * @param escapeNonAscii whether non-ASCII chars should be escaped
+     */
+    CharEscaper(String[] replacements, boolean escapeNonAscii) {
+        this.replacements = replacements;
+        this.escapeNonAscii = escapeNonAscii;
+    }
+
+    /**
+     * Creates replacement table which escapes specified chars with UCHAR escape sequences
+     * @param chars chars to escape
+     * @return replacement table
+     */
+    static String[] createUnicodeEscapes(String chars) {
+        String[] result = new String[ASCII_LIMIT];
+        for (int i = 0; i < chars.length(); i++) {
+            char ch = chars.charAt(i);
+            result[ch] = String.format("\\u%04X", (int) ch);
+        }
+        return result;
+    }
+
+    /**
+     * Finds first char which requires escaping
+     * @param str string to scan
+     * @param start position to start from
+     * @return position of the char or -1 if string doesn't require escaping
+     */
+    int findEscapable(String str, int start) {
+        int length = str.length();
+        for (int pos = start; pos < length; pos++) {
+            char ch = str.charAt(pos);
+            if (ch < ASCII_LIMIT ? replacements[ch] != null : escapeNonAscii) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Streams escaped suffix of string to sink
+     * @param str string to escape
+     * @param start position of the suffix
+     * @param sink sink to stream to
+     * @throws ParseException
+     */
+    void escape(String str, int start, CharSink sink) throws ParseException {
+        int first = findEscapable(str, start);
+        if (first == -1 && start == 0) {
+            sink.process(str);
+            return;
+        }
+        int length = str.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        str.getChars(start, length, buffer, start);
+        if (first == -1) {
+            sink.process(buffer, start, length - start);
+            return;
+        }
+        int runStart = start;
+        for (int pos = first; pos < length; pos++) {
+            char ch = buffer[pos];
+            if (ch < ASCII_LIMIT) {
+                String replacement = replacements[ch];
+                if (replacement == null) {
+                    continue;
+                }
+                processRun(runStart, pos, sink);
+                sink.process(replacement);
+            } else if (escapeNonAscii) {
+                processRun(runStart, pos, sink);
+                if (Character.isHighSurrogate(ch) && pos + 1 < length && Character.isLowSurrogate(buffer[pos + 1])) {
+                    processEscape('U', Character.toCodePoint(ch, buffer[pos + 1]), 8, sink);
+                    pos++;
+                } else {
+                    processEscape('u', ch, 4, sink);
+                }
+            } else {
+                continue;
+            }
+            runStart = pos + 1;
+        }
+        processRun(runStart, length, sink);
+    }
+
+    private void processRun(int start, int end, CharSink sink) throws ParseException {
+        if (end > start) {
+            sink.process(buffer, start, end - start);
+        }
+    }
+
+    private void processEscape(char type, int codePoint, int digits, CharSink sink) throws ParseException {
+        escapeBuffer[0] = '\\';
+        escapeBuffer[1] = type;
+        for (int i = digits + 1, value = codePoint; i > 1; i--, value >>>= 4) {
+            escapeBuffer[i] = HEX_DIGITS[value & 0xF];
+        }
+        sink.process(escapeBuffer, 0, digits + 2);
+    }
+
+}
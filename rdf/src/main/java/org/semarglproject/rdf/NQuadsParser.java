@@ -15,9 +15,11 @@
  */
 package org.semarglproject.rdf;
 
+import org.semarglproject.sink.ByteSink;
 import org.semarglproject.sink.CharSink;
 import org.semarglproject.sink.Pipe;
 import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.SplittableSink;
 import org.semarglproject.source.StreamProcessor;
 
 import java.util.BitSet;
@@ -31,7 +33,7 @@ import java.util.BitSet;
  *         <li>{@link org.semarglproject.source.StreamProcessor#ENABLE_ERROR_RECOVERY}</li>
  *     </ul>
  */
-public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
+public final class NQuadsParser extends Pipe<QuadSink> implements SplittableSink, ByteSink {
 
     /**
      * Class URI for errors produced by a parser
@@ -82,6 +84,11 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
     private boolean waitingForSentenceEnd = false;
     private StringBuilder addBuffer = null;
 
+    private char[] charBuffer = null;
+    private byte[] byteBuffer = null;
+    private ByteTokenBuffer byteTokenBuffer = null;
+    private boolean bytesSaved = false;
+
     private NQuadsParser(QuadSink sink) {
         super(sink);
     }
@@ -95,6 +102,14 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
         return new NQuadsParser(sink);
     }
 
+    @Override
+    public CharSink createChunkSink() {
+        NQuadsParser chunkParser = new NQuadsParser(new SynchronizedChunkSink(sink));
+        chunkParser.processorGraphHandler = processorGraphHandler;
+        chunkParser.ignoreErrors = ignoreErrors;
+        return chunkParser;
+    }
+
     private void error(String msg) throws ParseException {
         if (processorGraphHandler != null) {
             processorGraphHandler.error(ERROR, msg);
@@ -122,50 +137,15 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
 
     @Override
     public NQuadsParser process(char[] buffer, int start, int count) throws ParseException {
+        charBuffer = buffer;
+        byteBuffer = null;
         if (tokenStartPos != -1) {
             tokenStartPos = start;
         }
         int end = start + count;
 
         for (int pos = start; pos < end; pos++) {
-            if (skipSentence && buffer[pos] != SENTENCE_END) {
-                continue;
-            } else {
-                skipSentence = false;
-            }
-
-            if (parsingState == PARSING_OUTSIDE) {
-                processOutsideChar(buffer, pos);
-            } else if (parsingState == PARSING_COMMENT) {
-                if (buffer[pos] == '\n' || buffer[pos] == '\r') {
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_URI) {
-                if (buffer[pos] == '>') {
-                    onNonLiteral(unescape(extractToken(buffer, pos, 1)));
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_BNODE) {
-                if (WHITESPACE.get(buffer[pos]) || buffer[pos] == SENTENCE_END) {
-                    onNonLiteral(extractToken(buffer, pos - 1, 0));
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_LITERAL) {
-                processLiteralChar(buffer, pos);
-            } else if (parsingState == PARSING_AFTER_LITERAL) {
-                if (buffer[pos] == '@' || buffer[pos] == '^') {
-                    tokenStartPos = pos;
-                    parsingState = PARSING_LITERAL_TYPE;
-                } else if (WHITESPACE.get(buffer[pos]) || buffer[pos] == '<') {
-                    onPlainLiteral(literal, null);
-                    parsingState = PARSING_OUTSIDE;
-                    processOutsideChar(buffer, pos);
-                } else {
-                    error("Unexpected character '" + buffer[pos] + "' after literal in string '" + new String(buffer) + "'");
-                }
-            } else if (parsingState == PARSING_LITERAL_TYPE) {
-                processLiteralTypeChar(buffer, pos);
-            }
+            processChar(buffer[pos], pos);
         }
         if (tokenStartPos != -1) {
             if (addBuffer == null) {
@@ -173,29 +153,95 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
             }
             addBuffer.append(buffer, tokenStartPos, end - tokenStartPos);
         }
+        charBuffer = null;
+        return this;
+    }
+
+    /**
+     * Processes UTF-8 encoded input. Since all syntax chars are ASCII, state machine works with bytes
+     * directly and only tokens which contain non-ASCII bytes are decoded.
+     * Char and byte input must not be mixed within single stream.
+     */
+    @Override
+    public NQuadsParser process(byte[] buffer, int start, int count) throws ParseException {
+        byteBuffer = buffer;
+        if (tokenStartPos != -1) {
+            tokenStartPos = start;
+        }
+        int end = start + count;
+
+        for (int pos = start; pos < end; pos++) {
+            processChar((char) (buffer[pos] & 0xff), pos);
+        }
+        if (tokenStartPos != -1) {
+            getByteTokenBuffer().append(buffer, tokenStartPos, end - tokenStartPos);
+            bytesSaved = true;
+        }
+        byteBuffer = null;
         return this;
     }
 
-    private void processLiteralChar(char[] buffer, int pos) throws ParseException {
-        if (charsToEscape == 9 && buffer[pos] == 'u') {
+    private void processChar(char ch, int pos) throws ParseException {
+        if (skipSentence && ch != SENTENCE_END) {
+            return;
+        } else {
+            skipSentence = false;
+        }
+
+        if (parsingState == PARSING_OUTSIDE) {
+            processOutsideChar(ch, pos);
+        } else if (parsingState == PARSING_COMMENT) {
+            if (ch == '\n' || ch == '\r') {
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_URI) {
+            if (ch == '>') {
+                onNonLiteral(unescape(extractToken(pos, 1)));
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_BNODE) {
+            if (WHITESPACE.get(ch) || ch == SENTENCE_END) {
+                onNonLiteral(extractToken(pos - 1, 0));
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_LITERAL) {
+            processLiteralChar(ch, pos);
+        } else if (parsingState == PARSING_AFTER_LITERAL) {
+            if (ch == '@' || ch == '^') {
+                tokenStartPos = pos;
+                parsingState = PARSING_LITERAL_TYPE;
+            } else if (WHITESPACE.get(ch) || ch == '<') {
+                onPlainLiteral(literal, null);
+                parsingState = PARSING_OUTSIDE;
+                processOutsideChar(ch, pos);
+            } else {
+                error("Unexpected character '" + ch + "' after literal");
+            }
+        } else if (parsingState == PARSING_LITERAL_TYPE) {
+            processLiteralTypeChar(ch, pos);
+        }
+    }
+
+    private void processLiteralChar(char ch, int pos) throws ParseException {
+        if (charsToEscape == 9 && ch == 'u') {
             charsToEscape -= 5;
-        } else if (charsToEscape == 9 && buffer[pos] != 'U') {
+        } else if (charsToEscape == 9 && ch != 'U') {
             charsToEscape = 0;
         } else if (charsToEscape > 0) {
             charsToEscape--;
         } else {
-            if (buffer[pos] == '\"') {
-                literal = unescape(extractToken(buffer, pos, 1));
+            if (ch == '\"') {
+                literal = unescape(extractToken(pos, 1));
                 parsingState = PARSING_AFTER_LITERAL;
-            } else if (buffer[pos] == '\\') {
+            } else if (ch == '\\') {
                 charsToEscape = 9;
             }
         }
     }
 
-    private void processLiteralTypeChar(char[] buffer, int pos) throws ParseException {
-        if (WHITESPACE.get(buffer[pos])) {
-            String type = extractToken(buffer, pos, 0);
+    private void processLiteralTypeChar(char ch, int pos) throws ParseException {
+        if (WHITESPACE.get(ch)) {
+            String type = extractToken(pos, 0);
             int trimSize = type.charAt(type.length() - 1) == SENTENCE_END ? 1 : 0;
             if (type.charAt(0) == '@') {
                 onPlainLiteral(literal, type.substring(1, type.length() - 1 - trimSize));
@@ -211,8 +257,8 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
         }
     }
 
-    private void processOutsideChar(char[] buffer, int pos) throws ParseException {
-        switch (buffer[pos]) {
+    private void processOutsideChar(char ch, int pos) throws ParseException {
+        switch (ch) {
             case '\"':
                 parsingState = PARSING_LITERAL;
                 tokenStartPos = pos;
@@ -232,8 +278,8 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
                 finishSentence();
                 break;
             default:
-                if (!WHITESPACE.get(buffer[pos])) {
-                    error("Unexpected character '" + buffer[pos] + "'");
+                if (!WHITESPACE.get(ch)) {
+                    error("Unexpected character '" + ch + "'");
                 }
         }
     }
@@ -299,25 +345,49 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
         return false;
     }
 
-    private String extractToken(char[] buffer, int tokenEndPos, int trimSize) throws ParseException {
+    private String extractToken(int tokenEndPos, int trimSize) throws ParseException {
         String saved;
-        if (addBuffer != null) {
+        if (byteBuffer != null) {
+            saved = extractByteToken(tokenEndPos, trimSize);
+        } else if (addBuffer != null) {
             if (tokenEndPos - trimSize >= tokenStartPos) {
-                addBuffer.append(buffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
+                addBuffer.append(charBuffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
             }
             addBuffer.delete(0, trimSize);
             saved = addBuffer.toString();
             addBuffer = null;
         } else {
-            saved = String.valueOf(buffer, tokenStartPos + trimSize, tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
+            saved = String.valueOf(charBuffer, tokenStartPos + trimSize,
+                    tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
         }
         tokenStartPos = -1;
         return saved;
     }
 
+    private String extractByteToken(int tokenEndPos, int trimSize) {
+        ByteTokenBuffer tokenBuffer = getByteTokenBuffer();
+        if (!bytesSaved) {
+            return tokenBuffer.decode(byteBuffer, tokenStartPos + trimSize,
+                    tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
+        }
+        if (tokenEndPos - trimSize >= tokenStartPos) {
+            tokenBuffer.append(byteBuffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
+        }
+        bytesSaved = false;
+        return tokenBuffer.extract(trimSize);
+    }
+
+    private ByteTokenBuffer getByteTokenBuffer() {
+        if (byteTokenBuffer == null) {
+            byteTokenBuffer = new ByteTokenBuffer();
+        }
+        return byteTokenBuffer;
+    }
+
     @Override
     public void startStream() throws ParseException {
         super.startStream();
+        byteBuffer = null;
         resetQuad();
         waitingForSentenceEnd = false;
         parsingState = PARSING_OUTSIDE;
@@ -325,6 +395,10 @@ public final class NQuadsParser extends Pipe<QuadSink> implements CharSink {
 
     private void resetQuad() {
         addBuffer = null;
+        if (bytesSaved) {
+            byteTokenBuffer.clear();
+            bytesSaved = false;
+        }
         tokenStartPos = -1;
         subj = null;
         pred = null;
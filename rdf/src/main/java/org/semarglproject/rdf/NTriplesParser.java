@@ -15,9 +15,13 @@
  */
 package org.semarglproject.rdf;
 
+import org.semarglproject.sink.ByteSink;
 import org.semarglproject.sink.CharSink;
 import org.semarglproject.sink.Pipe;
+import org.semarglproject.sink.SplittableSink;
+import org.semarglproject.sink.TermView;
 import org.semarglproject.sink.TripleSink;
+import org.semarglproject.sink.TripleViewSink;
 import org.semarglproject.source.StreamProcessor;
 
 import java.util.BitSet;
@@ -31,7 +35,7 @@ import java.util.BitSet;
  *         <li>{@link StreamProcessor#ENABLE_ERROR_RECOVERY}</li>
  *     </ul>
  */
-public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
+public final class NTriplesParser extends Pipe<TripleSink> implements SplittableSink, ByteSink {
 
     /**
      * Class URI for errors produced by a parser
@@ -48,6 +52,11 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
 
     private static final char SENTENCE_END = '.';
 
+    private static final int SUBJ_VIEW = 0;
+    private static final int PRED_VIEW = 1;
+    private static final int OBJ_VIEW = 2;
+    private static final int TYPE_VIEW = 3;
+
     /**
      * NTriples whitespace char checker
      */
@@ -61,9 +70,9 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
     }
 
 
-    private String subj = null;
-    private String pred = null;
-    private String literalObj = null;
+    private CharSequence subj = null;
+    private CharSequence pred = null;
+    private CharSequence literalObj = null;
 
     private ProcessorGraphHandler processorGraphHandler = null;
     private boolean ignoreErrors = false;
@@ -76,12 +85,28 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
     private boolean waitingForSentenceEnd = false;
     private StringBuilder addBuffer = null;
 
+    private char[] charBuffer = null;
+    private byte[] byteBuffer = null;
+    private ByteTokenBuffer byteTokenBuffer = null;
+    private boolean bytesSaved = false;
+
+    private final TripleViewSink viewSink;
+    private final TermView[] termViews;
+
     private NTriplesParser(TripleSink sink) {
         super(sink);
+        if (sink instanceof TripleViewSink) {
+            viewSink = (TripleViewSink) sink;
+            termViews = new TermView[] {new TermView(), new TermView(), new TermView(), new TermView()};
+        } else {
+            viewSink = null;
+            termViews = null;
+        }
     }
 
     /**
      * Creates instance of NTriplesParser connected to specified sink.
+     * Terms are passed as reusable views to instances of {@link TripleViewSink}.
      * @param sink sink to be connected to
      * @return instance of NTriplesParser
      */
@@ -89,6 +114,14 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         return new NTriplesParser(sink);
     }
 
+    @Override
+    public CharSink createChunkSink() {
+        NTriplesParser chunkParser = new NTriplesParser(new SynchronizedChunkSink(sink));
+        chunkParser.processorGraphHandler = processorGraphHandler;
+        chunkParser.ignoreErrors = ignoreErrors;
+        return chunkParser;
+    }
+
     private void error(String msg) throws ParseException {
         if (processorGraphHandler != null) {
             processorGraphHandler.error(ERROR, msg);
@@ -116,50 +149,15 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
 
     @Override
     public NTriplesParser process(char[] buffer, int start, int count) throws ParseException {
+        charBuffer = buffer;
+        byteBuffer = null;
         if (tokenStartPos != -1) {
             tokenStartPos = start;
         }
         int end = start + count;
 
         for (int pos = start; pos < end; pos++) {
-            if (skipSentence && buffer[pos] != SENTENCE_END) {
-                continue;
-            } else {
-                skipSentence = false;
-            }
-
-            if (parsingState == PARSING_OUTSIDE) {
-                processOutsideChar(buffer, pos);
-            } else if (parsingState == PARSING_COMMENT) {
-                if (buffer[pos] == '\n' || buffer[pos] == '\r') {
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_URI) {
-                if (buffer[pos] == '>') {
-                    onNonLiteral(unescape(extractToken(buffer, pos, 1)));
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_BNODE) {
-                if (WHITESPACE.get(buffer[pos]) || buffer[pos] == SENTENCE_END) {
-                    onNonLiteral(extractToken(buffer, pos - 1, 0));
-                    parsingState = PARSING_OUTSIDE;
-                }
-            } else if (parsingState == PARSING_LITERAL) {
-                processLiteralChar(buffer, pos);
-            } else if (parsingState == PARSING_AFTER_LITERAL) {
-                if (buffer[pos] == '@' || buffer[pos] == '^') {
-                    tokenStartPos = pos;
-                    parsingState = PARSING_LITERAL_TYPE;
-                } else if (WHITESPACE.get(buffer[pos]) || buffer[pos] == SENTENCE_END) {
-                    onPlainLiteral(literalObj, null);
-                    parsingState = PARSING_OUTSIDE;
-                    processOutsideChar(buffer, pos);
-                } else {
-                    error("Unexpected character '" + buffer[pos] + "' after literal");
-                }
-            } else if (parsingState == PARSING_LITERAL_TYPE) {
-                processLiteralTypeChar(buffer, pos);
-            }
+            processChar(buffer[pos], pos);
         }
         if (tokenStartPos != -1) {
             if (addBuffer == null) {
@@ -167,34 +165,101 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
             }
             addBuffer.append(buffer, tokenStartPos, end - tokenStartPos);
         }
+        charBuffer = null;
+        return this;
+    }
+
+    /**
+     * Processes UTF-8 encoded input. Since all syntax chars are ASCII, state machine works with bytes
+     * directly and only tokens which contain non-ASCII bytes are decoded.
+     * Char and byte input must not be mixed within single stream.
+     */
+    @Override
+    public NTriplesParser process(byte[] buffer, int start, int count) throws ParseException {
+        byteBuffer = buffer;
+        if (tokenStartPos != -1) {
+            tokenStartPos = start;
+        }
+        int end = start + count;
+
+        for (int pos = start; pos < end; pos++) {
+            processChar((char) (buffer[pos] & 0xff), pos);
+        }
+        if (tokenStartPos != -1) {
+            getByteTokenBuffer().append(buffer, tokenStartPos, end - tokenStartPos);
+            bytesSaved = true;
+        }
+        byteBuffer = null;
         return this;
     }
 
-    private void processLiteralChar(char[] buffer, int pos) throws ParseException {
-        if (charsToEscape == 9 && buffer[pos] == 'u') {
+    private void processChar(char ch, int pos) throws ParseException {
+        if (skipSentence && ch != SENTENCE_END) {
+            return;
+        } else {
+            skipSentence = false;
+        }
+
+        if (parsingState == PARSING_OUTSIDE) {
+            processOutsideChar(ch, pos);
+        } else if (parsingState == PARSING_COMMENT) {
+            if (ch == '\n' || ch == '\r') {
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_URI) {
+            if (ch == '>') {
+                onNonLiteral(unescape(extractToken(pos, 1, getNonLiteralView())));
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_BNODE) {
+            if (WHITESPACE.get(ch) || ch == SENTENCE_END) {
+                onNonLiteral(extractToken(pos - 1, 0, getNonLiteralView()));
+                parsingState = PARSING_OUTSIDE;
+            }
+        } else if (parsingState == PARSING_LITERAL) {
+            processLiteralChar(ch, pos);
+        } else if (parsingState == PARSING_AFTER_LITERAL) {
+            if (ch == '@' || ch == '^') {
+                tokenStartPos = pos;
+                parsingState = PARSING_LITERAL_TYPE;
+            } else if (WHITESPACE.get(ch) || ch == SENTENCE_END) {
+                onPlainLiteral(literalObj, null);
+                parsingState = PARSING_OUTSIDE;
+                processOutsideChar(ch, pos);
+            } else {
+                error("Unexpected character '" + ch + "' after literal");
+            }
+        } else if (parsingState == PARSING_LITERAL_TYPE) {
+            processLiteralTypeChar(ch, pos);
+        }
+    }
+
+    private void processLiteralChar(char ch, int pos) throws ParseException {
+        if (charsToEscape == 9 && ch == 'u') {
             charsToEscape -= 5;
-        } else if (charsToEscape == 9 && buffer[pos] != 'U') {
+        } else if (charsToEscape == 9 && ch != 'U') {
             charsToEscape = 0;
         } else if (charsToEscape > 0) {
             charsToEscape--;
         } else {
-            if (buffer[pos] == '\"') {
-                literalObj = unescape(extractToken(buffer, pos, 1));
+            if (ch == '\"') {
+                literalObj = unescape(extractToken(pos, 1, OBJ_VIEW));
                 parsingState = PARSING_AFTER_LITERAL;
-            } else if (buffer[pos] == '\\') {
+            } else if (ch == '\\') {
                 charsToEscape = 9;
             }
         }
     }
 
-    private void processLiteralTypeChar(char[] buffer, int pos) throws ParseException {
-        if (WHITESPACE.get(buffer[pos])) {
-            String type = extractToken(buffer, pos, 0);
+    private void processLiteralTypeChar(char ch, int pos) throws ParseException {
+        if (WHITESPACE.get(ch)) {
+            CharSequence type = extractToken(pos, 0, TYPE_VIEW);
             int trimSize = type.charAt(type.length() - 1) == SENTENCE_END ? 1 : 0;
             if (type.charAt(0) == '@') {
-                onPlainLiteral(literalObj, type.substring(1, type.length() - 1 - trimSize));
-            } else if (type.startsWith("^^<") && type.charAt(type.length() - 2) == '>') {
-                onTypedLiteral(literalObj, type.substring(3, type.length() - 2 - trimSize));
+                onPlainLiteral(literalObj, subTerm(type, 1, type.length() - 1 - trimSize));
+            } else if (type.length() > 3 && type.charAt(0) == '^' && type.charAt(1) == '^' && type.charAt(2) == '<'
+                    && type.charAt(type.length() - 2) == '>') {
+                onTypedLiteral(literalObj, subTerm(type, 3, type.length() - 2 - trimSize));
             } else {
                 error("Literal type '" + type + "' can not be parsed");
             }
@@ -205,8 +270,8 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         }
     }
 
-    private void processOutsideChar(char[] buffer, int pos) throws ParseException {
-        switch (buffer[pos]) {
+    private void processOutsideChar(char ch, int pos) throws ParseException {
+        switch (ch) {
             case '\"':
                 parsingState = PARSING_LITERAL;
                 tokenStartPos = pos;
@@ -226,8 +291,8 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
                 finishSentence();
                 break;
             default:
-                if (!WHITESPACE.get(buffer[pos])) {
-                    error("Unexpected character '" + buffer[pos] + "'");
+                if (!WHITESPACE.get(ch)) {
+                    error("Unexpected character '" + ch + "'");
                 }
         }
     }
@@ -240,7 +305,7 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         }
     }
 
-    private void onNonLiteral(String uri) throws ParseException {
+    private void onNonLiteral(CharSequence uri) throws ParseException {
         if (waitingForSentenceEnd) {
             error("End of sentence expected");
         }
@@ -249,12 +314,16 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         } else if (pred == null) {
             pred = uri;
         } else {
-            sink.addNonLiteral(subj, pred, uri);
+            if (viewSink != null) {
+                viewSink.addNonLiteral((TermView) subj, (TermView) pred, (TermView) uri);
+            } else {
+                sink.addNonLiteral((String) subj, (String) pred, (String) uri);
+            }
             resetTriple();
         }
     }
 
-    private void onPlainLiteral(String value, String lang) throws ParseException {
+    private void onPlainLiteral(CharSequence value, CharSequence lang) throws ParseException {
         if (subj == null || pred == null) {
             if (waitingForSentenceEnd) {
                 error("End of sentence expected");
@@ -262,11 +331,15 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
                 error("Literal is not an object");
             }
         }
-        sink.addPlainLiteral(subj, pred, value, lang);
+        if (viewSink != null) {
+            viewSink.addPlainLiteral((TermView) subj, (TermView) pred, (TermView) value, (TermView) lang);
+        } else {
+            sink.addPlainLiteral((String) subj, (String) pred, (String) value, (String) lang);
+        }
         resetTriple();
     }
 
-    private void onTypedLiteral(String value, String type) throws ParseException {
+    private void onTypedLiteral(CharSequence value, CharSequence type) throws ParseException {
         if (subj == null || pred == null) {
             if (waitingForSentenceEnd) {
                 error("End of sentence expected");
@@ -274,7 +347,11 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
                 error("Literal is not an object");
             }
         }
-        sink.addTypedLiteral(subj, pred, value, type);
+        if (viewSink != null) {
+            viewSink.addTypedLiteral((TermView) subj, (TermView) pred, (TermView) value, (TermView) type);
+        } else {
+            sink.addTypedLiteral((String) subj, (String) pred, (String) value, (String) type);
+        }
         resetTriple();
     }
 
@@ -292,25 +369,105 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         return false;
     }
 
-    private String extractToken(char[] buffer, int tokenEndPos, int trimSize) throws ParseException {
+    private int getNonLiteralView() {
+        if (subj == null) {
+            return SUBJ_VIEW;
+        } else if (pred == null) {
+            return PRED_VIEW;
+        }
+        return OBJ_VIEW;
+    }
+
+    private static CharSequence subTerm(CharSequence term, int start, int end) {
+        if (term instanceof TermView) {
+            ((TermView) term).narrow(start, end);
+            return term;
+        }
+        return ((String) term).substring(start, end);
+    }
+
+    /**
+     * Extracts token as string or, if parser is connected to {@link TripleViewSink}, as a view
+     * @param tokenEndPos position of token's last char
+     * @param trimSize count of chars to skip at both ends of token
+     * @param viewIndex index of reusable view to extract token to
+     * @return extracted token
+     * @throws ParseException
+     */
+    private CharSequence extractToken(int tokenEndPos, int trimSize, int viewIndex) throws ParseException {
+        if (viewSink == null) {
+            return extractToken(tokenEndPos, trimSize);
+        }
+        TermView view = termViews[viewIndex];
+        view.clear();
+        int count = tokenEndPos - tokenStartPos - trimSize + 1;
+        if (byteBuffer != null) {
+            ByteTokenBuffer tokenBuffer = getByteTokenBuffer();
+            if (bytesSaved) {
+                if (count > 0) {
+                    tokenBuffer.append(byteBuffer, tokenStartPos, count);
+                }
+                tokenBuffer.extract(trimSize, view);
+                bytesSaved = false;
+            } else {
+                tokenBuffer.decode(byteBuffer, tokenStartPos + trimSize, count - trimSize, view);
+            }
+        } else if (addBuffer != null) {
+            view.append(addBuffer, trimSize, addBuffer.length());
+            if (count > 0) {
+                view.append(charBuffer, tokenStartPos, count);
+            }
+            addBuffer = null;
+        } else {
+            view.append(charBuffer, tokenStartPos + trimSize, count - trimSize);
+        }
+        tokenStartPos = -1;
+        return view;
+    }
+
+    private String extractToken(int tokenEndPos, int trimSize) throws ParseException {
         String saved;
-        if (addBuffer != null) {
+        if (byteBuffer != null) {
+            saved = extractByteToken(tokenEndPos, trimSize);
+        } else if (addBuffer != null) {
             if (tokenEndPos - trimSize >= tokenStartPos) {
-                addBuffer.append(buffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
+                addBuffer.append(charBuffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
             }
             addBuffer.delete(0, trimSize);
             saved = addBuffer.toString();
             addBuffer = null;
         } else {
-            saved = String.valueOf(buffer, tokenStartPos + trimSize, tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
+            saved = String.valueOf(charBuffer, tokenStartPos + trimSize,
+                    tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
         }
         tokenStartPos = -1;
         return saved;
     }
 
+    private String extractByteToken(int tokenEndPos, int trimSize) {
+        ByteTokenBuffer tokenBuffer = getByteTokenBuffer();
+        if (!bytesSaved) {
+            return tokenBuffer.decode(byteBuffer, tokenStartPos + trimSize,
+                    tokenEndPos - tokenStartPos + 1 - 2 * trimSize);
+        }
+        if (tokenEndPos - trimSize >= tokenStartPos) {
+            tokenBuffer.append(byteBuffer, tokenStartPos, tokenEndPos - tokenStartPos - trimSize + 1);
+        }
+        bytesSaved = false;
+        return tokenBuffer.extract(trimSize);
+    }
+
+    private ByteTokenBuffer getByteTokenBuffer() {
+        if (byteTokenBuffer == null) {
+            byteTokenBuffer = new ByteTokenBuffer();
+        }
+        return byteTokenBuffer;
+    }
+
     @Override
     public void startStream() throws ParseException {
         super.startStream();
+        byteBuffer = null;
         resetTriple();
         waitingForSentenceEnd = false;
         parsingState = PARSING_OUTSIDE;
@@ -318,6 +475,10 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
 
     private void resetTriple() {
         addBuffer = null;
+        if (bytesSaved) {
+            byteTokenBuffer.clear();
+            bytesSaved = false;
+        }
         tokenStartPos = -1;
         subj = null;
         pred = null;
@@ -332,6 +493,86 @@ public final class NTriplesParser extends Pipe<TripleSink> implements CharSink {
         super.endStream();
     }
 
+    private CharSequence unescape(CharSequence term) throws ParseException {
+        if (term instanceof TermView) {
+            return unescape((TermView) term);
+        }
+        return unescape((String) term);
+    }
+
+    /**
+     * Unescapes view's content in place
+     * @param view view to unescape
+     * @return the same view
+     * @throws ParseException
+     */
+    private TermView unescape(TermView view) throws ParseException {
+        char[] buffer = view.getBuffer();
+        int offset = view.getOffset();
+        int limit = view.length();
+        int length = 0;
+
+        for (int i = 0; i < limit; i++) {
+            char ch = buffer[offset + i];
+            if (ch != '\\') {
+                buffer[offset + length++] = ch;
+                continue;
+            }
+            i++;
+            if (i == limit) {
+                break;
+            }
+            ch = buffer[offset + i];
+            switch (ch) {
+                case '\\':
+                case '\'':
+                case '\"':
+                    buffer[offset + length++] = ch;
+                    break;
+                case 'b':
+                    buffer[offset + length++] = '\b';
+                    break;
+                case 'f':
+                    buffer[offset + length++] = '\f';
+                    break;
+                case 'n':
+                    buffer[offset + length++] = '\n';
+                    break;
+                case 'r':
+                    buffer[offset + length++] = '\r';
+                    break;
+                case 't':
+                    buffer[offset + length++] = '\t';
+                    break;
+                case 'u':
+                case 'U':
+                    int sequenceLength = ch == 'u' ? 4 : 8;
+                    if (i + sequenceLength >= limit) {
+                        error("Error parsing escape sequence '\\" + ch + "'");
+                        i = limit;
+                        break;
+                    }
+                    long value = 0;
+                    for (int j = 1; j <= sequenceLength && value >= 0; j++) {
+                        int digit = Character.digit(buffer[offset + i + j], 16);
+                        value = digit < 0 ? -1 : value * 16 + digit;
+                    }
+                    i += sequenceLength;
+                    if (value < 0 || value > Integer.MAX_VALUE) {
+                        error("Error parsing escape sequence '\\" + ch + "'");
+                    } else {
+                        buffer[offset + length++] = (char) value;
+                    }
+                    break;
+                default:
+                    buffer[offset + length++] = ch;
+                    break;
+            }
+        }
+        view.setLength(length);
+        return view;
+    }
+
     private String unescape(String str) throws ParseException {
         int limit = str.length();
         StringBuilder result = new StringBuilder(limit);
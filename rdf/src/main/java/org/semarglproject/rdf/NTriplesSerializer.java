@@ -20,8 +20,6 @@ import org.semarglproject.sink.Pipe;
 import org.semarglproject.sink.TripleSink;
 import org.semarglproject.vocab.RDF;
 
-import java.util.BitSet;
-
 /**
  * Implementation of {@link org.semarglproject.sink.TripleSink} which serializes triples to
  * {@link org.semarglproject.sink.CharSink} using NTriples syntax.
@@ -35,32 +33,28 @@ public class NTriplesSerializer extends Pipe<CharSink> implements TripleSink {
     private static final char URI_START = '<';
     private static final char URI_END = '>';
 
-    private static final BitSet ESCAPABLE_CONTENT_CHARS = new BitSet();
-    private static final BitSet ESCAPABLE_URI_CHARS = new BitSet();
+    private static final String[] CONTENT_REPLACEMENTS = new String[0x80];
+    private static final String[] URI_REPLACEMENTS;
 
     static {
-        ESCAPABLE_CONTENT_CHARS.set('\\');
-        ESCAPABLE_CONTENT_CHARS.set('\"');
-        ESCAPABLE_CONTENT_CHARS.set('\b');
-        ESCAPABLE_CONTENT_CHARS.set('\f');
-        ESCAPABLE_CONTENT_CHARS.set('\n');
-        ESCAPABLE_CONTENT_CHARS.set('\r');
-        ESCAPABLE_CONTENT_CHARS.set('\t');
-
+        CONTENT_REPLACEMENTS['\\'] = "\\\\";
+        CONTENT_REPLACEMENTS['\"'] = "\\\"";
+        CONTENT_REPLACEMENTS['\b'] = "\\b";
+        CONTENT_REPLACEMENTS['\f'] = "\\f";
+        CONTENT_REPLACEMENTS['\n'] = "\\n";
+        CONTENT_REPLACEMENTS['\r'] = "\\r";
+        CONTENT_REPLACEMENTS['\t'] = "\\t";
+
+        StringBuilder uriChars = new StringBuilder("\\<>{}\"`|^");
         for (char ch = 0; ch <= 0x20; ch++) {
-            ESCAPABLE_URI_CHARS.set(ch);
+            uriChars.append(ch);
         }
-        ESCAPABLE_URI_CHARS.set('\\');
-        ESCAPABLE_URI_CHARS.set('<');
-        ESCAPABLE_URI_CHARS.set('>');
-        ESCAPABLE_URI_CHARS.set('{');
-        ESCAPABLE_URI_CHARS.set('}');
-        ESCAPABLE_URI_CHARS.set('"');
-        ESCAPABLE_URI_CHARS.set('`');
-        ESCAPABLE_URI_CHARS.set('|');
-        ESCAPABLE_URI_CHARS.set('^');
+        URI_REPLACEMENTS = CharEscaper.createUnicodeEscapes(uriChars.toString());
     }
 
+    private final CharEscaper contentEscaper = new CharEscaper(CONTENT_REPLACEMENTS, true);
+    private final CharEscaper uriEscaper = new CharEscaper(URI_REPLACEMENTS, true);
+
     protected NTriplesSerializer(CharSink sink) {
         super(sink);
     }
@@ -136,92 +130,15 @@ public class NTriplesSerializer extends Pipe<CharSink> implements TripleSink {
     }
 
     protected void serializeUri(String uri) throws ParseException {
-        String escapedUri = escapeUri(uri);
-        sink.process(URI_START).process(escapedUri).process(URI_END).process(SPACE);
+        sink.process(URI_START);
+        uriEscaper.escape(uri, 0, sink);
+        sink.process(URI_END).process(SPACE);
     }
 
     protected void addContent(String content) throws ParseException {
-        String escapedContent = escapeContent(content);
-        sink.process(QUOTE).process(escapedContent).process(QUOTE);
-    }
-
-    private static String escapeContent(String str) {
-        int limit = str.length();
-        int pos = 0;
-        for (; pos < limit; pos++) {
-            char ch = str.charAt(pos);
-            if (ch > 0x80 || ESCAPABLE_CONTENT_CHARS.get(ch)) {
-                break;
-            }
-        }
-        if (pos == limit) {
-            return str;
-        }
-        StringBuilder result = new StringBuilder(limit);
-        result.append(str.substring(0, pos));
-        for (; pos < limit; pos++) {
-            char ch = str.charAt(pos);
-            if (ch < 0x80) {
-                switch (ch) {
-                    case '\\':
-                    case '\"':
-                        result.append('\\').append(ch);
-                        break;
-                    case '\b':
-                        result.append("\\b");
-                        break;
-                    case '\f':
-                        result.append("\\f");
-                        break;
-                    case '\n':
-                        result.append("\\n");
-                        break;
-                    case '\r':
-                        result.append("\\r");
-                        break;
-                    case '\t':
-                        result.append("\\t");
-                        break;
-                    default:
-                        result.append(ch);
-                }
-            } else if (ch <= 0xFFFF) {
-                result.append("\\u").append(String.format("%04X", (int) ch));
-            } else {
-                result.append("\\U").append(String.format("%08X", (int) ch));
-            }
-        }
-        return result.toString();
+        sink.process(QUOTE);
+        contentEscaper.escape(content, 0, sink);
+        sink.process(QUOTE);
     }
 
-    private static String escapeUri(String str) {
-        int limit = str.length();
-        int pos = 0;
-        for (; pos < limit; pos++) {
-            char ch = str.charAt(pos);
-            if (ch > 0x80 || ESCAPABLE_URI_CHARS.get(ch)) {
-                break;
-            }
-        }
-        if (pos == limit) {
-            return str;
-        }
-        StringBuilder result = new StringBuilder(limit);
-        result.append(str.substring(0, pos));
-        for (; pos < limit; pos++) {
-            char ch = str.charAt(pos);
-            if (ESCAPABLE_URI_CHARS.get(ch)) {
-                result.append("\\u").append(String.format("%04X", (int) ch));
-            } else if (ch < 0x80) {
-                result.append(ch);
-            } else if (ch <= 0xFFFF) {
-                result.append("\\u").append(String.format("%04X", (int) ch));
-            } else {
-                result.append("\\U").append(String.format("%08X", (int) ch));
-            }
-        }
-        return result.toString();
-    }
-
-
 }
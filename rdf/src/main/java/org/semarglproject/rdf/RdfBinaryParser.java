@@ -0,0 +1,388 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.ByteSink;
+import org.semarglproject.sink.Pipe;
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.TripleSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Implementation of streaming parser of binary format produced by {@link RdfBinarySerializer}.
+ * Blocks are decoded as soon as they are completely received, so memory usage is proportional to block size.
+ * Quads are passed to connected sink as quads if it implements {@link QuadSink} and as triples otherwise.
+ * <br>
+ * Streaming parser skips block index. Files can be decoded in parallel or in any order using
+ * {@link #readBlockOffsets(FileChannel)} and {@link #decodeBlock(FileChannel, long, TripleSink)}.
+ */
+public final class RdfBinaryParser extends Pipe<TripleSink> implements ByteSink {
+
+    private static final short READING_HEADER = 0;
+    private static final short READING_MARKER = 1;
+    private static final short READING_BLOCK_LENGTH = 2;
+    private static final short READING_BLOCK = 3;
+    private static final short READING_INDEX = 4;
+
+    private static final int MAX_VARINT_SHIFT = 28;
+    private static final int MAX_LONG_VARINT_SHIFT = 63;
+    // magic, version and end marker
+    private static final int MIN_INDEX_OFFSET = RdfBinarySerializer.MAGIC.length + 2;
+    private static final int INDEX_OFFSET_SIZE = 8;
+    // block marker and varint of block length
+    private static final int BLOCK_HEADER_SIZE = 6;
+
+    private final QuadSink quadSink;
+
+    private short state;
+    private int headerPos;
+    private int blockLength;
+    private int shift;
+
+    private byte[] blockBuffer = new byte[0];
+    private int blockPos;
+
+    private String[] terms = new String[0];
+    private int termCount;
+    private int pos;
+    private int end;
+
+    private RdfBinaryParser(TripleSink sink) {
+        super(sink);
+        quadSink = sink instanceof QuadSink ? (QuadSink) sink : null;
+    }
+
+    /**
+     * Creates instance of RdfBinaryParser connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of RdfBinaryParser
+     */
+    public static ByteSink connect(TripleSink sink) {
+        return new RdfBinaryParser(sink);
+    }
+
+    /**
+     * Reads block index of binary document
+     * @param channel channel of binary document, its position isn't changed
+     * @return offsets of blocks in document order
+     * @throws ParseException if index is missing or malformed
+     */
+    public static long[] readBlockOffsets(FileChannel channel) throws ParseException {
+        try {
+            long size = channel.size();
+            if (size < MIN_INDEX_OFFSET + 1 + INDEX_OFFSET_SIZE) {
+                throw new ParseException("Unsupported binary RDF document");
+            }
+            ByteBuffer header = read(channel, 0, RdfBinarySerializer.MAGIC.length + 1);
+            for (byte expected : RdfBinarySerializer.MAGIC) {
+                if (header.get() != expected) {
+                    throw new ParseException("Unsupported binary RDF document");
+                }
+            }
+            if (header.get() != RdfBinarySerializer.VERSION) {
+                throw new ParseException("Unsupported binary RDF document");
+            }
+            long indexEnd = size - INDEX_OFFSET_SIZE;
+            long indexOffset = read(channel, indexEnd, INDEX_OFFSET_SIZE).getLong();
+            if (indexOffset < MIN_INDEX_OFFSET || indexOffset >= indexEnd) {
+                throw new ParseException("Malformed block index");
+            }
+            ByteBuffer index = read(channel, indexOffset, (int) (indexEnd - indexOffset));
+            long blockCount = readLong(index);
+            // each block takes at least two bytes of index
+            if (blockCount > index.remaining() / 2) {
+                throw new ParseException("Malformed block index");
+            }
+            long[] result = new long[(int) blockCount];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = readLong(index);
+                readLong(index);
+                if (result[i] < MIN_INDEX_OFFSET - 1 || result[i] >= indexOffset) {
+                    throw new ParseException("Malformed block index");
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    /**
+     * Decodes single block of binary document and passes its statements to specified sink.
+     * Stream events aren't sent to sink. Channel can be shared by threads decoding different blocks.
+     * @param channel channel of binary document, its position isn't changed
+     * @param offset block offset returned by {@link #readBlockOffsets(FileChannel)}
+     * @param sink sink to pass statements to
+     * @throws ParseException if block is malformed
+     */
+    public static void decodeBlock(FileChannel channel, long offset, TripleSink sink) throws ParseException {
+        try {
+            long size = channel.size();
+            if (offset < 0 || offset >= size) {
+                throw new ParseException("Block expected at offset " + offset);
+            }
+            ByteBuffer header = read(channel, offset, (int) Math.min(BLOCK_HEADER_SIZE, size - offset));
+            if (header.get() != RdfBinarySerializer.BLOCK_MARKER) {
+                throw new ParseException("Block expected at offset " + offset);
+            }
+            long blockLength = readLong(header);
+            long blockStart = offset + header.position();
+            if (blockLength > size - blockStart) {
+                throw new ParseException("Malformed block length");
+            }
+            byte[] block = read(channel, blockStart, (int) blockLength).array();
+            new RdfBinaryParser(sink).decodeBlock(block, 0, block.length);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int count) throws IOException,
+            ParseException {
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new ParseException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long readLong(ByteBuffer buffer) throws ParseException {
+        long result = 0;
+        for (int bits = 0; bits <= MAX_LONG_VARINT_SHIFT; bits += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new ParseException("Unexpected end of block");
+            }
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << bits;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new ParseException("Malformed number");
+    }
+
+    @Override
+    public ByteSink process(byte[] buffer, int start, int count) throws ParseException {
+        int offset = start;
+        int limit = start + count;
+        while (offset < limit) {
+            switch (state) {
+                case READING_HEADER:
+                    byte expected = headerPos < RdfBinarySerializer.MAGIC.length
+                            ? RdfBinarySerializer.MAGIC[headerPos] : RdfBinarySerializer.VERSION;
+                    if (buffer[offset++] != expected) {
+                        throw new ParseException("Unsupported binary RDF document");
+                    }
+                    headerPos++;
+                    if (headerPos > RdfBinarySerializer.MAGIC.length) {
+                        state = READING_MARKER;
+                    }
+                    break;
+                case READING_MARKER:
+                    byte marker = buffer[offset++];
+                    if (marker == RdfBinarySerializer.BLOCK_MARKER) {
+                        state = READING_BLOCK_LENGTH;
+                        blockLength = 0;
+                        shift = 0;
+                    } else if (marker == RdfBinarySerializer.END_MARKER) {
+                        state = READING_INDEX;
+                    } else {
+                        throw new ParseException("Unknown block marker " + marker);
+                    }
+                    break;
+                case READING_BLOCK_LENGTH:
+                    byte b = buffer[offset++];
+                    blockLength |= (b & 0x7F) << shift;
+                    if ((b & 0x80) != 0) {
+                        shift += 7;
+                        if (shift > MAX_VARINT_SHIFT) {
+                            throw new ParseException("Malformed block length");
+                        }
+                    } else if (blockLength < 0) {
+                        throw new ParseException("Malformed block length");
+                    } else if (limit - offset >= blockLength) {
+                        // whole block is available, so it's decoded without copying
+                        decodeBlock(buffer, offset, offset + blockLength);
+                        offset += blockLength;
+                        state = READING_MARKER;
+                    } else {
+                        blockPos = 0;
+                        state = READING_BLOCK;
+                    }
+                    break;
+                case READING_BLOCK:
+                    int length = Math.min(limit - offset, blockLength - blockPos);
+                    if (blockBuffer.length < blockPos + length) {
+                        // buffer grows with received data, so corrupted block length can't exhaust memory
+                        int size = Math.min(Math.max(blockBuffer.length * 2, blockPos + length), blockLength);
+                        blockBuffer = Arrays.copyOf(blockBuffer, size);
+                    }
+                    System.arraycopy(buffer, offset, blockBuffer, blockPos, length);
+                    blockPos += length;
+                    offset += length;
+                    if (blockPos == blockLength) {
+                        decodeBlock(blockBuffer, 0, blockLength);
+                        state = READING_MARKER;
+                    }
+                    break;
+                default:
+                    // block index is used only by random access methods
+                    return this;
+            }
+        }
+        return this;
+    }
+
+    private void decodeBlock(byte[] buffer, int start, int limit) throws ParseException {
+        pos = start;
+        end = limit;
+        termCount = 0;
+        int count = readInt(buffer);
+        // each term takes at least two bytes, so corrupted counts are rejected before allocation
+        if (count > end - pos) {
+            throw new ParseException("Malformed term dictionary");
+        }
+        if (terms.length < count) {
+            terms = new String[count];
+        }
+        String prevTerm = "";
+        for (int i = 0; i < count; i++) {
+            int shared = readInt(buffer);
+            int length = readInt(buffer);
+            if (shared > prevTerm.length() || length > end - pos) {
+                throw new ParseException("Malformed term dictionary");
+            }
+            String suffix = new String(buffer, pos, length, RdfBinarySerializer.UTF8);
+            pos += length;
+            prevTerm = shared == 0 ? suffix : prevTerm.substring(0, shared).concat(suffix);
+            terms[i] = prevTerm;
+        }
+        termCount = count;
+
+        int rowCount = readInt(buffer);
+        if (rowCount > end - pos) {
+            throw new ParseException("Malformed block rows");
+        }
+        String subj = null;
+        for (int i = 0; i < rowCount; i++) {
+            if (pos == end) {
+                throw new ParseException("Unexpected end of block");
+            }
+            int flags = buffer[pos++];
+            if ((flags & RdfBinarySerializer.SAME_SUBJECT) == 0) {
+                subj = readTerm(buffer);
+            } else if (subj == null) {
+                throw new ParseException("Subject is missing");
+            }
+            String pred = readTerm(buffer);
+            String obj = readTerm(buffer);
+            int objectType = flags & RdfBinarySerializer.OBJECT_TYPE_MASK;
+            String langOrType = objectType >= RdfBinarySerializer.LANG_LITERAL ? readTerm(buffer) : null;
+            String graph = (flags & RdfBinarySerializer.HAS_GRAPH) != 0 ? readTerm(buffer) : null;
+            if (graph != null && quadSink != null) {
+                addQuad(objectType, subj, pred, obj, langOrType, graph);
+            } else {
+                addTriple(objectType, subj, pred, obj, langOrType);
+            }
+        }
+        if (pos != end) {
+            throw new ParseException("Unexpected data at the end of block");
+        }
+        // strings of previous block shouldn't be retained
+        Arrays.fill(terms, 0, termCount, null);
+    }
+
+    private void addTriple(int objectType, String subj, String pred, String obj, String langOrType) {
+        if (objectType == RdfBinarySerializer.NON_LITERAL) {
+            sink.addNonLiteral(subj, pred, obj);
+        } else if (objectType == RdfBinarySerializer.TYPED_LITERAL) {
+            sink.addTypedLiteral(subj, pred, obj, langOrType);
+        } else {
+            sink.addPlainLiteral(subj, pred, obj, langOrType);
+        }
+    }
+
+    private void addQuad(int objectType, String subj, String pred, String obj, String langOrType, String graph) {
+        if (objectType == RdfBinarySerializer.NON_LITERAL) {
+            quadSink.addNonLiteral(subj, pred, obj, graph);
+        } else if (objectType == RdfBinarySerializer.TYPED_LITERAL) {
+            quadSink.addTypedLiteral(subj, pred, obj, langOrType, graph);
+        } else {
+            quadSink.addPlainLiteral(subj, pred, obj, langOrType, graph);
+        }
+    }
+
+    private String readTerm(byte[] buffer) throws ParseException {
+        int id = readInt(buffer);
+        if (id >= termCount) {
+            throw new ParseException("Unknown term " + id);
+        }
+        return terms[id];
+    }
+
+    private int readInt(byte[] buffer) throws ParseException {
+        int result = 0;
+        for (int bits = 0; bits <= MAX_VARINT_SHIFT; bits += 7) {
+            if (pos == end) {
+                throw new ParseException("Unexpected end of block");
+            }
+            byte b = buffer[pos++];
+            result |= (b & 0x7F) << bits;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new ParseException("Malformed number");
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        return false;
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        super.startStream();
+        state = READING_HEADER;
+        headerPos = 0;
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        if (state != READING_INDEX) {
+            throw new ParseException("Unexpected end of stream");
+        }
+        super.endStream();
+    }
+
+}
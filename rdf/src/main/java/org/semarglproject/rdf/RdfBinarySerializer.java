@@ -0,0 +1,364 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.QuadSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link QuadSink} which serializes triples and quads to {@link OutputStream} using
+ * compact binary format. Statements are grouped into blocks which can be decoded independently:
+ * <pre>
+ * document := MAGIC VERSION block* END_MARKER index
+ * block    := BLOCK_MARKER varint(length of block body) varint(term count) term* varint(row count) row*
+ * term     := varint(length of prefix shared with previous term) varint(suffix byte count) UTF-8(suffix)
+ * row      := flags varint(subj)? varint(pred) varint(obj) varint(lang or type)? varint(graph)?
+ * index    := varint(block count) (varint(block offset) varint(row count))* int64(index offset)
+ * </pre>
+ * Terms of a block are sorted and front coded, rows refer to them by position. Subject is omitted
+ * if it's the same as in the previous row. Index allows to locate blocks without scanning a document,
+ * see {@link RdfBinaryParser#readBlockOffsets(java.nio.channels.FileChannel)}.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link #BLOCK_SIZE_PROPERTY}</li>
+ *     </ul>
+ */
+public final class RdfBinarySerializer implements QuadSink {
+
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Maximum count of statements per block. Bigger blocks compress better but require more memory
+     * for both serializer and parser. Integer value must be passed, default size is 16384.
+     */
+    public static final String BLOCK_SIZE_PROPERTY = "http://semarglproject.org/binary/properties/block-size";
+
+    static final byte[] MAGIC = {'S', 'R', 'D', 'F'};
+    static final byte VERSION = 1;
+
+    static final byte END_MARKER = 0;
+    static final byte BLOCK_MARKER = 1;
+
+    static final int NON_LITERAL = 0;
+    static final int PLAIN_LITERAL = 1;
+    static final int LANG_LITERAL = 2;
+    static final int TYPED_LITERAL = 3;
+    static final int OBJECT_TYPE_MASK = 3;
+    static final int HAS_GRAPH = 4;
+    static final int SAME_SUBJECT = 8;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 14;
+
+    // row layout in rows array
+    private static final int FLAGS = 0;
+    private static final int SUBJ = 1;
+    private static final int PRED = 2;
+    private static final int OBJ = 3;
+    private static final int LANG_OR_TYPE = 4;
+    private static final int GRAPH = 5;
+    private static final int ROW_SIZE = 6;
+
+    private final OutputStream outputStream;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    private final Map<String, Integer> termIds = new HashMap<String, Integer>();
+    private final List<String> terms = new ArrayList<String>();
+    private int[] rows;
+    private int rowCount;
+
+    private final Buffer buffer = new Buffer();
+    private final Buffer header = new Buffer();
+    private long position;
+    private long[] blockIndex = new long[16];
+    private int blockCount;
+    private IOException ioException;
+
+    private RdfBinarySerializer(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Creates instance of RdfBinarySerializer connected to specified output stream.
+     * Stream isn't closed after serialization.
+     * @param outputStream stream to be connected to
+     * @return instance of RdfBinarySerializer
+     */
+    public static QuadSink connect(OutputStream outputStream) {
+        return new RdfBinarySerializer(outputStream);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        addRow(NON_LITERAL, subj, pred, obj, null, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        addRow(lang == null ? PLAIN_LITERAL : LANG_LITERAL, subj, pred, content, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        addRow(TYPED_LITERAL, subj, pred, content, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        addRow(NON_LITERAL, subj, pred, obj, null, graph);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        addRow(lang == null ? PLAIN_LITERAL : LANG_LITERAL, subj, pred, content, lang, graph);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        addRow(TYPED_LITERAL, subj, pred, content, type, graph);
+    }
+
+    private void addRow(int objectType, String subj, String pred, String obj, String langOrType, String graph) {
+        int offset = rowCount * ROW_SIZE;
+        rows[offset + FLAGS] = graph == null ? objectType : objectType | HAS_GRAPH;
+        rows[offset + SUBJ] = getTermId(subj);
+        rows[offset + PRED] = getTermId(pred);
+        rows[offset + OBJ] = getTermId(obj);
+        rows[offset + LANG_OR_TYPE] = langOrType == null ? -1 : getTermId(langOrType);
+        rows[offset + GRAPH] = graph == null ? -1 : getTermId(graph);
+        rowCount++;
+        if (rowCount == blockSize) {
+            writeBlock();
+        }
+    }
+
+    private int getTermId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = terms.size();
+            termIds.put(term, id);
+            terms.add(term);
+        }
+        return id;
+    }
+
+    /**
+     * Writes buffered statements as a block. I/O errors are reported at the end of stream
+     * since {@link QuadSink} methods can't throw checked exceptions.
+     */
+    private void writeBlock() {
+        if (rowCount > 0 && ioException == null) {
+            try {
+                encodeBlock();
+                header.clear();
+                header.write(BLOCK_MARKER);
+                header.writeVarint(buffer.size);
+                write(header);
+                write(buffer);
+            } catch (IOException e) {
+                ioException = e;
+            }
+        }
+        termIds.clear();
+        terms.clear();
+        rowCount = 0;
+    }
+
+    /**
+     * Encodes buffered statements to buffer. Terms are sorted to make front coding efficient,
+     * so term ids assigned in order of appearance are remapped.
+     */
+    private void encodeBlock() {
+        String[] sortedTerms = terms.toArray(new String[terms.size()]);
+        Arrays.sort(sortedTerms);
+        for (int i = 0; i < sortedTerms.length; i++) {
+            termIds.put(sortedTerms[i], i);
+        }
+        int[] remap = new int[sortedTerms.length];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = termIds.get(terms.get(i));
+        }
+
+        buffer.clear();
+        buffer.writeVarint(sortedTerms.length);
+        String prevTerm = "";
+        for (String term : sortedTerms) {
+            int shared = getSharedPrefixLength(prevTerm, term);
+            byte[] suffix = term.substring(shared).getBytes(UTF8);
+            buffer.writeVarint(shared);
+            buffer.writeVarint(suffix.length);
+            buffer.write(suffix, 0, suffix.length);
+            prevTerm = term;
+        }
+        buffer.writeVarint(rowCount);
+        int prevSubj = -1;
+        for (int offset = 0; offset < rowCount * ROW_SIZE; offset += ROW_SIZE) {
+            int flags = rows[offset + FLAGS];
+            int subj = remap[rows[offset + SUBJ]];
+            if (subj == prevSubj) {
+                flags |= SAME_SUBJECT;
+            }
+            buffer.write(flags);
+            if (subj != prevSubj) {
+                buffer.writeVarint(subj);
+                prevSubj = subj;
+            }
+            buffer.writeVarint(remap[rows[offset + PRED]]);
+            buffer.writeVarint(remap[rows[offset + OBJ]]);
+            if ((flags & OBJECT_TYPE_MASK) >= LANG_LITERAL) {
+                buffer.writeVarint(remap[rows[offset + LANG_OR_TYPE]]);
+            }
+            if ((flags & HAS_GRAPH) != 0) {
+                buffer.writeVarint(remap[rows[offset + GRAPH]]);
+            }
+        }
+
+        if (blockCount * 2 == blockIndex.length) {
+            blockIndex = Arrays.copyOf(blockIndex, blockIndex.length * 2);
+        }
+        blockIndex[blockCount * 2] = position;
+        blockIndex[blockCount * 2 + 1] = rowCount;
+        blockCount++;
+    }
+
+    /**
+     * Computes length of common prefix which doesn't end in the middle of surrogate pair
+     */
+    private static int getSharedPrefixLength(String str1, String str2) {
+        int limit = Math.min(str1.length(), str2.length());
+        int result = 0;
+        while (result < limit && str1.charAt(result) == str2.charAt(result)) {
+            result++;
+        }
+        if (result > 0 && Character.isHighSurrogate(str1.charAt(result - 1))) {
+            result--;
+        }
+        return result;
+    }
+
+    private void write(Buffer data) throws IOException {
+        outputStream.write(data.data, 0, data.size);
+        position += data.size;
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        if (rows == null || rows.length != blockSize * ROW_SIZE) {
+            rows = new int[blockSize * ROW_SIZE];
+        }
+        rowCount = 0;
+        termIds.clear();
+        terms.clear();
+        blockCount = 0;
+        position = 0;
+        ioException = null;
+        buffer.clear();
+        buffer.write(MAGIC, 0, MAGIC.length);
+        buffer.write(VERSION);
+        try {
+            write(buffer);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        writeBlock();
+        if (ioException != null) {
+            throw new ParseException(ioException);
+        }
+        long indexOffset = position + 1;
+        buffer.clear();
+        buffer.write(END_MARKER);
+        buffer.writeVarint(blockCount);
+        for (int i = 0; i < blockCount * 2; i++) {
+            buffer.writeVarint(blockIndex[i]);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer.write((int) (indexOffset >>> shift));
+        }
+        try {
+            write(buffer);
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+    }
+
+    @Override
+    public boolean setProperty(String key, Object value) {
+        if (BLOCK_SIZE_PROPERTY.equals(key) && value instanceof Integer) {
+            if ((Integer) value <= 0) {
+                throw new IllegalArgumentException("Block size must be positive");
+            }
+            blockSize = (Integer) value;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Growable byte buffer without synchronization overhead of {@link java.io.ByteArrayOutputStream}
+     */
+    private static final class Buffer {
+
+        private byte[] data = new byte[1 << 12];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void write(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int start, int count) {
+            if (size + count > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+            }
+            System.arraycopy(bytes, start, data, size, count);
+            size += count;
+        }
+
+        void writeVarint(long value) {
+            long rest = value;
+            while ((rest & ~0x7FL) != 0) {
+                write((int) (rest & 0x7F) | 0x80);
+                rest >>>= 7;
+            }
+            write((int) rest);
+        }
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.semarglproject.rdf;
 
+import org.semarglproject.ri.IriCache;
 import org.semarglproject.ri.MalformedIriException;
 import org.semarglproject.ri.RIUtils;
 import org.semarglproject.sink.Pipe;
@@ -68,11 +69,12 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
 
     private String baseUri = "";
 
-    private final Stack<Short> modeStack = new Stack<Short>();
-    private final Stack<String> langStack = new Stack<String>();
-    private final Stack<String> baseStack = new Stack<String>();
-    private final Stack<String> subjStack = new Stack<String>();
-    private final Stack<Integer> subjLiIndexStack = new Stack<Integer>();
+    // unsynchronized stacks of primitives, no boxing on push and pop
+    private final ShortStack modeStack = new ShortStack();
+    private final StringStack langStack = new StringStack();
+    private final StringStack baseStack = new StringStack();
+    private final StringStack subjStack = new StringStack();
+    private final IntStack subjLiIndexStack = new IntStack();
     private final Map<String, String> nsMappings = new HashMap<String, String>();
 
     private final Set<String> processedIDs = new HashSet<String>();
@@ -100,6 +102,9 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
     private ProcessorGraphHandler processorGraphHandler = null;
     private boolean ignoreErrors = false;
 
+    private IriCache iriCache = new IriCache();
+    private boolean sharedIriCache = false;
+
     // holds data for triples which addition depends on XML node contents (blank or not)
     private List<String> pendingTriples = new ArrayList<String>();
 
@@ -146,7 +151,7 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
         if (parseDepth > 0) {
             parseDepth++;
             if (mode == PARSE_TYPE_LITERAL) {
-                parse.append(XmlUtils.serializeOpenTag(nsUri, qname, nsMappings, attrs, true));
+                XmlUtils.serializeOpenTag(parse, nsUri, qname, nsMappings, attrs, true);
                 nsMappings.clear();
                 return;
             }
@@ -589,7 +594,7 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
      */
     private String resolveIRI(String baseIri, String iri) throws SAXException {
         try {
-            return RIUtils.resolveIri(baseIri, iri);
+            return iriCache.resolve(baseIri, iri);
         } catch (MalformedIriException e) {
             error(e.getMessage());
             return null;
@@ -622,6 +627,9 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
         processedIDs.clear();
         parse = new StringBuilder();
         pendingTriples.clear();
+        if (!sharedIriCache) {
+            iriCache.clear();
+        }
     }
 
     @Override
@@ -722,7 +730,94 @@ public final class RdfXmlParser extends Pipe<TripleSink> implements XmlSink {
             processorGraphHandler = (ProcessorGraphHandler) value;
         } else if (StreamProcessor.ENABLE_ERROR_RECOVERY.equals(key) && value instanceof Boolean) {
             ignoreErrors = (Boolean) value;
+        } else if (StreamProcessor.IRI_CACHE_PROPERTY.equals(key) && value instanceof IriCache) {
+            iriCache = (IriCache) value;
+            sharedIriCache = true;
+            return true;
         }
         return false;
     }
+
+    private static final class ShortStack {
+        private short[] items = new short[16];
+        private int size = 0;
+
+        void push(short item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        short pop() {
+            if (size == 0) {
+                throw new EmptyStackException();
+            }
+            return items[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class IntStack {
+        private int[] items = new int[16];
+        private int size = 0;
+
+        void push(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int pop() {
+            if (size == 0) {
+                throw new EmptyStackException();
+            }
+            return items[--size];
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class StringStack {
+        private String[] items = new String[16];
+        private int size = 0;
+
+        void push(String item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        String pop() {
+            if (size == 0) {
+                throw new EmptyStackException();
+            }
+            String item = items[--size];
+            items[size] = null;
+            return item;
+        }
+
+        String peek() {
+            if (size == 0) {
+                throw new EmptyStackException();
+            }
+            return items[size - 1];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,422 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.Pipe;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.vocab.RDF;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link TripleSink} which serializes triples to {@link CharSink} using
+ * <a href="http://www.w3.org/TR/2004/REC-rdf-syntax-grammar-20040210/">RDF/XML</a> syntax.
+ * <br>
+ * Output is streamed: consecutive triples with the same subject are grouped into single
+ * <code>rdf:Description</code>, blank node objects generated by parsers for nested nodes are written
+ * as nested descriptions if their triples follow. Namespace prefixes are generated on the fly and declared
+ * on property elements, so memory usage doesn't depend on graph size. Triples with predicates which
+ * can't be written as XML QNames are skipped, characters not allowed in XML are dropped.
+ * XML literals are written using <code>rdf:parseType="Literal"</code>, so their content must be well-formed.
+ */
+public final class RdfXmlSerializer extends Pipe<CharSink> implements TripleSink {
+
+    private static final String EOL = "\n";
+    private static final String INDENT = "    ";
+    private static final String DESCRIPTION_END = "</rdf:Description>";
+
+    // generated prefixes aren't remembered beyond this count to keep memory bounded
+    private static final int MAX_REMEMBERED_PREFIXES = 1024;
+
+    private static final Map<String, String> KNOWN_PREFIXES = new HashMap<String, String>();
+
+    static {
+        KNOWN_PREFIXES.put("http://www.w3.org/2000/01/rdf-schema#", "rdfs");
+        KNOWN_PREFIXES.put("http://www.w3.org/2002/07/owl#", "owl");
+        KNOWN_PREFIXES.put("http://www.w3.org/2001/XMLSchema#", "xsd");
+        KNOWN_PREFIXES.put("http://xmlns.com/foaf/0.1/", "foaf");
+        KNOWN_PREFIXES.put("http://purl.org/dc/elements/1.1/", "dc");
+        KNOWN_PREFIXES.put("http://purl.org/dc/terms/", "dcterms");
+        KNOWN_PREFIXES.put("http://www.w3.org/2004/02/skos/core#", "skos");
+        KNOWN_PREFIXES.put("http://schema.org/", "schema");
+    }
+
+    private final Map<String, String> prefixes = new HashMap<String, String>();
+    private final List<NestedNode> nestedNodes = new ArrayList<NestedNode>();
+    private final StringBuilder escapeBuffer = new StringBuilder();
+
+    private String topSubj;
+    private String prevSubj;
+    private int nextPrefixId;
+    // namespace declared by last written property element
+    private String declaredNs;
+
+    private RdfXmlSerializer(CharSink sink) {
+        super(sink);
+    }
+
+    /**
+     * Creates instance of RdfXmlSerializer connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of RdfXmlSerializer
+     */
+    public static TripleSink connect(CharSink sink) {
+        return new RdfXmlSerializer(sink);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        try {
+            startDescription(subj);
+            String qname = startProperty(pred);
+            if (qname == null) {
+                return;
+            }
+            if (!obj.startsWith(RDF.BNODE_PREFIX)) {
+                sink.process(" rdf:resource=\"");
+                escape(obj, true);
+                sink.process("\"/>").process(EOL);
+            } else if (obj.endsWith(RDF.SHORTENABLE_BNODE_SUFFIX) && !obj.equals(prevSubj)) {
+                sink.process('>').process(EOL);
+                indent(nestedNodes.size() * 2 + 3);
+                sink.process("<rdf:Description rdf:nodeID=\"").process(toNodeId(obj)).process("\">").process(EOL);
+                nestedNodes.add(new NestedNode(obj, qname, declaredNs));
+                prevSubj = obj;
+            } else {
+                sink.process(" rdf:nodeID=\"").process(toNodeId(obj)).process("\"/>").process(EOL);
+            }
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        try {
+            startDescription(subj);
+            String qname = startProperty(pred);
+            if (qname == null) {
+                return;
+            }
+            if (lang != null) {
+                sink.process(" xml:lang=\"");
+                escape(lang, true);
+                sink.process('"');
+            }
+            endProperty(qname, content);
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        try {
+            startDescription(subj);
+            String qname = startProperty(pred);
+            if (qname == null) {
+                return;
+            }
+            if (RDF.XML_LITERAL.equals(type)) {
+                sink.process(" rdf:parseType=\"Literal\">").process(content);
+                sink.process("</").process(qname).process('>').process(EOL);
+                return;
+            }
+            sink.process(" rdf:datatype=\"");
+            escape(type, true);
+            sink.process('"');
+            endProperty(qname, content);
+        } catch (ParseException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void startStream() throws ParseException {
+        super.startStream();
+        topSubj = null;
+        prevSubj = null;
+        nestedNodes.clear();
+        prefixes.clear();
+        nextPrefixId = 0;
+        sink.process("<?xml version=\"1.0\"?>").process(EOL);
+        sink.process("<rdf:RDF xmlns:rdf=\"").process(RDF.NS).process("\">").process(EOL);
+    }
+
+    @Override
+    public void endStream() throws ParseException {
+        while (!nestedNodes.isEmpty()) {
+            closeNestedNode();
+        }
+        if (topSubj != null) {
+            indent(1);
+            sink.process(DESCRIPTION_END).process(EOL);
+        }
+        sink.process("</rdf:RDF>").process(EOL);
+        super.endStream();
+    }
+
+    @Override
+    protected boolean setPropertyInternal(String key, Object value) {
+        return false;
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    private void startDescription(String subj) throws ParseException {
+        if (subj.equals(prevSubj)) {
+            return;
+        }
+        while (!nestedNodes.isEmpty()) {
+            closeNestedNode();
+            if (subj.equals(prevSubj)) {
+                return;
+            }
+        }
+        if (topSubj != null) {
+            indent(1);
+            sink.process(DESCRIPTION_END).process(EOL);
+        }
+        indent(1);
+        if (subj.startsWith(RDF.BNODE_PREFIX)) {
+            sink.process("<rdf:Description rdf:nodeID=\"").process(toNodeId(subj));
+        } else {
+            sink.process("<rdf:Description rdf:about=\"");
+            escape(subj, true);
+        }
+        sink.process("\">").process(EOL);
+        topSubj = subj;
+        prevSubj = subj;
+    }
+
+    private void closeNestedNode() throws ParseException {
+        NestedNode node = nestedNodes.remove(nestedNodes.size() - 1);
+        indent(nestedNodes.size() * 2 + 3);
+        sink.process(DESCRIPTION_END).process(EOL);
+        indent(nestedNodes.size() * 2 + 2);
+        sink.process("</").process(node.qname).process('>').process(EOL);
+        prevSubj = nestedNodes.isEmpty() ? topSubj : nestedNodes.get(nestedNodes.size() - 1).bnode;
+    }
+
+    /**
+     * Writes open tag of property element without closing bracket
+     * @param pred predicate IRI
+     * @return property element QName or null if predicate can't be serialized
+     * @throws ParseException
+     */
+    private String startProperty(String pred) throws ParseException {
+        int localNameStart = findLocalNameStart(pred);
+        if (localNameStart == -1) {
+            return null;
+        }
+        String ns = pred.substring(0, localNameStart);
+        String localName = pred.substring(localNameStart);
+        String prefix;
+        boolean declare = false;
+        if (ns.equals(RDF.NS)) {
+            if (isForbiddenRdfName(localName)) {
+                return null;
+            }
+            prefix = "rdf";
+        } else {
+            prefix = prefixes.get(ns);
+            if (prefix == null) {
+                prefix = KNOWN_PREFIXES.get(ns);
+                if (prefix == null) {
+                    prefix = "ns" + nextPrefixId++;
+                }
+                if (prefixes.size() < MAX_REMEMBERED_PREFIXES) {
+                    prefixes.put(ns, prefix);
+                }
+            }
+            declare = !isDeclared(ns, prefix);
+        }
+        String qname = prefix + ':' + localName;
+        indent(nestedNodes.size() * 2 + 2);
+        sink.process('<').process(qname);
+        if (declare) {
+            sink.process(" xmlns:").process(prefix).process("=\"");
+            escape(ns, true);
+            sink.process('"');
+            declaredNs = ns;
+        } else {
+            declaredNs = null;
+        }
+        return qname;
+    }
+
+    private boolean isDeclared(String ns, String prefix) {
+        // namespaces are declared only on property elements, nested nodes are in scope of their declarations
+        for (NestedNode node : nestedNodes) {
+            if (ns.equals(node.declaredNs) && node.qname.startsWith(prefix)
+                    && node.qname.charAt(prefix.length()) == ':') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void endProperty(String qname, String content) throws ParseException {
+        sink.process('>');
+        escape(content, false);
+        sink.process("</").process(qname).process('>').process(EOL);
+    }
+
+    private void indent(int count) throws ParseException {
+        for (int i = 0; i < count; i++) {
+            sink.process(INDENT);
+        }
+    }
+
+    /**
+     * Finds longest suffix of IRI which is valid XML local name
+     * @param iri IRI to split
+     * @return start of local name or -1 if IRI can't be split
+     */
+    static int findLocalNameStart(String iri) {
+        int start = iri.length();
+        while (start > 0 && isNameChar(iri.charAt(start - 1))) {
+            start--;
+        }
+        while (start < iri.length() && !isNameStartChar(iri.charAt(start))) {
+            start++;
+        }
+        if (start == 0 || start == iri.length()) {
+            return -1;
+        }
+        return start;
+    }
+
+    private static boolean isNameStartChar(char ch) {
+        return ch == '_' || Character.isLetter(ch);
+    }
+
+    private static boolean isNameChar(char ch) {
+        return isNameStartChar(ch) || ch == '-' || ch == '.' || ch >= '0' && ch <= '9' || ch == '\u00B7';
+    }
+
+    @SuppressWarnings("deprecation")
+    private static boolean isForbiddenRdfName(String localName) {
+        String iri = RDF.NS + localName;
+        return iri.equals(RDF.DESCRIPTION) || iri.equals(RDF.LI) || iri.equals(RDF.ABOUT)
+                || iri.equals(RDF.RESOURCE) || iri.equals(RDF.NODEID) || iri.equals(RDF.ID)
+                || iri.equals(RDF.DATATYPE) || iri.equals(RDF.PARSE_TYPE) || iri.equals(RDF.BAG_ID)
+                || iri.equals(RDF.ABOUT_EACH) || iri.equals(RDF.ABOUT_EACH_PREFIX) || iri.equals(RDF.RDF);
+    }
+
+    /**
+     * Converts blank node to rdf:nodeID value. Labels which are valid XML names are kept,
+     * other ones (and ones which can be confused with converted labels) are hex encoded.
+     */
+    private String toNodeId(String bnode) {
+        String label = bnode.substring(RDF.BNODE_PREFIX.length());
+        boolean valid = !label.isEmpty() && isNameStartChar(label.charAt(0)) && !label.startsWith("x_");
+        for (int i = 1; valid && i < label.length(); i++) {
+            valid = isNameChar(label.charAt(i));
+        }
+        if (valid) {
+            return label;
+        }
+        escapeBuffer.setLength(0);
+        escapeBuffer.append("x_");
+        for (int i = 0; i < label.length(); i++) {
+            String hex = Integer.toHexString(label.charAt(i));
+            for (int j = hex.length(); j < 4; j++) {
+                escapeBuffer.append('0');
+            }
+            escapeBuffer.append(hex);
+        }
+        return escapeBuffer.toString();
+    }
+
+    private void escape(String value, boolean attribute) throws ParseException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            String replacement;
+            switch (ch) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = attribute ? "&quot;" : null;
+                    break;
+                case '\r':
+                    replacement = "&#xD;";
+                    break;
+                case '\n':
+                    replacement = attribute ? "&#xA;" : null;
+                    break;
+                case '\t':
+                    replacement = attribute ? "&#x9;" : null;
+                    break;
+                default:
+                    replacement = isXmlChar(value, i) ? null : "";
+            }
+            if (replacement != null) {
+                if (start < i) {
+                    sink.process(value.substring(start, i));
+                }
+                sink.process(replacement);
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            sink.process(value);
+        } else if (start < length) {
+            sink.process(value.substring(start));
+        }
+    }
+
+    private static boolean isXmlChar(String value, int pos) {
+        char ch = value.charAt(pos);
+        if (ch < 0x20) {
+            return ch == '\t' || ch == '\n' || ch == '\r';
+        }
+        if (Character.isHighSurrogate(ch)) {
+            return pos + 1 < value.length() && Character.isLowSurrogate(value.charAt(pos + 1));
+        }
+        if (Character.isLowSurrogate(ch)) {
+            return pos > 0 && Character.isHighSurrogate(value.charAt(pos - 1));
+        }
+        return ch != 0xFFFE && ch != 0xFFFF;
+    }
+
+    private static final class NestedNode {
+        private final String bnode;
+        private final String qname;
+        private final String declaredNs;
+
+        private NestedNode(String bnode, String qname, String declaredNs) {
+            this.bnode = bnode;
+            this.qname = qname;
+            this.declaredNs = declaredNs;
+        }
+    }
+}
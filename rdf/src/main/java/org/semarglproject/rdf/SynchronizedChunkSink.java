@@ -0,0 +1,163 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.QuadBatchSink;
+import org.semarglproject.sink.QuadSink;
+import org.semarglproject.sink.TripleBatchSink;
+import org.semarglproject.sink.TripleSink;
+
+/**
+ * Output of parsers created by {@link org.semarglproject.sink.SplittableSink#createChunkSink()}.
+ * Collects statements of a chunk into fixed size blocks and passes each block to shared sink
+ * holding its lock once, so chunk parsers don't contend on every statement. Blocks are passed
+ * as is to {@link TripleBatchSink} instances. Remaining statements are flushed on end stream event,
+ * other stream events sent by owning parser are hidden.
+ */
+final class SynchronizedChunkSink implements QuadSink {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final TripleSink sink;
+    private final QuadSink quadSink;
+
+    private final String[] subjs = new String[BLOCK_SIZE];
+    private final String[] preds = new String[BLOCK_SIZE];
+    private final String[] objs = new String[BLOCK_SIZE];
+    private final byte[] objTypes = new byte[BLOCK_SIZE];
+    private final String[] langsOrTypes = new String[BLOCK_SIZE];
+    private final String[] graphs = new String[BLOCK_SIZE];
+    private int count = 0;
+
+    SynchronizedChunkSink(TripleSink sink) {
+        this.sink = sink;
+        quadSink = sink instanceof QuadSink ? (QuadSink) sink : null;
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj) {
+        add(subj, pred, obj, TripleBatchSink.NON_LITERAL, null, null);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang) {
+        add(subj, pred, content, TripleBatchSink.PLAIN_LITERAL, lang, null);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type) {
+        add(subj, pred, content, TripleBatchSink.TYPED_LITERAL, type, null);
+    }
+
+    @Override
+    public void addNonLiteral(String subj, String pred, String obj, String graph) {
+        add(subj, pred, obj, TripleBatchSink.NON_LITERAL, null, graph);
+    }
+
+    @Override
+    public void addPlainLiteral(String subj, String pred, String content, String lang, String graph) {
+        add(subj, pred, content, TripleBatchSink.PLAIN_LITERAL, lang, graph);
+    }
+
+    @Override
+    public void addTypedLiteral(String subj, String pred, String content, String type, String graph) {
+        add(subj, pred, content, TripleBatchSink.TYPED_LITERAL, type, graph);
+    }
+
+    private void add(String subj, String pred, String obj, byte objType, String langOrType, String graph) {
+        subjs[count] = subj;
+        preds[count] = pred;
+        objs[count] = obj;
+        objTypes[count] = objType;
+        langsOrTypes[count] = langOrType;
+        graphs[count] = graph;
+        count++;
+        if (count == BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+        synchronized (sink) {
+            if (sink instanceof QuadBatchSink) {
+                ((QuadBatchSink) sink).addQuads(subjs, preds, objs, objTypes, langsOrTypes, graphs, count);
+            } else if (sink instanceof TripleBatchSink) {
+                ((TripleBatchSink) sink).addTriples(subjs, preds, objs, objTypes, langsOrTypes, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    replay(i);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            subjs[i] = null;
+            preds[i] = null;
+            objs[i] = null;
+            langsOrTypes[i] = null;
+            graphs[i] = null;
+        }
+        count = 0;
+    }
+
+    private void replay(int i) {
+        String graph = graphs[i];
+        switch (objTypes[i]) {
+            case TripleBatchSink.NON_LITERAL:
+                if (graph == null || quadSink == null) {
+                    sink.addNonLiteral(subjs[i], preds[i], objs[i]);
+                } else {
+                    quadSink.addNonLiteral(subjs[i], preds[i], objs[i], graph);
+                }
+                break;
+            case TripleBatchSink.PLAIN_LITERAL:
+                if (graph == null || quadSink == null) {
+                    sink.addPlainLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i]);
+                } else {
+                    quadSink.addPlainLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i], graph);
+                }
+                break;
+            default:
+                if (graph == null || quadSink == null) {
+                    sink.addTypedLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i]);
+                } else {
+                    quadSink.addTypedLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i], graph);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void setBaseUri(String baseUri) {
+    }
+
+    @Override
+    public void startStream() {
+        count = 0;
+    }
+
+    @Override
+    public void endStream() {
+        flush();
+    }
+
+    @Override
+    public boolean setProperty(String key, Object value) {
+        return false;
+    }
+}
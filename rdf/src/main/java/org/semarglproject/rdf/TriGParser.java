@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.QuadSink;
+
+/**
+ * Implementation of streaming <a href="http://www.w3.org/TR/trig/">TriG</a> parser.
+ * Triples of default graph are passed to sink as triples, triples of named graphs as quads.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link org.semarglproject.source.StreamProcessor#PROCESSOR_GRAPH_HANDLER_PROPERTY}</li>
+ *         <li>{@link org.semarglproject.source.StreamProcessor#ENABLE_ERROR_RECOVERY}</li>
+ *     </ul>
+ */
+public final class TriGParser extends AbstractTurtleParser {
+
+    /**
+     * Class URI for errors produced by a parser
+     */
+    public static final String ERROR = "http://semarglproject.org/trig/Error";
+
+    private TriGParser(QuadSink sink) {
+        super(sink, ERROR, true);
+    }
+
+    /**
+     * Creates instance of TriGParser connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of TriGParser
+     */
+    public static CharSink connect(QuadSink sink) {
+        return new TriGParser(sink);
+    }
+
+}
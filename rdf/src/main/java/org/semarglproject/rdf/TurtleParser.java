@@ -0,0 +1,50 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.semarglproject.sink.CharSink;
+import org.semarglproject.sink.TripleSink;
+
+/**
+ * Implementation of streaming <a href="http://www.w3.org/TR/turtle/">Turtle</a> parser.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link org.semarglproject.source.StreamProcessor#PROCESSOR_GRAPH_HANDLER_PROPERTY}</li>
+ *         <li>{@link org.semarglproject.source.StreamProcessor#ENABLE_ERROR_RECOVERY}</li>
+ *     </ul>
+ */
+public final class TurtleParser extends AbstractTurtleParser {
+
+    /**
+     * Class URI for errors produced by a parser
+     */
+    public static final String ERROR = "http://semarglproject.org/turtle/Error";
+
+    private TurtleParser(TripleSink sink) {
+        super(sink, ERROR, false);
+    }
+
+    /**
+     * Creates instance of TurtleParser connected to specified sink.
+     * @param sink sink to be connected to
+     * @return instance of TurtleParser
+     */
+    public static CharSink connect(TripleSink sink) {
+        return new TurtleParser(sink);
+    }
+
+}
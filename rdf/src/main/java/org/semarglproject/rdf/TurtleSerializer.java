@@ -20,17 +20,57 @@ import org.semarglproject.sink.Pipe;
 import org.semarglproject.sink.TripleSink;
 import org.semarglproject.vocab.RDF;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Implementation of {@link TripleSink} which serializes triples to {@link CharSink} using
- * <a href="http://www.w3.org/TR/2012/WD-turtle-20120710/">Turtle</a> syntax. *
+ * <a href="http://www.w3.org/TR/2012/WD-turtle-20120710/">Turtle</a> syntax.
+ * <br>
+ * By default triples are written as soon as they arrive, so only consecutive triples with the same subject
+ * are grouped. When {@link #WINDOW_SIZE_PROPERTY} is set, triples are buffered and window is flushed
+ * when it becomes full and at the end of stream. Triples of each flushed window are regrouped by subject
+ * and predicate, blank nodes described in the same window are nested. Namespaces used by the first window
+ * are declared as prefixes before any triple is written.
+ * <br>
+ *     List of supported options:
+ *     <ul>
+ *         <li>{@link #WINDOW_SIZE_PROPERTY}</li>
+ *     </ul>
  */
 public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink {
 
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Maximum count of triples buffered before they are written. Bigger windows give more compact output
+     * at cost of memory and latency. Integer value must be passed, 0 (default) disables buffering.
+     */
+    public static final String WINDOW_SIZE_PROPERTY = "http://semarglproject.org/turtle/properties/window-size";
+
+    private static final int NON_LITERAL = 0;
+    private static final int PLAIN_LITERAL = 1;
+    private static final int TYPED_LITERAL = 2;
+
+    private static final int MAX_PREFIXES = 16;
+    private static final int MIN_PREFIX_USES = 2;
+    private static final int MAX_PREFIX_NAME_LENGTH = 8;
+    private static final String RDF_PREFIX = "rdf";
+    private static final String DEFAULT_PREFIX_NAME = "ns";
+
+    private static final Map<String, String> WELL_KNOWN_PREFIXES = new HashMap<String, String>();
+
     private static final String DOT_EOL = " .\n";
     private static final String COMMA_EOL = " ,\n";
     private static final String SEMICOLON_EOL = " ;\n";
@@ -47,12 +87,46 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     private static final char RDF_TYPE_ABBR = 'a';
     private static final String INDENT = "    ";
 
+    private static final String[] CONTENT_REPLACEMENTS = new String[0x80];
+    private static final String[] URI_REPLACEMENTS;
+
+    static {
+        CONTENT_REPLACEMENTS['\\'] = "\\\\";
+        CONTENT_REPLACEMENTS['\"'] = "\\\"";
+        CONTENT_REPLACEMENTS['\r'] = "\\r";
+
+        StringBuilder uriChars = new StringBuilder("\\<>{}\"`|^");
+        for (char ch = 0; ch <= 0x20; ch++) {
+            uriChars.append(ch);
+        }
+        URI_REPLACEMENTS = CharEscaper.createUnicodeEscapes(uriChars.toString());
+
+        WELL_KNOWN_PREFIXES.put("http://www.w3.org/2000/01/rdf-schema#", "rdfs");
+        WELL_KNOWN_PREFIXES.put("http://www.w3.org/2001/XMLSchema#", "xsd");
+        WELL_KNOWN_PREFIXES.put("http://www.w3.org/2002/07/owl#", "owl");
+        WELL_KNOWN_PREFIXES.put("http://www.w3.org/2004/02/skos/core#", "skos");
+        WELL_KNOWN_PREFIXES.put("http://xmlns.com/foaf/0.1/", "foaf");
+        WELL_KNOWN_PREFIXES.put("http://purl.org/dc/elements/1.1/", "dc");
+        WELL_KNOWN_PREFIXES.put("http://purl.org/dc/terms/", "dcterms");
+        WELL_KNOWN_PREFIXES.put("http://schema.org/", "schema");
+    }
+
     private String prevSubj;
     private String prevPred;
-    private final Queue<String> bnodeStack = new LinkedList<String>();
+    private final Deque<String> bnodeStack = new LinkedList<String>();
+    private final Deque<String> predStack = new LinkedList<String>();
     private final Set<String> namedBnodes = new HashSet<String>();
     private String baseUri;
 
+    private int windowSize = 0;
+    private final List<Statement> window = new ArrayList<Statement>();
+    // namespace -> prefix name, RDF namespace is always declared and isn't stored here
+    private final Map<String, String> prefixes = new LinkedHashMap<String, String>();
+    private boolean headerWritten;
+
+    private final CharEscaper contentEscaper = new CharEscaper(CONTENT_REPLACEMENTS, false);
+    private final CharEscaper uriEscaper = new CharEscaper(URI_REPLACEMENTS, false);
+
     private TurtleSerializer(CharSink sink) {
         super(sink);
     }
@@ -69,15 +143,10 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     @Override
     public void addNonLiteral(String subj, String pred, String obj) {
         try {
-            startTriple(subj, pred);
-            if (obj.startsWith(RDF.BNODE_PREFIX)) {
-                if (!namedBnodes.contains(obj) && obj.endsWith(RDF.SHORTENABLE_BNODE_SUFFIX)) {
-                    openBnode(obj);
-                } else {
-                    sink.process(obj);
-                }
+            if (windowSize > 0) {
+                bufferStatement(NON_LITERAL, subj, pred, obj, null);
             } else {
-                serializeUri(obj);
+                writeNonLiteral(subj, pred, obj);
             }
         } catch (ParseException e) {
             // ignore
@@ -87,10 +156,10 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     @Override
     public void addPlainLiteral(String subj, String pred, String content, String lang) {
         try {
-            startTriple(subj, pred);
-            addContent(content);
-            if (lang != null) {
-                sink.process('@').process(lang);
+            if (windowSize > 0) {
+                bufferStatement(PLAIN_LITERAL, subj, pred, content, lang);
+            } else {
+                writePlainLiteral(subj, pred, content, lang);
             }
         } catch (ParseException e) {
             // ignore
@@ -100,30 +169,65 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     @Override
     public void addTypedLiteral(String subj, String pred, String content, String type) {
         try {
-            startTriple(subj, pred);
-            addContent(content);
-            sink.process("^^");
-            serializeUri(type);
+            if (windowSize > 0) {
+                bufferStatement(TYPED_LITERAL, subj, pred, content, type);
+            } else {
+                writeTypedLiteral(subj, pred, content, type);
+            }
         } catch (ParseException e) {
             // ignore
         }
     }
 
+    private void writeNonLiteral(String subj, String pred, String obj) throws ParseException {
+        startTriple(subj, pred);
+        if (obj.startsWith(RDF.BNODE_PREFIX)) {
+            if (isShortenableBnode(obj)) {
+                openBnode(obj);
+            } else {
+                sink.process(obj);
+            }
+        } else {
+            serializeUri(obj);
+        }
+    }
+
+    private void writePlainLiteral(String subj, String pred, String content, String lang) throws ParseException {
+        startTriple(subj, pred);
+        addContent(content);
+        if (lang != null) {
+            sink.process('@').process(lang);
+        }
+    }
+
+    private void writeTypedLiteral(String subj, String pred, String content, String type) throws ParseException {
+        startTriple(subj, pred);
+        addContent(content);
+        sink.process("^^");
+        serializeUri(type);
+    }
+
     @Override
     public void startStream() throws ParseException {
         super.startStream();
         prevSubj = null;
         prevPred = null;
-        if (baseUri != null) {
-            sink.process("@base ").process(URI_START).process(baseUri).process(URI_END).process(DOT_EOL);
-        }
-        sink.process("@prefix rdf: ").process(URI_START).process(RDF.NS).process(URI_END).process(DOT_EOL);
         bnodeStack.clear();
+        predStack.clear();
         namedBnodes.clear();
+        window.clear();
+        prefixes.clear();
+        headerWritten = false;
+        if (windowSize == 0) {
+            writeHeader();
+        }
     }
 
     @Override
     public void endStream() throws ParseException {
+        if (!headerWritten || !window.isEmpty()) {
+            flushWindow(true);
+        }
         while (!bnodeStack.isEmpty()) {
             closeBnode();
         }
@@ -138,6 +242,13 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
 
     @Override
     protected boolean setPropertyInternal(String key, Object value) {
+        if (WINDOW_SIZE_PROPERTY.equals(key) && value instanceof Integer) {
+            if ((Integer) value < 0) {
+                throw new IllegalArgumentException("Window size must be non-negative");
+            }
+            windowSize = (Integer) value;
+            return true;
+        }
         return false;
     }
 
@@ -168,7 +279,7 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
                 sink.process(DOT_EOL);
             }
             if (subj.startsWith(RDF.BNODE_PREFIX)) {
-                if (subj.endsWith(RDF.SHORTENABLE_BNODE_SUFFIX)) {
+                if (isShortenableBnode(subj)) {
                     openBnode(subj);
                 } else {
                     sink.process(subj).process(SPACE);
@@ -192,17 +303,46 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     }
 
     private void serializeUri(String uri) throws ParseException {
-        String escapedUri = uri.replace("\\", "\\\\").replace(">", "\\u003E");
-        if (escapedUri.startsWith(RDF.NS)) {
-            sink.process("rdf:").process(escapedUri.substring(RDF.NS.length()));
-        } else if (baseUri != null && escapedUri.startsWith(baseUri)) {
-            sink.process(URI_START).process(escapedUri.substring(baseUri.length())).process(URI_END);
+        String prefix = null;
+        int localNameStart = getLocalNameStart(uri);
+        if (localNameStart != -1) {
+            if (localNameStart == RDF.NS.length() && uri.startsWith(RDF.NS)) {
+                prefix = RDF_PREFIX;
+            } else if (!prefixes.isEmpty()) {
+                prefix = prefixes.get(uri.substring(0, localNameStart));
+            }
+        }
+        if (prefix != null) {
+            sink.process(prefix).process(':');
+            uriEscaper.escape(uri, localNameStart, sink);
         } else {
-            sink.process(URI_START).process(escapedUri).process(URI_END);
+            sink.process(URI_START);
+            uriEscaper.escape(uri, baseUri != null && uri.startsWith(baseUri) ? baseUri.length() : 0, sink);
+            sink.process(URI_END);
         }
         sink.process(SPACE);
     }
 
+    /**
+     * Finds position of local name which can be written in prefixed form without escaping.
+     * @param uri absolute IRI
+     * @return position of local name or -1 if IRI can't be split
+     */
+    private static int getLocalNameStart(String uri) {
+        int start = Math.max(uri.lastIndexOf('#'), uri.lastIndexOf('/')) + 1;
+        if (start == 0) {
+            return -1;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char ch = uri.charAt(i);
+            if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_'
+                    || ch == '-' && i > start)) {
+                return -1;
+            }
+        }
+        return start;
+    }
+
     private void indent(int additionalIndent) throws ParseException {
         for (int i = 0; i < bnodeStack.size() + additionalIndent; i++) {
             sink.process(INDENT);
@@ -210,29 +350,296 @@ public final class TurtleSerializer extends Pipe<CharSink> implements TripleSink
     }
 
     private void addContent(String content) throws ParseException {
-        String escapedContent = content.replace("\\", "\\\\").replace("\"", "\\\"");
-        if (escapedContent.contains(EOL)) {
-            sink.process(MULTILINE_QUOTE).process(escapedContent).process(MULTILINE_QUOTE);
+        if (content.indexOf('\n') != -1) {
+            sink.process(MULTILINE_QUOTE);
+            contentEscaper.escape(content, 0, sink);
+            sink.process(MULTILINE_QUOTE);
         } else {
-            sink.process(SINGLE_LINE_QUOTE).process(escapedContent).process(SINGLE_LINE_QUOTE);
+            sink.process(SINGLE_LINE_QUOTE);
+            contentEscaper.escape(content, 0, sink);
+            sink.process(SINGLE_LINE_QUOTE);
         }
     }
 
+    private boolean isShortenableBnode(String bnode) {
+        return bnode.startsWith(RDF.BNODE_PREFIX) && bnode.endsWith(RDF.SHORTENABLE_BNODE_SUFFIX)
+                && !namedBnodes.contains(bnode);
+    }
+
     private void openBnode(String obj) throws ParseException {
         sink.process(BNODE_START);
-        bnodeStack.offer(obj);
+        bnodeStack.push(obj);
+        predStack.push(prevPred);
         prevSubj = obj;
         prevPred = null;
     }
 
     private void closeBnode() throws ParseException {
         sink.process(BNODE_END);
-        bnodeStack.poll();
+        bnodeStack.pop();
+        String pred = predStack.pop();
         prevSubj = bnodeStack.peek();
-        prevPred = null;
+        // enclosing node continues with predicate which has closed node as an object
+        prevPred = prevSubj == null ? null : pred;
         if (prevSubj == null) {
             sink.process(DOT_EOL);
         }
     }
 
+    private void writeHeader() throws ParseException {
+        if (baseUri != null) {
+            sink.process("@base ").process(URI_START).process(baseUri).process(URI_END).process(DOT_EOL);
+        }
+        sink.process("@prefix rdf: ").process(URI_START).process(RDF.NS).process(URI_END).process(DOT_EOL);
+        for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+            sink.process("@prefix ").process(entry.getValue()).process(": ")
+                    .process(URI_START).process(entry.getKey()).process(URI_END).process(DOT_EOL);
+        }
+        headerWritten = true;
+    }
+
+    private void bufferStatement(int type, String subj, String pred, String obj, String extra)
+            throws ParseException {
+        window.add(new Statement(type, subj, pred, obj, extra));
+        if (window.size() >= windowSize) {
+            flushWindow(false);
+        }
+    }
+
+    /**
+     * Writes buffered triples grouped by subject and predicate. Groups follow each other in order
+     * of first appearance, group of shortenable blank node is nested into triple which refers to it.
+     * Shortenable blank nodes which can be referred from other windows are written as labeled ones.
+     * @param last true if there will be no more triples in the stream
+     * @throws ParseException
+     */
+    private void flushWindow(boolean last) throws ParseException {
+        if (!headerWritten) {
+            discoverPrefixes();
+            writeHeader();
+        }
+        List<Statement> flushed = window.subList(0, last ? window.size() : getFlushedCount());
+        Map<String, List<Statement>> groups = new LinkedHashMap<String, List<Statement>>();
+        Set<String> nestedBnodes = new HashSet<String>();
+        for (Statement statement : flushed) {
+            List<Statement> group = groups.get(statement.subj);
+            if (group == null) {
+                group = new ArrayList<Statement>();
+                groups.put(statement.subj, group);
+            }
+            group.add(statement);
+            if (statement.type == NON_LITERAL && isShortenableBnode(statement.obj)) {
+                nestedBnodes.add(statement.obj);
+            }
+        }
+        flushed.clear();
+        for (String subj : new ArrayList<String>(groups.keySet())) {
+            if (nestedBnodes.contains(subj)) {
+                continue;
+            }
+            List<Statement> group = groups.remove(subj);
+            if (group != null) {
+                if (!last && isShortenableBnode(subj)) {
+                    namedBnodes.add(subj);
+                }
+                writeGroup(group, groups, last);
+            }
+        }
+        // only blank nodes which refer to each other in a cycle are left
+        while (!groups.isEmpty()) {
+            String subj = groups.keySet().iterator().next();
+            namedBnodes.add(subj);
+            writeGroup(groups.remove(subj), groups, last);
+        }
+    }
+
+    /**
+     * Blank node descriptions which can be still open at the end of the window are kept in it along with
+     * triples referring to them, so shortenable blank nodes can be completed by the triples which follow.
+     * If less than a half of the window can be written, whole window is flushed to keep flushes amortized
+     * and its open blank nodes are labeled.
+     * @return count of triples which can be written
+     */
+    private int getFlushedCount() {
+        List<String> openBnodes = new ArrayList<String>();
+        int count = window.size();
+        Statement lastStatement = window.get(count - 1);
+        if (lastStatement.type == NON_LITERAL && isShortenableBnode(lastStatement.obj)) {
+            openBnodes.add(lastStatement.obj);
+            count--;
+        }
+        String openBnode = lastStatement.subj;
+        for (int i = window.size() - 1; i >= 0 && openBnode.startsWith(RDF.BNODE_PREFIX); i--) {
+            Statement statement = window.get(i);
+            if (statement.type == NON_LITERAL && openBnode.equals(statement.obj)) {
+                openBnodes.add(openBnode);
+                openBnode = statement.subj;
+                count = i;
+            }
+        }
+        if (count * 2 >= window.size()) {
+            return count;
+        }
+        for (String bnode : openBnodes) {
+            if (isShortenableBnode(bnode)) {
+                namedBnodes.add(bnode);
+            }
+        }
+        return window.size();
+    }
+
+    private void writeGroup(List<Statement> group, Map<String, List<Statement>> groups, boolean last)
+            throws ParseException {
+        Deque<Iterator<Statement>> stack = new ArrayDeque<Iterator<Statement>>();
+        stack.push(sortByPredicate(group).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Statement> iterator = stack.peek();
+            if (!iterator.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Statement statement = iterator.next();
+            switch (statement.type) {
+                case NON_LITERAL:
+                    List<Statement> nested = null;
+                    if (isShortenableBnode(statement.obj)) {
+                        nested = groups.remove(statement.obj);
+                        if (nested == null && !last) {
+                            namedBnodes.add(statement.obj);
+                        }
+                    }
+                    writeNonLiteral(statement.subj, statement.pred, statement.obj);
+                    if (nested != null) {
+                        stack.push(sortByPredicate(nested).iterator());
+                    }
+                    break;
+                case PLAIN_LITERAL:
+                    writePlainLiteral(statement.subj, statement.pred, statement.obj, statement.extra);
+                    break;
+                default:
+                    writeTypedLiteral(statement.subj, statement.pred, statement.obj, statement.extra);
+                    break;
+            }
+        }
+    }
+
+    private static List<Statement> sortByPredicate(List<Statement> group) {
+        final Map<String, Integer> order = new HashMap<String, Integer>();
+        for (Statement statement : group) {
+            if (!order.containsKey(statement.pred)) {
+                order.put(statement.pred, order.size());
+            }
+        }
+        if (order.size() > 1 && order.size() < group.size()) {
+            // sort is stable, so triples with the same predicate keep their order
+            Collections.sort(group, new Comparator<Statement>() {
+                @Override
+                public int compare(Statement s1, Statement s2) {
+                    return order.get(s1.pred) - order.get(s2.pred);
+                }
+            });
+        }
+        return group;
+    }
+
+    /**
+     * Chooses most frequently used namespaces of the buffered window and assigns prefix names to them.
+     */
+    private void discoverPrefixes() {
+        final Map<String, Integer> uses = new HashMap<String, Integer>();
+        for (Statement statement : window) {
+            countNamespace(uses, statement.subj);
+            countNamespace(uses, statement.pred);
+            if (statement.type == NON_LITERAL) {
+                countNamespace(uses, statement.obj);
+            } else if (statement.type == TYPED_LITERAL) {
+                countNamespace(uses, statement.extra);
+            }
+        }
+        List<String> namespaces = new ArrayList<String>();
+        for (Map.Entry<String, Integer> entry : uses.entrySet()) {
+            if (entry.getValue() >= MIN_PREFIX_USES && uriEscaper.findEscapable(entry.getKey(), 0) == -1) {
+                namespaces.add(entry.getKey());
+            }
+        }
+        Collections.sort(namespaces, new Comparator<String>() {
+            @Override
+            public int compare(String ns1, String ns2) {
+                int result = uses.get(ns2) - uses.get(ns1);
+                return result != 0 ? result : ns1.compareTo(ns2);
+            }
+        });
+        Set<String> names = new HashSet<String>();
+        names.add(RDF_PREFIX);
+        for (String ns : namespaces.subList(0, Math.min(namespaces.size(), MAX_PREFIXES))) {
+            String name = WELL_KNOWN_PREFIXES.get(ns);
+            if (name == null) {
+                name = guessPrefixName(ns);
+            }
+            String uniqueName = name;
+            for (int i = 1; names.contains(uniqueName); i++) {
+                uniqueName = name + i;
+            }
+            names.add(uniqueName);
+            prefixes.put(ns, uniqueName);
+        }
+    }
+
+    private static void countNamespace(Map<String, Integer> uses, String uri) {
+        if (uri.startsWith(RDF.BNODE_PREFIX) || uri.startsWith(RDF.NS)) {
+            return;
+        }
+        int localNameStart = getLocalNameStart(uri);
+        if (localNameStart != -1) {
+            String ns = uri.substring(0, localNameStart);
+            Integer count = uses.get(ns);
+            uses.put(ns, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Derives prefix name from the last alphabetic path segment or host name of namespace.
+     * @param ns namespace IRI
+     * @return lower case prefix name
+     */
+    private static String guessPrefixName(String ns) {
+        int start = ns.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+        if (ns.startsWith("www.", start)) {
+            start += 4;
+        }
+        String[] segments = ns.substring(start).split("[/#]");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            String segment = segments[i];
+            int length = 0;
+            while (length < segment.length() && length < MAX_PREFIX_NAME_LENGTH
+                    && (segment.charAt(length) >= 'a' && segment.charAt(length) <= 'z'
+                    || segment.charAt(length) >= 'A' && segment.charAt(length) <= 'Z')) {
+                length++;
+            }
+            if (length > 0) {
+                return segment.substring(0, length).toLowerCase(Locale.ENGLISH);
+            }
+        }
+        return DEFAULT_PREFIX_NAME;
+    }
+
+    private static final class Statement {
+
+        private final int type;
+        private final String subj;
+        private final String pred;
+        private final String obj;
+        // language or datatype of literal
+        private final String extra;
+
+        private Statement(int type, String subj, String pred, String obj, String extra) {
+            this.type = type;
+            this.subj = subj;
+            this.pred = pred;
+            this.obj = obj;
+            this.extra = extra;
+        }
+    }
+
 }
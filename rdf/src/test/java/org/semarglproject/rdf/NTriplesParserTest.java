@@ -16,7 +16,15 @@
 package org.semarglproject.rdf;
 
 import org.apache.commons.io.IOUtils;
+import org.semarglproject.sink.BatchingTripleSink;
 import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.InternTable;
+import org.semarglproject.sink.InterningPipe;
+import org.semarglproject.sink.PipelinedTripleSink;
+import org.semarglproject.sink.TermView;
+import org.semarglproject.sink.TripleBatchSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.sink.TripleViewSink;
 import org.semarglproject.source.StreamProcessor;
 import org.semarglproject.test.SesameTestHelper;
 import org.semarglproject.test.TestNGHelper;
@@ -24,17 +32,27 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -53,6 +71,15 @@ public final class NTriplesParserTest {
     private StreamProcessor streamProcessorTtl;
     private StreamProcessor streamProcessorNt;
     private StreamProcessor streamProcessorNq;
+    private StreamProcessor streamProcessorParallel;
+    private StreamProcessor streamProcessorSmallBuffer;
+    private StreamProcessor streamProcessorPipelined;
+    private StreamProcessor streamProcessorBatched;
+    private StreamProcessor streamProcessorViews;
+    private StreamProcessor streamProcessorInterning;
+    private ByteArrayOutputStream binaryOutput;
+    private StreamProcessor streamProcessorBinary;
+    private StreamProcessor streamProcessorFromBinary;
     private SesameTestHelper sth;
 
     @BeforeClass
@@ -62,6 +89,30 @@ public final class NTriplesParserTest {
         streamProcessorTtl = new StreamProcessor(NTriplesParser.connect(TurtleSerializer.connect(charOutputSink)));
         streamProcessorNt = new StreamProcessor(NTriplesParser.connect(NTriplesSerializer.connect(charOutputSink)));
         streamProcessorNq = new StreamProcessor(NTriplesParser.connect(NQuadsSerializer.connect(charOutputSink)));
+        streamProcessorParallel = new StreamProcessor(NTriplesParser.connect(
+                NTriplesSerializer.connect(charOutputSink)));
+        streamProcessorParallel.setProperty(StreamProcessor.PARALLELISM_PROPERTY, 4);
+        streamProcessorParallel.setProperty(StreamProcessor.CHUNK_SIZE_PROPERTY, 64);
+        streamProcessorSmallBuffer = new StreamProcessor(NTriplesParser.connect(
+                NTriplesSerializer.connect(charOutputSink)));
+        streamProcessorSmallBuffer.setProperty(StreamProcessor.BUFFER_SIZE_PROPERTY, 7);
+        streamProcessorPipelined = new StreamProcessor(NTriplesParser.connect(PipelinedTripleSink.connect(
+                NTriplesSerializer.connect(charOutputSink), 3)));
+        streamProcessorPipelined.setProperty(StreamProcessor.PIPELINE_DEPTH_PROPERTY, 2);
+        streamProcessorPipelined.setProperty(StreamProcessor.BUFFER_SIZE_PROPERTY, 16);
+        streamProcessorBatched = new StreamProcessor(NTriplesParser.connect(BatchingTripleSink.connect(
+                new UnbatchingSink(NTriplesSerializer.connect(charOutputSink)), 3)));
+        streamProcessorViews = new StreamProcessor(NTriplesParser.connect(
+                new ViewToStringSink(NTriplesSerializer.connect(charOutputSink))));
+        streamProcessorViews.setProperty(StreamProcessor.BUFFER_SIZE_PROPERTY, 7);
+        streamProcessorInterning = new StreamProcessor(NTriplesParser.connect(InterningPipe.connect(
+                NTriplesSerializer.connect(charOutputSink), new InternTable(16))));
+        binaryOutput = new ByteArrayOutputStream();
+        streamProcessorBinary = new StreamProcessor(NTriplesParser.connect(
+                RdfBinarySerializer.connect(binaryOutput)));
+        streamProcessorFromBinary = new StreamProcessor(RdfBinaryParser.connect(
+                NTriplesSerializer.connect(charOutputSink)));
+        streamProcessorFromBinary.setProperty(StreamProcessor.BUFFER_SIZE_PROPERTY, 7);
     }
 
     @DataProvider
@@ -86,6 +137,177 @@ public final class NTriplesParserTest {
         runTest(caseName, new TestCallback(charOutputSink, streamProcessorNq, "nq"));
     }
 
+    @Test(dataProvider = "getTestSuite")
+    public void runInParallel(TestCase caseName) throws Exception {
+        runTest(caseName, new FileTestCallback(charOutputSink, streamProcessorParallel, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runFromMappedFile(TestCase caseName) throws Exception {
+        runTest(caseName, new FileTestCallback(charOutputSink, streamProcessorSmallBuffer, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runFromStream(TestCase caseName) throws Exception {
+        runTest(caseName, new StreamTestCallback(charOutputSink, streamProcessorSmallBuffer, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runPipelined(TestCase caseName) throws Exception {
+        runTest(caseName, new TestCallback(charOutputSink, streamProcessorPipelined, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runBatched(TestCase caseName) throws Exception {
+        runTest(caseName, new TestCallback(charOutputSink, streamProcessorBatched, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runWithTermViews(TestCase caseName) throws Exception {
+        runTest(caseName, new TestCallback(charOutputSink, streamProcessorViews, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runWithTermViewsFromStream(TestCase caseName) throws Exception {
+        runTest(caseName, new StreamTestCallback(charOutputSink, streamProcessorViews, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runWithInterning(TestCase caseName) throws Exception {
+        runTest(caseName, new TestCallback(charOutputSink, streamProcessorInterning, "nt"));
+    }
+
+    @Test(dataProvider = "getTestSuite")
+    public void runWithBinarySink(TestCase caseName) throws Exception {
+        runTest(caseName, new BinaryRoundTripCallback());
+    }
+
+    @Test
+    public void runWithEscapedOutput() throws Exception {
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        TripleSink serializer = NTriplesSerializer.connect(charOutputSink);
+        serializer.startStream();
+        serializer.addPlainLiteral("http://example.org/s", "http://example.org/p", "\u007F\u0080 \ud834\udd1e", null);
+        serializer.endStream();
+        // U+0080 is the first escaped char, surrogate pair is written as a single escape
+        assertEquals(output.toString().trim(),
+                "<http://example.org/s> <http://example.org/p> \"\u007F\\u0080 \\U0001D11E\" .");
+    }
+
+    @Test(expectedExceptions = ParseException.class)
+    public void runWithTruncatedBinaryInput() throws Exception {
+        binaryOutput.reset();
+        streamProcessorBinary.process(new StringReader("<http://example.org/s> <http://example.org/p> \"o\" .\n"),
+                "http://example.org/");
+        byte[] document = binaryOutput.toByteArray();
+        charOutputSink.connect(new StringWriter());
+        streamProcessorFromBinary.process(new ByteArrayInputStream(document, 0, document.length - 12),
+                "http://example.org/");
+    }
+
+    @Test(expectedExceptions = ParseException.class)
+    public void runWithCorruptedBinaryTermCount() throws Exception {
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        document.write(RdfBinarySerializer.MAGIC);
+        document.write(RdfBinarySerializer.VERSION);
+        document.write(RdfBinarySerializer.BLOCK_MARKER);
+        // block of 5 bytes declaring 2^28 - 1 terms
+        document.write(new byte[] {5, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F, 0});
+        document.write(RdfBinarySerializer.END_MARKER);
+        charOutputSink.connect(new StringWriter());
+        streamProcessorFromBinary.process(new ByteArrayInputStream(document.toByteArray()), "http://example.org/");
+    }
+
+    @Test
+    public void runWithBinaryBlocksInReverseOrder() throws Exception {
+        String[] statements = {
+                "<http://example.org/s1> <http://example.org/p> <http://example.org/o> .",
+                "<http://example.org/s1> <http://example.org/p> \"o\"@en .",
+                "<http://example.org/s2> <http://example.org/p> \"1\"^^<http://example.org/t> .",
+                "<http://example.org/s2> <http://example.org/p> _:b1 .",
+                "<http://example.org/s3> <http://example.org/p> \"o\" ."
+        };
+        StringBuilder input = new StringBuilder();
+        for (String statement : statements) {
+            input.append(statement).append('\n');
+        }
+        new File(TEST_OUTPUT_DIR).mkdirs();
+        File binaryFile = new File(TEST_OUTPUT_DIR, "blocks.srdf");
+        FileOutputStream binaryStream = new FileOutputStream(binaryFile);
+        try {
+            StreamProcessor streamProcessor = new StreamProcessor(NTriplesParser.connect(
+                    RdfBinarySerializer.connect(binaryStream)));
+            streamProcessor.setProperty(RdfBinarySerializer.BLOCK_SIZE_PROPERTY, 2);
+            streamProcessor.process(new StringReader(input.toString()), "http://example.org/");
+        } finally {
+            IOUtils.closeQuietly(binaryStream);
+        }
+
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        TripleSink serializer = NTriplesSerializer.connect(charOutputSink);
+        FileInputStream binaryInput = new FileInputStream(binaryFile);
+        try {
+            FileChannel channel = binaryInput.getChannel();
+            long[] offsets = RdfBinaryParser.readBlockOffsets(channel);
+            assertEquals(offsets.length, 3);
+            serializer.startStream();
+            for (int i = offsets.length - 1; i >= 0; i--) {
+                RdfBinaryParser.decodeBlock(channel, offsets[i], serializer);
+            }
+            serializer.endStream();
+        } finally {
+            IOUtils.closeQuietly(binaryInput);
+        }
+        assertEquals(new HashSet<String>(Arrays.asList(output.toString().trim().split("\n"))),
+                new HashSet<String>(Arrays.asList(statements)));
+    }
+
+    @Test(expectedExceptions = ParseException.class, timeOut = 10000)
+    public void runPipelinedWithFailingReader() throws Exception {
+        streamProcessorPipelined.process(new Reader() {
+            @Override
+            public int read(char[] buffer, int off, int len) {
+                throw new IllegalStateException("Broken reader");
+            }
+
+            @Override
+            public void close() {
+            }
+        }, "http://example.org/");
+    }
+
+    @Test
+    public void runWithNonAsciiInput() throws Exception {
+        String input = "<http://example.org/\u00e9> <http://example.org/p> \"\u65e5\u672c \ud834\udd1e\"@ja .\n"
+                + "_:b\u00e9 <http://example.org/p> <http://example.org/\u00e9\u00e9\u00e9> .\n";
+        StringWriter charOutput = new StringWriter();
+        charOutputSink.connect(charOutput);
+        streamProcessorSmallBuffer.process(new StringReader(input), "http://example.org/");
+        StringWriter byteOutput = new StringWriter();
+        charOutputSink.connect(byteOutput);
+        streamProcessorSmallBuffer.process(new ByteArrayInputStream(input.getBytes("UTF-8")), "http://example.org/");
+        assertEquals(byteOutput.toString(), charOutput.toString());
+        assertTrue(charOutput.toString().contains("\\u65E5\\u672C"));
+    }
+
+    @Test
+    public void runWithEncodedOutput() throws Exception {
+        String input = "<http://example.org/\u00e9> <http://example.org/p> \"\ud834\udd1e\u65e5\ud834\udd1e\"@ja .\n";
+        StringWriter expected = new StringWriter();
+        charOutputSink.connect(expected);
+        streamProcessorTtl.process(new StringReader(input), "http://example.org/");
+
+        CharOutputSink encodingSink = new CharOutputSink("UTF-8");
+        encodingSink.setProperty(CharOutputSink.BUFFER_SIZE_PROPERTY, 3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        encodingSink.connect(output);
+        new StreamProcessor(NTriplesParser.connect(TurtleSerializer.connect(encodingSink)))
+                .process(new StringReader(input), "http://example.org/");
+        assertEquals(output.toString("UTF-8"), expected.toString());
+    }
+
     public void runTest(TestCase testCase, SaveToFileCallback callback) {
         String resultFilePath = sth.getOutputPath(testCase.input, callback.getOutputFileExt());
         new File(resultFilePath).getParentFile().mkdirs();
@@ -108,8 +330,8 @@ public final class NTriplesParserTest {
 
     private static class TestCallback implements SaveToFileCallback {
 
-        private final CharOutputSink charOutputSink;
-        private final StreamProcessor streamProcessor;
+        protected final CharOutputSink charOutputSink;
+        protected final StreamProcessor streamProcessor;
         private final String fileExt;
 
         private TestCallback(CharOutputSink charOutputSink, StreamProcessor streamProcessor, String fileExt) {
@@ -130,6 +352,203 @@ public final class NTriplesParserTest {
         }
     }
 
+    private static class FileTestCallback extends TestCallback {
+
+        private FileTestCallback(CharOutputSink charOutputSink, StreamProcessor streamProcessor, String fileExt) {
+            super(charOutputSink, streamProcessor, fileExt);
+        }
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            File inputFile = new File(TEST_OUTPUT_DIR, "input.nt");
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(inputFile), "UTF-8");
+                try {
+                    IOUtils.copy(input, writer);
+                } finally {
+                    IOUtils.closeQuietly(writer);
+                }
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+            charOutputSink.connect(output);
+            streamProcessor.process(inputFile, inputUri);
+        }
+    }
+
+    private static class StreamTestCallback extends TestCallback {
+
+        private StreamTestCallback(CharOutputSink charOutputSink, StreamProcessor streamProcessor, String fileExt) {
+            super(charOutputSink, streamProcessor, fileExt);
+        }
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            InputStream inputStream;
+            try {
+                inputStream = new ByteArrayInputStream(IOUtils.toString(input).getBytes("UTF-8"));
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+            charOutputSink.connect(output);
+            streamProcessor.process(inputStream, inputUri);
+        }
+    }
+
+    /**
+     * Converts document to binary format and back. Result must be the same as NTriples serializer's output
+     * produced directly from the document.
+     */
+    private final class BinaryRoundTripCallback implements SaveToFileCallback {
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            String document;
+            try {
+                document = IOUtils.toString(input);
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+            StringWriter expected = new StringWriter();
+            charOutputSink.connect(expected);
+            streamProcessorNt.process(new StringReader(document), inputUri);
+            binaryOutput.reset();
+            streamProcessorBinary.process(new StringReader(document), inputUri);
+            StringWriter actual = new StringWriter();
+            charOutputSink.connect(actual);
+            streamProcessorFromBinary.process(new ByteArrayInputStream(binaryOutput.toByteArray()), inputUri);
+            assertEquals(actual.toString(), expected.toString());
+            try {
+                output.write(actual.toString());
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+
+        @Override
+        public String getOutputFileExt() {
+            return "bin.nt";
+        }
+    }
+
+    private static class UnbatchingSink implements TripleBatchSink {
+
+        private final TripleSink sink;
+
+        private UnbatchingSink(TripleSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void addTriples(String[] subjs, String[] preds, String[] objs, byte[] objTypes,
+                               String[] langsOrTypes, int count) {
+            for (int i = 0; i < count; i++) {
+                if (objTypes[i] == NON_LITERAL) {
+                    sink.addNonLiteral(subjs[i], preds[i], objs[i]);
+                } else if (objTypes[i] == PLAIN_LITERAL) {
+                    sink.addPlainLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i]);
+                } else {
+                    sink.addTypedLiteral(subjs[i], preds[i], objs[i], langsOrTypes[i]);
+                }
+            }
+        }
+
+        @Override
+        public void addNonLiteral(String subj, String pred, String obj) {
+            fail();
+        }
+
+        @Override
+        public void addPlainLiteral(String subj, String pred, String content, String lang) {
+            fail();
+        }
+
+        @Override
+        public void addTypedLiteral(String subj, String pred, String content, String type) {
+            fail();
+        }
+
+        @Override
+        public void setBaseUri(String baseUri) {
+            sink.setBaseUri(baseUri);
+        }
+
+        @Override
+        public void startStream() throws ParseException {
+            sink.startStream();
+        }
+
+        @Override
+        public void endStream() throws ParseException {
+            sink.endStream();
+        }
+
+        @Override
+        public boolean setProperty(String key, Object value) {
+            return sink.setProperty(key, value);
+        }
+    }
+
+    private static class ViewToStringSink implements TripleViewSink {
+
+        private final TripleSink sink;
+
+        private ViewToStringSink(TripleSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void addNonLiteral(TermView subj, TermView pred, TermView obj) {
+            sink.addNonLiteral(subj.toString(), pred.toString(), obj.toString());
+        }
+
+        @Override
+        public void addPlainLiteral(TermView subj, TermView pred, TermView content, TermView lang) {
+            sink.addPlainLiteral(subj.toString(), pred.toString(), content.toString(),
+                    lang == null ? null : lang.toString());
+        }
+
+        @Override
+        public void addTypedLiteral(TermView subj, TermView pred, TermView content, TermView type) {
+            sink.addTypedLiteral(subj.toString(), pred.toString(), content.toString(), type.toString());
+        }
+
+        @Override
+        public void addNonLiteral(String subj, String pred, String obj) {
+            fail();
+        }
+
+        @Override
+        public void addPlainLiteral(String subj, String pred, String content, String lang) {
+            fail();
+        }
+
+        @Override
+        public void addTypedLiteral(String subj, String pred, String content, String type) {
+            fail();
+        }
+
+        @Override
+        public void setBaseUri(String baseUri) {
+            sink.setBaseUri(baseUri);
+        }
+
+        @Override
+        public void startStream() throws ParseException {
+            sink.startStream();
+        }
+
+        @Override
+        public void endStream() throws ParseException {
+            sink.endStream();
+        }
+
+        @Override
+        public boolean setProperty(String key, Object value) {
+            return sink.setProperty(key, value);
+        }
+    }
+
     public interface SaveToFileCallback {
         void run(Reader input, String inputUri, Writer output) throws ParseException;
         String getOutputFileExt();
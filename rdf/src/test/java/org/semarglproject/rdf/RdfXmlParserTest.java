@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.List;
@@ -57,6 +59,7 @@ public final class RdfXmlParserTest {
     private StreamProcessor streamProcessorTtl;
     private StreamProcessor streamProcessorNt;
     private StreamProcessor streamProcessorNq;
+    private StreamProcessor streamProcessorRdf;
     private SesameTestHelper sth;
 
     @BeforeClass
@@ -66,6 +69,7 @@ public final class RdfXmlParserTest {
         streamProcessorTtl = new StreamProcessor(RdfXmlParser.connect(TurtleSerializer.connect(charOutputSink)));
         streamProcessorNt = new StreamProcessor(RdfXmlParser.connect(NTriplesSerializer.connect(charOutputSink)));
         streamProcessorNq = new StreamProcessor(RdfXmlParser.connect(NQuadsSerializer.connect(charOutputSink)));
+        streamProcessorRdf = new StreamProcessor(RdfXmlParser.connect(RdfXmlSerializer.connect(charOutputSink)));
     }
 
     @DataProvider
@@ -91,6 +95,11 @@ public final class RdfXmlParserTest {
         runTest(testCase, new TestCallback(charOutputSink, streamProcessorNq, "nq"));
     }
 
+    @Test(dataProvider = "getTestSuite")
+    public void runWithRdfXmlSink(TestCase testCase) {
+        runTest(testCase, new RoundTripCallback());
+    }
+
     public void runTest(TestCase testCase, SaveToFileCallback callback) {
         String resultFilePath = sth.getOutputPath(testCase.input, callback.getOutputFileExt());
         new File(resultFilePath).getParentFile().mkdirs();
@@ -135,6 +144,27 @@ public final class RdfXmlParserTest {
         }
     }
 
+    /**
+     * Serializes parsed document to RDF/XML and parses it back, so serializer output is checked
+     * by the same parser (Sesame alters XML literals while parsing RDF/XML).
+     */
+    private final class RoundTripCallback implements SaveToFileCallback {
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            StringWriter rdfXml = new StringWriter();
+            charOutputSink.connect(rdfXml);
+            streamProcessorRdf.process(input, inputUri);
+            charOutputSink.connect(output);
+            streamProcessorNt.process(new StringReader(rdfXml.toString()), inputUri);
+        }
+
+        @Override
+        public String getOutputFileExt() {
+            return "rdf.nt";
+        }
+    }
+
     public interface SaveToFileCallback {
         void run(Reader input, String inputUri, Writer output) throws ParseException;
         String getOutputFileExt();
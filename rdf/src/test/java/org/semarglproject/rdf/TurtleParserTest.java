@@ -0,0 +1,341 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf;
+
+import org.apache.commons.io.IOUtils;
+import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.source.StreamProcessor;
+import org.semarglproject.test.SesameTestHelper;
+import org.semarglproject.test.TestNGHelper;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public final class TurtleParserTest {
+
+    private static final String TEST_OUTPUT_DIR = "target/turtle-output/";
+    private static final String TURTLE_TESTSUITE_ROOT = "http://www.w3.org/2013/TurtleTests/";
+    private static final String TRIG_TESTSUITE_ROOT = "http://www.w3.org/2013/TriGTests/";
+    private static final String FETCH_TURTLE_TESTS_SPARQL = "fetch_turtle_tests.sparql";
+
+    private static final Map<String, String> LOCAL_MIRRORS = new HashMap<String, String>() {{
+        put(TURTLE_TESTSUITE_ROOT, "testcases/turtle/tests-ttl-w3c-20131121/");
+        put(TRIG_TESTSUITE_ROOT, "testcases/trig/");
+    }};
+
+    private CharOutputSink charOutputSink;
+    private StreamProcessor streamProcessorNt;
+    private StreamProcessor streamProcessorSmallBuffer;
+    private StreamProcessor streamProcessorTtl;
+    private StreamProcessor streamProcessorWindowedTtl;
+    private StreamProcessor streamProcessorNq;
+    private ByteArrayOutputStream binaryOutput;
+    private StreamProcessor streamProcessorBinary;
+    private StreamProcessor streamProcessorFromBinary;
+    private SesameTestHelper sth;
+
+    @BeforeClass
+    public void init() {
+        sth = new SesameTestHelper(TEST_OUTPUT_DIR, LOCAL_MIRRORS);
+        charOutputSink = new CharOutputSink("UTF-8");
+        streamProcessorNt = new StreamProcessor(TurtleParser.connect(NTriplesSerializer.connect(charOutputSink)));
+        streamProcessorSmallBuffer = new StreamProcessor(TurtleParser.connect(
+                NTriplesSerializer.connect(charOutputSink)));
+        streamProcessorSmallBuffer.setProperty(StreamProcessor.BUFFER_SIZE_PROPERTY, 7);
+        streamProcessorTtl = new StreamProcessor(TurtleParser.connect(TurtleSerializer.connect(charOutputSink)));
+        streamProcessorWindowedTtl = new StreamProcessor(TurtleParser.connect(
+                TurtleSerializer.connect(charOutputSink)));
+        streamProcessorWindowedTtl.setProperty(TurtleSerializer.WINDOW_SIZE_PROPERTY, 3);
+        streamProcessorNq = new StreamProcessor(TriGParser.connect(NQuadsSerializer.connect(charOutputSink)));
+        binaryOutput = new ByteArrayOutputStream();
+        streamProcessorBinary = new StreamProcessor(TriGParser.connect(RdfBinarySerializer.connect(binaryOutput)));
+        streamProcessorBinary.setProperty(RdfBinarySerializer.BLOCK_SIZE_PROPERTY, 3);
+        streamProcessorFromBinary = new StreamProcessor(RdfBinaryParser.connect(
+                NQuadsSerializer.connect(charOutputSink)));
+    }
+
+    @DataProvider
+    public Object[][] getTurtleTestSuite() throws IOException {
+        return getTestSuite(TURTLE_TESTSUITE_ROOT + "manifest.ttl");
+    }
+
+    @DataProvider
+    public Object[][] getTriGTestSuite() throws IOException {
+        return getTestSuite(TRIG_TESTSUITE_ROOT + "manifest.ttl");
+    }
+
+    private Object[][] getTestSuite(String manifestUri) throws IOException {
+        String queryStr = IOUtils.toString(sth.openStreamForResource(FETCH_TURTLE_TESTS_SPARQL));
+        List<TestCase> testCases = sth.getTestCases(manifestUri, queryStr, TestCase.class);
+        return TestNGHelper.toArray(testCases);
+    }
+
+    @Test(dataProvider = "getTurtleTestSuite")
+    public void runWithNTriplesSink(TestCase testCase) {
+        runTest(testCase, new TestCallback(streamProcessorNt, "nt"));
+    }
+
+    @Test(dataProvider = "getTurtleTestSuite")
+    public void runWithSmallBuffer(TestCase testCase) {
+        runTest(testCase, new TestCallback(streamProcessorSmallBuffer, "nt"));
+    }
+
+    @Test(dataProvider = "getTurtleTestSuite")
+    public void runWithTurtleSink(TestCase testCase) {
+        runTest(testCase, new RoundTripCallback(streamProcessorTtl));
+    }
+
+    @Test(dataProvider = "getTurtleTestSuite")
+    public void runWithWindowedTurtleSink(TestCase testCase) {
+        runTest(testCase, new RoundTripCallback(streamProcessorWindowedTtl));
+    }
+
+    @Test(dataProvider = "getTriGTestSuite")
+    public void runWithNQuadsSink(TestCase testCase) {
+        runTest(testCase, new TestCallback(streamProcessorNq, "nq"));
+    }
+
+    @Test(dataProvider = "getTriGTestSuite")
+    public void runWithBinarySink(TestCase testCase) {
+        runTest(testCase, new BinaryRoundTripCallback());
+    }
+
+    @Test
+    public void runWithErrorRecovery() throws Exception {
+        final List<String> errors = new ArrayList<String>();
+        StreamProcessor streamProcessor = new StreamProcessor(TurtleParser.connect(
+                NTriplesSerializer.connect(charOutputSink)));
+        streamProcessor.setProperty(StreamProcessor.ENABLE_ERROR_RECOVERY, true);
+        streamProcessor.setProperty(StreamProcessor.PROCESSOR_GRAPH_HANDLER_PROPERTY, new ProcessorGraphHandler() {
+            @Override
+            public void info(String infoClass, String message) {
+            }
+
+            @Override
+            public void warning(String warningClass, String message) {
+            }
+
+            @Override
+            public void error(String errorClass, String message) {
+                assertEquals(errorClass, TurtleParser.ERROR);
+                errors.add(message);
+            }
+        });
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        streamProcessor.process(new StringReader("@prefix : <http://example.org/> .\n"
+                + ":a :b undefined:c .\n:a [ :b :c ] .\n:d :e \"f\" .\n"), "http://example.org/");
+        assertEquals(errors.size(), 2);
+        assertEquals(output.toString().trim(), "<http://example.org/d> <http://example.org/e> \"f\" .");
+    }
+
+    @Test
+    public void runWithRepeatedSemicolonsInBlankNode() throws Exception {
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        streamProcessorNt.process(new StringReader("@prefix : <http://example.org/> .\n"
+                + ":s :p [ :a :b ; ; :c :d ] .\n[ :p :o ;; :q :r ] .\n"), "http://example.org/");
+        assertEquals(output.toString().trim().split("\n").length, 5);
+    }
+
+    @Test
+    public void runWithFatalErrorReportsFirstError() {
+        try {
+            streamProcessorNt.process(new StringReader("@prefix : <http://example.org/> .\n:s :p :o , , :x .\n"),
+                    "http://example.org/");
+            fail("Parse error expected");
+        } catch (ParseException e) {
+            assertEquals(e.getMessage(), "Unexpected ','");
+        }
+    }
+
+    @Test
+    public void runWithEscapedIri() throws Exception {
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        TripleSink serializer = TurtleSerializer.connect(charOutputSink);
+        serializer.startStream();
+        serializer.addNonLiteral("http://example.org/s", "http://example.org/p", "http://example.org/a\\b");
+        serializer.endStream();
+        assertTrue(output.toString().contains("<http://example.org/a\\u005Cb>"), output.toString());
+    }
+
+    @Test
+    public void runWithWindowedTurtleSinkRegroupsTriples() throws Exception {
+        StreamProcessor streamProcessor = new StreamProcessor(TurtleParser.connect(
+                TurtleSerializer.connect(charOutputSink)));
+        streamProcessor.setProperty(TurtleSerializer.WINDOW_SIZE_PROPERTY, 100);
+        StringWriter output = new StringWriter();
+        charOutputSink.connect(output);
+        streamProcessor.process(new StringReader("@prefix : <http://example.org/vocab#> .\n"
+                + "<http://example.org/a> :p \"1\" .\n<http://example.org/b> :p [ :q \"2\" ] .\n"
+                + "<http://example.org/a> :r \"3\" .\n<http://example.org/a> :p \"4\" .\n"), "http://example.org/");
+        assertEquals(output.toString().trim(), "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n"
+                + "@prefix vocab: <http://example.org/vocab#> .\n"
+                + "@prefix example: <http://example.org/> .\n"
+                + "example:a vocab:p \"1\" ,\n        \"4\" ;\n    vocab:r \"3\" .\n"
+                + "example:b vocab:p [    vocab:q \"2\"] .");
+    }
+
+    public void runTest(TestCase testCase, SaveToFileCallback callback) {
+        String resultFilePath = sth.getOutputPath(testCase.input, callback.getOutputFileExt());
+        new File(resultFilePath).getParentFile().mkdirs();
+        boolean negative = testCase.type.contains("Negative");
+        try {
+            Reader input = new InputStreamReader(sth.openStreamForResource(testCase.input), "UTF-8");
+            Writer output = new OutputStreamWriter(new FileOutputStream(resultFilePath), "UTF-8");
+            try {
+                callback.run(input, testCase.input, output);
+            } finally {
+                IOUtils.closeQuietly(input);
+                IOUtils.closeQuietly(output);
+            }
+        } catch (ParseException e) {
+            assertTrue(negative, e.getMessage());
+            return;
+        } catch (IOException e) {
+            fail();
+        }
+        assertTrue(!negative, "Parse error expected");
+        if (testCase.result != null) {
+            assertTrue(sth.areModelsEqual(resultFilePath, testCase.result, testCase.input));
+        }
+    }
+
+    private final class TestCallback implements SaveToFileCallback {
+
+        private final StreamProcessor streamProcessor;
+        private final String fileExt;
+
+        private TestCallback(StreamProcessor streamProcessor, String fileExt) {
+            this.streamProcessor = streamProcessor;
+            this.fileExt = fileExt;
+        }
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            charOutputSink.connect(output);
+            streamProcessor.process(input, inputUri);
+        }
+
+        @Override
+        public String getOutputFileExt() {
+            return fileExt;
+        }
+    }
+
+    /**
+     * Serializes parsed document to Turtle and parses it back, so serializer output is checked
+     * by the same parser.
+     */
+    private final class RoundTripCallback implements SaveToFileCallback {
+
+        private final StreamProcessor streamProcessor;
+
+        private RoundTripCallback(StreamProcessor streamProcessor) {
+            this.streamProcessor = streamProcessor;
+        }
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            StringWriter turtle = new StringWriter();
+            charOutputSink.connect(turtle);
+            streamProcessor.process(input, inputUri);
+            charOutputSink.connect(output);
+            streamProcessorNt.process(new StringReader(turtle.toString()), inputUri);
+        }
+
+        @Override
+        public String getOutputFileExt() {
+            return "ttl.nt";
+        }
+    }
+
+    /**
+     * Converts document to binary format split into small blocks and back. Result must be the same
+     * as NQuads serializer's output produced directly from the document.
+     */
+    private final class BinaryRoundTripCallback implements SaveToFileCallback {
+
+        @Override
+        public void run(Reader input, String inputUri, Writer output) throws ParseException {
+            String document;
+            try {
+                document = IOUtils.toString(input);
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+            StringWriter expected = new StringWriter();
+            charOutputSink.connect(expected);
+            streamProcessorNq.process(new StringReader(document), inputUri);
+            binaryOutput.reset();
+            streamProcessorBinary.process(new StringReader(document), inputUri);
+            StringWriter actual = new StringWriter();
+            charOutputSink.connect(actual);
+            streamProcessorFromBinary.process(new ByteArrayInputStream(binaryOutput.toByteArray()), inputUri);
+            assertEquals(actual.toString(), expected.toString());
+            try {
+                output.write(actual.toString());
+            } catch (IOException e) {
+                throw new ParseException(e);
+            }
+        }
+
+        @Override
+        public String getOutputFileExt() {
+            return "bin.nq";
+        }
+    }
+
+    public interface SaveToFileCallback {
+        void run(Reader input, String inputUri, Writer output) throws ParseException;
+        String getOutputFileExt();
+    }
+
+    public final static class TestCase {
+        public String name;
+        public String input;
+        public String result;
+        public String type;
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.TripleSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Loads vocabularies bundled to classpath, so no network access is required. Bundles are listed in
+ * {@link #INDEX_RESOURCE} files which map vocabulary URLs to classpath resources, format of each
+ * resource is detected by its extension or content. Index files are collected from all classpath
+ * entries, the first mapping found wins.
+ * <br>
+ * Semargl bundles FOAF, Dublin Core elements and terms and SKOS vocabularies.
+ */
+public final class ClasspathVocabularyLoader implements VocabularyLoader {
+
+    /**
+     * Classpath location of bundle index files
+     */
+    public static final String INDEX_RESOURCE = "META-INF/semargl/vocabularies.properties";
+
+    private final ClassLoader classLoader;
+    private final Map<String, String> bundles = new HashMap<String, String>();
+
+    /**
+     * Creates loader which uses class loader of Semargl classes
+     */
+    public ClasspathVocabularyLoader() {
+        this(ClasspathVocabularyLoader.class.getClassLoader());
+    }
+
+    /**
+     * Creates loader which uses specified class loader
+     * @param classLoader class loader to find bundles with
+     */
+    public ClasspathVocabularyLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX_RESOURCE);
+            while (indexes.hasMoreElements()) {
+                readIndex(indexes.nextElement());
+            }
+        } catch (IOException e) {
+            // bundles from remaining indexes are ignored
+        }
+    }
+
+    private void readIndex(URL index) throws IOException {
+        Properties properties = new Properties();
+        InputStream inputStream = index.openStream();
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        for (String vocabUrl : properties.stringPropertyNames()) {
+            if (!bundles.containsKey(vocabUrl)) {
+                bundles.put(vocabUrl, properties.getProperty(vocabUrl).trim());
+            }
+        }
+    }
+
+    /**
+     * @param vocabUrl vocabulary URL
+     * @return true if vocabulary is bundled
+     */
+    public boolean isBundled(String vocabUrl) {
+        return bundles.containsKey(vocabUrl);
+    }
+
+    @Override
+    public boolean load(String vocabUrl, TripleSink sink) throws ParseException {
+        String resource = bundles.get(vocabUrl);
+        if (resource == null) {
+            return false;
+        }
+        InputStream inputStream = classLoader.getResourceAsStream(resource);
+        if (inputStream == null) {
+            return false;
+        }
+        try {
+            return VocabularyFormat.parse(inputStream, VocabularyFormat.fromFileName(resource), null, vocabUrl, sink);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+        }
+    }
+}
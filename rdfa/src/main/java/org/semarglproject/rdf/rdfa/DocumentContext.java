@@ -15,7 +15,7 @@
  */
 package org.semarglproject.rdf.rdfa;
 
-import org.semarglproject.ri.RIUtils;
+import org.semarglproject.ri.IriCache;
 import org.semarglproject.ri.MalformedIriException;
 import org.semarglproject.vocab.RDF;
 import org.semarglproject.vocab.RDFa;
@@ -48,6 +48,9 @@ final class DocumentContext {
     private Map<String, String> bnodeMapping = new HashMap<String, String>();
     private int nextBnodeId;
 
+    private IriCache iriCache = new IriCache();
+    private boolean sharedIriCache = false;
+
     DocumentContext(RdfaParser parser) {
         this.parser = parser;
         nextBnodeId = 0;
@@ -118,7 +121,12 @@ final class DocumentContext {
     }
 
     String resolveIri(String iri) throws MalformedIriException {
-        return RIUtils.resolveIri(base, iri);
+        return iriCache.resolve(base, iri);
+    }
+
+    void setIriCache(IriCache iriCache) {
+        this.iriCache = iriCache;
+        sharedIriCache = true;
     }
 
     void clear() {
@@ -127,6 +135,9 @@ final class DocumentContext {
         bnodeMapping = new HashMap<String, String>();
         base = null;
         originUri = null;
+        if (!sharedIriCache) {
+            iriCache.clear();
+        }
     }
 
     Vocabulary loadVocabulary(String vocabUrl) {
@@ -21,11 +21,9 @@ import org.semarglproject.ri.MalformedIriException;
 import org.semarglproject.vocab.RDFa;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 final class EvalContext {
@@ -96,12 +94,12 @@ final class EvalContext {
         RDFA11_INITIAL_CONTEXT.put("schema", "http://schema.org/");
     }
 
-    Map<String, String> iriMappings;
+    PrefixMappings iriMappings;
     String subject;
     String object;
     List<Object> incomplTriples;
     String lang;
-    String objectLit;
+    StringBuilder objectLit;
     String objectLitDt;
     List<String> properties;
     boolean parsingLiteral;
@@ -132,7 +130,7 @@ final class EvalContext {
         EvalContext initialContext = new EvalContext(null, null, null, documentContext);
         initialContext.subject = documentContext.base;
         initialContext.listMapping = new HashMap<String, List<String>>();
-        initialContext.iriMappings = new TreeMap<String, String>();
+        initialContext.iriMappings = new PrefixMappings();
         return initialContext;
     }
 
@@ -171,12 +169,11 @@ final class EvalContext {
         return current;
     }
 
-    private void initPrefixMappings(Map<String, String> parentMappings, Map<String, String> overwriteMappings) {
+    private void initPrefixMappings(PrefixMappings parentMappings, Map<String, String> overwriteMappings) {
         if (overwriteMappings.isEmpty()) {
             iriMappings = parentMappings;
         } else {
-            iriMappings = new TreeMap<String, String>(parentMappings);
-            iriMappings.putAll(overwriteMappings);
+            iriMappings = parentMappings.overlay(overwriteMappings);
         }
 
         if (documentContext.rdfaVersion > RDFa.VERSION_10) {
@@ -198,10 +195,6 @@ final class EvalContext {
         return listMapping.get(iri);
     }
 
-    void addContent(String content) {
-        objectLit += content;
-    }
-
     void updateBase(String oldBase, String base) {
         if (object != null && object.equals(oldBase)) {
             object = base;
@@ -282,11 +275,18 @@ final class EvalContext {
         return resolveCurieOrIri(value, true);
     }
 
-    Iterable<String> expand(String pred) {
+    String[] expandProperty(String pred) {
+        if (vocab == null) {
+            return Vocabulary.NO_EXPANSIONS;
+        }
+        return vocab.expandProperty(pred);
+    }
+
+    String[] expandClass(String type) {
         if (vocab == null) {
-            return Collections.EMPTY_LIST;
+            return Vocabulary.NO_EXPANSIONS;
         }
-        return vocab.expand(pred);
+        return vocab.expandClass(type);
     }
 
     private String resolveCurieOrIri(String curie, boolean ignoreRelIri) throws MalformedIriException {
@@ -321,9 +321,10 @@ final class EvalContext {
             throw new MalformedCurieException("CURIE with invalid prefix (" + curie + ") found");
         }
 
-        if (!iriMappings.containsKey(prefix)) {
+        String nsUri = iriMappings.get(prefix);
+        if (nsUri == null) {
             if (documentContext.rdfaVersion > RDFa.VERSION_10 && RDFA11_INITIAL_CONTEXT.containsKey(prefix)) {
-                String nsUri = RDFA11_INITIAL_CONTEXT.get(prefix);
+                nsUri = RDFA11_INITIAL_CONTEXT.get(prefix);
                 iriMappings.put(prefix, nsUri);
                 String result = nsUri + localName;
                 if (RIUtils.isIri(result)) {
@@ -336,7 +337,7 @@ final class EvalContext {
             }
             throw new MalformedCurieException("CURIE with unresolvable prefix found (" + curie + ")");
         }
-        return iriMappings.get(prefix) + localName;
+        return nsUri + localName;
     }
 
     private static String resolveXhtmlTerm(String predicate) {
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Prefix mappings of evaluation context. Mappings declared by an element are kept in an overlay
+ * over mappings of parent context, so declarations don't copy inherited mappings. Lookups which
+ * fall through to parent are cached by each overlay, so every prefix is searched in parent chain
+ * at most once per overlay.
+ * <br>
+ * Iteration order is sorted by prefix, iteration builds flattened copy of mappings.
+ */
+final class PrefixMappings extends AbstractMap<String, String> {
+
+    private final PrefixMappings parent;
+    private final Map<String, String> declared;
+    private Map<String, String> inherited;
+
+    PrefixMappings() {
+        this(null, new HashMap<String, String>());
+    }
+
+    private PrefixMappings(PrefixMappings parent, Map<String, String> declared) {
+        this.parent = parent;
+        this.declared = declared;
+    }
+
+    /**
+     * Creates mappings which override this ones
+     * @param mappings overriding mappings, copied by this method
+     * @return new mappings sharing structure with this ones
+     */
+    PrefixMappings overlay(Map<String, String> mappings) {
+        return new PrefixMappings(this, new HashMap<String, String>(mappings));
+    }
+
+    @Override
+    public String get(Object prefix) {
+        String result = declared.get(prefix);
+        if (result != null || parent == null) {
+            return result;
+        }
+        if (inherited != null) {
+            result = inherited.get(prefix);
+            if (result != null) {
+                return result;
+            }
+        }
+        result = parent.get(prefix);
+        if (result != null) {
+            if (inherited == null) {
+                inherited = new HashMap<String, String>();
+            }
+            inherited.put((String) prefix, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(Object prefix) {
+        return get(prefix) != null;
+    }
+
+    @Override
+    public String put(String prefix, String iri) {
+        if (inherited != null) {
+            inherited.remove(prefix);
+        }
+        return declared.put(prefix, iri);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        List<PrefixMappings> chain = new ArrayList<PrefixMappings>();
+        for (PrefixMappings mappings = this; mappings != null; mappings = mappings.parent) {
+            chain.add(mappings);
+        }
+        Map<String, String> result = new TreeMap<String, String>();
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            result.putAll(chain.get(i).declared);
+        }
+        return Collections.unmodifiableMap(result).entrySet();
+    }
+}
@@ -18,6 +18,7 @@ package org.semarglproject.rdf.rdfa;
 import org.semarglproject.rdf.ParseException;
 import org.semarglproject.rdf.ProcessorGraphHandler;
 import org.semarglproject.rdf.RdfXmlParser;
+import org.semarglproject.ri.IriCache;
 import org.semarglproject.ri.MalformedCurieException;
 import org.semarglproject.ri.MalformedIriException;
 import org.semarglproject.ri.RIUtils;
@@ -57,6 +58,7 @@ import java.util.NoSuchElementException;
  *         <li>{@link #ENABLE_OUTPUT_GRAPH}</li>
  *         <li>{@link #ENABLE_PROCESSOR_GRAPH}</li>
  *         <li>{@link #ENABLE_VOCAB_EXPANSION}</li>
+ *         <li>{@link #VOCAB_MANAGER_PROPERTY}</li>
  *     </ul>
  */
 public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, TripleSink, ProcessorGraphHandler {
@@ -91,14 +93,17 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
     public static final String ENABLE_VOCAB_EXPANSION =
             "http://semarglproject.org/rdfa/properties/enable-vocab-expansion";
 
+    /**
+     * Used as a key with {@link #setProperty(String, Object)} method.
+     * Allows to specify {@link VocabManager} used to load and cache vocabularies for vocabulary expansion.
+     * By default all parsers share single in-memory manager.
+     */
+    public static final String VOCAB_MANAGER_PROPERTY =
+            "http://semarglproject.org/rdfa/properties/vocab-manager";
+
     static final String AUTODETECT_DATE_DATATYPE = "AUTODETECT_DATE_DATATYPE";
 
-    private static final ThreadLocal<VocabManager> VOCAB_MANAGER = new ThreadLocal<VocabManager>() {
-        @Override
-        protected VocabManager initialValue() {
-            return new VocabManager();
-        }
-    };
+    private static final VocabManager DEFAULT_VOCAB_MANAGER = new VocabManager();
 
     // flag used in incomplTriple list to indicate that following element should be
     // treated as having @rev relation instead of @rel
@@ -130,9 +135,14 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
     private static final String PARENT_OBJECT = "poie";
     private static final String BNODE_IF_TYPEOF = RDFa.TYPEOF_ATTR;
 
+    // literal buffers grown beyond this capacity aren't reused to not pin memory after huge literals
+    private static final int MAX_POOLED_BUFFER_CAPACITY = 1 << 16;
+
     private Deque<EvalContext> contextStack = null;
 
     private StringBuilder xmlString = null;
+    private final StringBuilder xmlStringBuffer = new StringBuilder();
+    private final List<StringBuilder> literalBuffers = new ArrayList<StringBuilder>();
     private List<String> xmlStringPred = null;
     private String xmlStringSubj = null;
 
@@ -141,6 +151,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
     private boolean sinkProcessorGraph;
 
     private boolean expandVocab;
+    private VocabManager vocabManager = DEFAULT_VOCAB_MANAGER;
     private final DocumentContext dh;
     private final Splitter splitter;
     private Locator locator = null;
@@ -246,7 +257,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
 
         EvalContext parent = contextStack.peek();
         if (parent.parsingLiteral) {
-            xmlString.append(XmlUtils.serializeOpenTag(nsUri, qName, parent.iriMappings, attrs, false));
+            XmlUtils.serializeOpenTag(xmlString, nsUri, qName, parent.iriMappings, attrs, false);
         }
 
         if (dh.rdfaVersion > RDFa.VERSION_10 && attrs.getValue(RDFa.PREFIX_ATTR) != null) {
@@ -814,7 +825,8 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
      */
     private void pushContext(EvalContext current, EvalContext parent, boolean skipElement) {
         if (current.parsingLiteral) {
-            xmlString = new StringBuilder();
+            xmlString = xmlStringBuffer;
+            xmlString.setLength(0);
             xmlStringPred = current.properties;
             xmlStringSubj = current.subject == null ? parent.subject : current.subject;
         }
@@ -825,7 +837,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
             current.objectLit = null;
             current.objectLitDt = parent.objectLitDt;
             if (current.objectLitDt != null) {
-                current.objectLit = "";
+                current.objectLit = acquireLiteralBuffer();
             }
             current.properties = null;
             contextStack.push(current);
@@ -847,7 +859,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
             current.object = current.subject;
         }
         if (current.objectLitDt != null || parent.objectLitDt != null) {
-            current.objectLit = "";
+            current.objectLit = acquireLiteralBuffer();
         }
         contextStack.push(current);
     }
@@ -880,6 +892,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
 
         EvalContext parent = contextStack.peek();
         processContent(current, parent);
+        releaseLiteralBuffer(current);
 
         // noinspection ObjectEquality
         if (parent.listMapping != current.listMapping) {
@@ -915,17 +928,19 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
      * @param parent parent context
      */
     private void processContent(EvalContext current, EvalContext parent) {
-        String content = current.objectLit;
-        if (content == null) {
+        StringBuilder buffer = current.objectLit;
+        if (buffer == null) {
             return;
         }
         if (!parent.parsingLiteral && parent.objectLit != null) {
-            parent.objectLit += content;
+            parent.objectLit.append(buffer);
         }
         if (current.properties == null) {
             return;
         }
 
+        String content = buffer.toString();
+
         String dt = current.objectLitDt;
         boolean inlist = RDFa.INLIST_ATTR.equals(current.properties.get(0));
 
@@ -946,6 +961,34 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
         }
     }
 
+    /**
+     * Takes empty buffer for node content from pool or creates new one
+     * @return empty buffer
+     */
+    private StringBuilder acquireLiteralBuffer() {
+        int size = literalBuffers.size();
+        if (size == 0) {
+            return new StringBuilder();
+        }
+        return literalBuffers.remove(size - 1);
+    }
+
+    /**
+     * Returns buffer of closed node to pool
+     * @param current closed context
+     */
+    private void releaseLiteralBuffer(EvalContext current) {
+        StringBuilder buffer = current.objectLit;
+        if (buffer == null) {
+            return;
+        }
+        current.objectLit = null;
+        if (buffer.capacity() <= MAX_POOLED_BUFFER_CAPACITY) {
+            buffer.setLength(0);
+            literalBuffers.add(buffer);
+        }
+    }
+
     /**
      * Generates triples from list mappings on node close event
      * @param current current context
@@ -994,7 +1037,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
             xmlString.append(buffer, start, length);
         }
         if (parent.objectLit != null) {
-            parent.addContent(String.copyValueOf(buffer, start, length));
+            parent.objectLit.append(buffer, start, length);
         }
     }
 
@@ -1067,6 +1110,10 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
                 && value instanceof ProcessorGraphHandler) {
             processorGraphHandler = (ProcessorGraphHandler) value;
             return false;
+        } else if (StreamProcessor.IRI_CACHE_PROPERTY.equals(key) && value instanceof IriCache) {
+            dh.setIriCache((IriCache) value);
+        } else if (VOCAB_MANAGER_PROPERTY.equals(key) && value instanceof VocabManager) {
+            vocabManager = (VocabManager) value;
         } else {
             return false;
         }
@@ -1089,7 +1136,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
         if (sinkOutputGraph) {
             sink.addNonLiteral(dh.base, RDFa.USES_VOCABULARY, vocabUrl);
         }
-        return VOCAB_MANAGER.get().findVocab(vocabUrl, expandVocab);
+        return vocabManager.findVocab(vocabUrl, expandVocab);
     }
 
     // error handling
@@ -1199,19 +1246,20 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
             sink.addNonLiteral(subj, pred, obj);
             return;
         }
-        addNonLiteralWithObjExpansion(subj, pred, obj);
-        for (String predSynonym : contextStack.peek().expand(pred)) {
-            addNonLiteralWithObjExpansion(subj, predSynonym, obj);
+        EvalContext context = contextStack.peek();
+        addNonLiteralWithObjExpansion(subj, pred, obj, context);
+        for (String predSynonym : context.expandProperty(pred)) {
+            addNonLiteralWithObjExpansion(subj, predSynonym, obj, context);
         }
     }
 
-    private void addNonLiteralWithObjExpansion(String subj, String pred, String obj) {
-        if (obj.startsWith(RDF.BNODE_PREFIX)) {
-            sink.addNonLiteral(subj, pred, obj);
+    private void addNonLiteralWithObjExpansion(String subj, String pred, String obj, EvalContext context) {
+        sink.addNonLiteral(subj, pred, obj);
+        // class entailment rules only apply to objects of rdf:type
+        if (!pred.equals(RDF.TYPE) || obj.startsWith(RDF.BNODE_PREFIX)) {
             return;
         }
-        sink.addNonLiteral(subj, pred, obj);
-        for (String objSynonym : contextStack.peek().expand(obj)) {
+        for (String objSynonym : context.expandClass(obj)) {
             sink.addNonLiteral(subj, pred, objSynonym);
         }
     }
@@ -1234,7 +1282,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
 
     private void addPlainLiteralInternal(String subj, String pred, String content, String lang) {
         sink.addPlainLiteral(subj, pred, content, lang);
-        for (String predSynonym : contextStack.peek().expand(pred)) {
+        for (String predSynonym : contextStack.peek().expandProperty(pred)) {
             sink.addPlainLiteral(subj, predSynonym, content, lang);
         }
     }
@@ -1256,7 +1304,7 @@ public final class RdfaParser extends Pipe<TripleSink> implements XmlSink, Tripl
 
     private void addTypedLiteralInternal(String subj, String pred, String content, String type) {
         sink.addTypedLiteral(subj, pred, content, type);
-        for (String predSynonym : contextStack.peek().expand(pred)) {
+        for (String predSynonym : contextStack.peek().expandProperty(pred)) {
             sink.addTypedLiteral(subj, predSynonym, content, type);
         }
     }
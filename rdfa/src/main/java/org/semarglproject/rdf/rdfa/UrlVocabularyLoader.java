@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.TripleSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Fetches vocabularies from their URLs. Each vocabulary is fetched once, its format is detected
+ * by content type or by first bytes of document. RDFa, RDF/XML and N-Triples documents are supported.
+ */
+public final class UrlVocabularyLoader implements VocabularyLoader {
+
+    /**
+     * Default connect and read timeout in milliseconds
+     */
+    public static final int DEFAULT_TIMEOUT = 10000;
+
+    private static final String ACCEPT = "application/rdf+xml, application/xhtml+xml;q=0.9, text/html;q=0.9, "
+            + "application/n-triples;q=0.8, */*;q=0.1";
+
+    private final int timeout;
+
+    /**
+     * Creates loader with default timeout
+     */
+    public UrlVocabularyLoader() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates loader with specified timeout
+     * @param timeout connect and read timeout in milliseconds, zero means infinite timeout
+     */
+    public UrlVocabularyLoader(int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout can't be negative");
+        }
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean load(String vocabUrl, TripleSink sink) throws ParseException {
+        URL url;
+        try {
+            url = new URL(vocabUrl);
+        } catch (MalformedURLException e) {
+            return false;
+        }
+        InputStream inputStream = null;
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setRequestProperty("Accept", ACCEPT);
+            inputStream = connection.getInputStream();
+            return VocabularyFormat.parse(inputStream, null, connection.getContentType(), vocabUrl, sink);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // do nothing
+                }
+            }
+        }
+    }
+}
@@ -15,23 +15,337 @@
  */
 package org.semarglproject.rdf.rdfa;
 
-import java.util.HashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-final class VocabManager {
+/**
+ * Thread safe cache of vocabularies used by RDFa parsers for
+ * <a href="http://www.w3.org/TR/2012/REC-rdfa-core-20120607/#s_vocab_expansion">vocabulary expansion</a>.
+ * Single instance can be shared by all parsers of the process using
+ * {@link RdfaParser#VOCAB_MANAGER_PROPERTY}, parsers without such property share default instance.
+ * <br>
+ * Each vocabulary is fetched once even if it is requested by several threads simultaneously,
+ * cached vocabularies expire after specified time to live and least recently used ones are dropped
+ * when cache is full. Vocabularies which failed to load are kept for {@link #FAILED_LOAD_TTL} at most,
+ * so transient network errors don't disable vocabulary expansion for the whole time to live.
+ * When storage directory is specified, terms and expansions of loaded vocabularies
+ * are persisted there and reused by subsequently created managers until they expire.
+ * <br>
+ * Vocabularies are obtained from {@link VocabularyLoader}s, by default bundled vocabularies
+ * are loaded from classpath and other ones are fetched from their URLs.
+ */
+public final class VocabManager {
+
+    /**
+     * Count of vocabularies cached by default
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Default time to live of cached vocabularies in milliseconds
+     */
+    public static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Time to live of vocabularies which failed to load in milliseconds
+     */
+    public static final long FAILED_LOAD_TTL = TimeUnit.MINUTES.toMillis(1);
 
-    private final Map<String, Vocabulary> vocabCache = new HashMap<String, Vocabulary>();
+    private static final int STORAGE_FORMAT_VERSION = 2;
+    private static final String STORAGE_FILE_SUFFIX = ".vocab";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int capacity;
+    private final long ttl;
+    private final long failedLoadTtl;
+    private final File storageDir;
+    private final List<VocabularyLoader> loaders;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final Object evictionLock = new Object();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Creates in-memory cache with default capacity and time to live
+     */
+    public VocabManager() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL, null);
+    }
+
+    /**
+     * Creates cache with specified settings
+     * @param capacity maximum count of cached vocabularies
+     * @param ttl time to live of cached vocabularies in milliseconds
+     * @param storageDir directory to persist loaded vocabularies to, null disables persistence
+     */
+    public VocabManager(int capacity, long ttl, File storageDir) {
+        this(capacity, ttl, storageDir, new ClasspathVocabularyLoader(), new UrlVocabularyLoader());
+    }
+
+    /**
+     * Creates cache with specified settings and vocabulary loaders
+     * @param capacity maximum count of cached vocabularies
+     * @param ttl time to live of cached vocabularies in milliseconds
+     * @param storageDir directory to persist loaded vocabularies to, null disables persistence
+     * @param loaders loaders asked in specified order
+     */
+    public VocabManager(int capacity, long ttl, File storageDir, VocabularyLoader... loaders) {
+        this(capacity, ttl, FAILED_LOAD_TTL, storageDir, loaders);
+    }
+
+    VocabManager(int capacity, long ttl, long failedLoadTtl, File storageDir, VocabularyLoader... loaders) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        if (storageDir != null && !storageDir.isDirectory() && !storageDir.mkdirs()) {
+            throw new IllegalArgumentException("Can not create storage directory " + storageDir);
+        }
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.failedLoadTtl = Math.min(ttl, failedLoadTtl);
+        this.storageDir = storageDir;
+        this.loaders = Collections.unmodifiableList(new ArrayList<VocabularyLoader>(Arrays.asList(loaders)));
+    }
 
     Vocabulary findVocab(String vocabUrl, boolean expandVocab) {
-        Vocabulary vocab = vocabCache.get(vocabUrl);
+        if (!expandVocab) {
+            // terms of not loaded vocabulary are resolved without checks, so it's cheaper to not cache it
+            return new Vocabulary(vocabUrl);
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(vocabUrl);
+        if (entry != null && entry.isExpired(now)) {
+            entries.remove(vocabUrl, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            Entry newEntry = new Entry(vocabUrl, now);
+            entry = entries.putIfAbsent(vocabUrl, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                evictIfFull();
+                entry.task.run();
+            }
+        }
+        entry.lastAccess = now;
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            entries.remove(vocabUrl, entry);
+        }
+        return new Vocabulary(vocabUrl);
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= capacity) {
+            return;
+        }
+        synchronized (evictionLock) {
+            while (entries.size() > capacity) {
+                Map.Entry<String, Entry> eldest = null;
+                for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                    if (eldest == null || mapEntry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                        eldest = mapEntry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                entries.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    private Vocabulary load(Entry entry) {
+        Vocabulary vocab = readStoredVocab(entry);
         if (vocab != null) {
             return vocab;
         }
-        vocab = new Vocabulary(vocabUrl);
-        vocabCache.put(vocabUrl, vocab);
-        if (expandVocab) {
-            vocab.load();
+        loadCount.incrementAndGet();
+        vocab = new Vocabulary(entry.url);
+        vocab.load(loaders);
+        entry.loadedAt = System.currentTimeMillis();
+        entry.failed = !vocab.isLoaded();
+        if (vocab.isLoaded()) {
+            storeVocab(vocab, entry.loadedAt);
         }
         return vocab;
     }
+
+    private Vocabulary readStoredVocab(Entry entry) {
+        if (storageDir == null) {
+            return null;
+        }
+        File file = getStorageFile(entry.url);
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != STORAGE_FORMAT_VERSION) {
+                return null;
+            }
+            long loadedAt = input.readLong();
+            if (System.currentTimeMillis() - loadedAt >= ttl) {
+                return null;
+            }
+            Vocabulary vocab = Vocabulary.readFrom(input);
+            if (!entry.url.equals(vocab.getUrl())) {
+                return null;
+            }
+            entry.loadedAt = loadedAt;
+            return vocab;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private void storeVocab(Vocabulary vocab, long loadedAt) {
+        if (storageDir == null) {
+            return;
+        }
+        File file = getStorageFile(vocab.getUrl());
+        File tempFile = null;
+        DataOutputStream output = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", storageDir);
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            output.writeInt(STORAGE_FORMAT_VERSION);
+            output.writeLong(loadedAt);
+            vocab.writeTo(output);
+            output.close();
+            output = null;
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    private File getStorageFile(String vocabUrl) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(vocabUrl.getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(digest.length * 2 + STORAGE_FILE_SUFFIX.length());
+        for (byte b : digest) {
+            name.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return new File(storageDir, name.append(STORAGE_FILE_SUFFIX).toString());
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+        }
+    }
+
+    /**
+     * Removes all cached vocabularies from memory. Persisted vocabularies are kept.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return count of cached vocabularies
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return count of vocabularies obtained from loaders
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return maximum count of cached vocabularies
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return time to live of cached vocabularies in milliseconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return vocabulary loaders in order they are asked
+     */
+    public List<VocabularyLoader> getLoaders() {
+        return loaders;
+    }
+
+    private final class Entry implements Callable<Vocabulary> {
+        private final String url;
+        private final FutureTask<Vocabulary> task;
+        private volatile long loadedAt;
+        private volatile long lastAccess;
+        private volatile boolean failed;
+
+        private Entry(String url, long now) {
+            this.url = url;
+            this.task = new FutureTask<Vocabulary>(this);
+            this.loadedAt = now;
+            this.lastAccess = now;
+        }
+
+        private boolean isExpired(long now) {
+            return task.isDone() && now - loadedAt >= (failed ? failedLoadTtl : ttl);
+        }
+
+        @Override
+        public Vocabulary call() {
+            return load(this);
+        }
+    }
 }
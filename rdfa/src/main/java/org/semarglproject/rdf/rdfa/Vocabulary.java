@@ -16,130 +16,264 @@
 package org.semarglproject.rdf.rdfa;
 
 import org.semarglproject.rdf.ParseException;
-import org.semarglproject.rdf.RdfXmlParser;
 import org.semarglproject.ri.RIUtils;
 import org.semarglproject.sink.TripleSink;
-import org.semarglproject.source.StreamProcessor;
 import org.semarglproject.vocab.OWL;
 import org.semarglproject.vocab.RDF;
 import org.semarglproject.vocab.RDFS;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Terms of vocabulary used for term resolution and
+ * <a href="http://www.w3.org/TR/2012/REC-rdfa-core-20120607/#s_vocab_expansion">vocabulary expansion</a>.
+ * Each term gets ID on load, transitive closures of property (rdfs:subPropertyOf, owl:equivalentProperty)
+ * and class (rdfs:subClassOf, owl:equivalentClass) relations are precomputed into arrays indexed by term ID.
+ * Vocabulary is immutable after loading.
+ */
 final class Vocabulary {
 
+    static final String[] NO_EXPANSIONS = new String[0];
+
     private final String url;
-    private Map<String, Collection<String>> expansions = null;
-    private Collection<String> terms = null;
+    private Map<String, Integer> termIds = null;
+    private String[] terms = null;
+    private String[][] propertyExpansions = null;
+    private String[][] classExpansions = null;
 
     Vocabulary(String url) {
         this.url = url;
     }
 
-    private void addExpansion(String pred, String expansion) {
-        if (!expansions.containsKey(pred)) {
-            expansions.put(pred, new HashSet<String>());
-        }
-        expansions.get(pred).add(expansion);
+    String getUrl() {
+        return url;
     }
 
-    void load() {
-        VocabParser vocabParser = new VocabParser();
+    boolean isLoaded() {
+        return terms != null;
+    }
 
-        URL vocabUrl;
-        try {
-            vocabUrl = new URL(url);
-        } catch (MalformedURLException e) {
-            return;
+    /**
+     * Writes terms and expansions of loaded vocabulary
+     * @param output output to write to
+     * @throws IOException
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(url);
+        output.writeInt(terms.length);
+        for (String term : terms) {
+            output.writeUTF(term);
         }
+        writeExpansions(output, propertyExpansions);
+        writeExpansions(output, classExpansions);
+    }
 
-        if (expansions == null) {
-            expansions = new HashMap<String, Collection<String>>();
-            terms = new HashSet<String>();
+    private void writeExpansions(DataOutput output, String[][] expansions) throws IOException {
+        for (String[] termExpansions : expansions) {
+            output.writeInt(termExpansions.length);
+            for (String expansion : termExpansions) {
+                output.writeInt(termIds.get(expansion));
+            }
         }
+    }
 
-        StreamProcessor rdfaSp = new StreamProcessor(RdfaParser.connect(vocabParser));
-        rdfaSp.setProperty(RdfaParser.ENABLE_VOCAB_EXPANSION, false);
-        parseVocabWithDp(vocabUrl, rdfaSp);
-
-        if (!terms.isEmpty() || !expansions.isEmpty()) {
-            return;
+    /**
+     * Reads vocabulary written by {@link #writeTo(java.io.DataOutput)}
+     * @param input input to read from
+     * @return read vocabulary
+     * @throws IOException
+     */
+    static Vocabulary readFrom(DataInput input) throws IOException {
+        Vocabulary vocab = new Vocabulary(input.readUTF());
+        int count = input.readInt();
+        vocab.terms = new String[count];
+        vocab.termIds = new HashMap<String, Integer>(count * 2);
+        for (int i = 0; i < count; i++) {
+            vocab.terms[i] = input.readUTF();
+            vocab.termIds.put(vocab.terms[i], i);
         }
+        vocab.propertyExpansions = readExpansions(input, vocab.terms);
+        vocab.classExpansions = readExpansions(input, vocab.terms);
+        return vocab;
+    }
 
-        // TODO: add format detection
-        StreamProcessor rdfXmlSp = new StreamProcessor(RdfXmlParser.connect(vocabParser));
-        rdfaSp.setProperty(RdfaParser.ENABLE_VOCAB_EXPANSION, false);
-        parseVocabWithDp(vocabUrl, rdfXmlSp);
-
-        if (terms.isEmpty() && expansions.isEmpty()) {
-            terms = null;
-            expansions = null;
+    private static String[][] readExpansions(DataInput input, String[] terms) throws IOException {
+        String[][] result = new String[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            int count = input.readInt();
+            result[i] = count == 0 ? NO_EXPANSIONS : new String[count];
+            for (int j = 0; j < count; j++) {
+                int id = input.readInt();
+                if (id < 0 || id >= terms.length) {
+                    throw new IOException("Malformed term ID " + id);
+                }
+                result[i][j] = terms[id];
+            }
         }
+        return result;
     }
 
-    private void parseVocabWithDp(URL vocabUrl, StreamProcessor streamProcessor) {
-        InputStream inputStream;
-        try {
-            inputStream = vocabUrl.openStream();
-        } catch (IOException e) {
+    /**
+     * Loads vocabulary using first loader which supports its URL. If loader fails
+     * next one is tried and triples streamed by failed loader are discarded.
+     * Vocabulary stays not loaded if no terms were found.
+     * @param loaders loaders to ask
+     */
+    void load(List<VocabularyLoader> loaders) {
+        VocabParser vocabParser = null;
+        for (VocabularyLoader loader : loaders) {
+            VocabParser attempt = new VocabParser();
+            try {
+                if (loader.load(url, attempt)) {
+                    vocabParser = attempt;
+                    break;
+                }
+            } catch (ParseException e) {
+                // try next loader
+            }
+        }
+        if (vocabParser == null || vocabParser.terms.isEmpty()) {
             return;
         }
-        InputStreamReader reader = new InputStreamReader(inputStream);
-        try {
-            streamProcessor.process(reader, url);
-        } catch (ParseException e) {
-            // do nothing
-        } finally {
-            try {
-                reader.close();
-            } catch (IOException e) {
-                // do nothing
+        termIds = vocabParser.termIds;
+        terms = vocabParser.terms.toArray(new String[vocabParser.terms.size()]);
+        propertyExpansions = computeClosure(vocabParser.propertyEdges, terms);
+        classExpansions = computeClosure(vocabParser.classEdges, terms);
+    }
+
+    /**
+     * Computes transitive closure of relation
+     * @param edges direct relations indexed by term ID
+     * @param terms terms indexed by ID
+     * @return terms reachable from each term excluding term itself indexed by term ID
+     */
+    private static String[][] computeClosure(List<Set<Integer>> edges, String[] terms) {
+        String[][] result = new String[terms.length][];
+        int[] visitedBy = new int[terms.length];
+        int[] queue = new int[terms.length];
+        for (int id = 0; id < terms.length; id++) {
+            if (edges.get(id) == null) {
+                result[id] = NO_EXPANSIONS;
+                continue;
+            }
+            int mark = id + 1;
+            visitedBy[id] = mark;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = id;
+            while (head < tail) {
+                Set<Integer> next = edges.get(queue[head++]);
+                if (next == null) {
+                    continue;
+                }
+                for (int target : next) {
+                    if (visitedBy[target] != mark) {
+                        visitedBy[target] = mark;
+                        queue[tail++] = target;
+                    }
+                }
+            }
+            result[id] = new String[tail - 1];
+            for (int i = 1; i < tail; i++) {
+                result[id][i - 1] = terms[queue[i]];
             }
         }
+        return result;
+    }
+
+    /**
+     * @param iri property IRI
+     * @return IRIs of properties implied by specified one
+     */
+    String[] expandProperty(String iri) {
+        return expand(iri, propertyExpansions);
     }
 
-    Collection<String> expand(String uri) {
-        if (expansions == null || !expansions.containsKey(uri)) {
-            return Collections.EMPTY_LIST;
+    /**
+     * @param iri class IRI
+     * @return IRIs of classes implied by specified one
+     */
+    String[] expandClass(String iri) {
+        return expand(iri, classExpansions);
+    }
+
+    private String[] expand(String iri, String[][] expansions) {
+        if (termIds == null) {
+            return NO_EXPANSIONS;
+        }
+        Integer id = termIds.get(iri);
+        if (id == null) {
+            return NO_EXPANSIONS;
         }
-        return expansions.get(uri);
+        return expansions[id];
     }
 
     String resolveTerm(String term) {
         String termUri = url + term;
-        if (terms == null && RIUtils.isAbsoluteIri(termUri) || terms != null && terms.contains(termUri)) {
+        if (termIds == null && RIUtils.isAbsoluteIri(termUri) || termIds != null && termIds.containsKey(termUri)) {
             return termUri;
         }
         return null;
     }
 
-    private final class VocabParser implements TripleSink {
+    private static final class VocabParser implements TripleSink {
+
+        private final Map<String, Integer> termIds = new HashMap<String, Integer>();
+        private final List<String> terms = new ArrayList<String>();
+        private final List<Set<Integer>> propertyEdges = new ArrayList<Set<Integer>>();
+        private final List<Set<Integer>> classEdges = new ArrayList<Set<Integer>>();
+
+        private int getTermId(String iri) {
+            Integer id = termIds.get(iri);
+            if (id == null) {
+                id = terms.size();
+                termIds.put(iri, id);
+                terms.add(iri);
+                propertyEdges.add(null);
+                classEdges.add(null);
+            }
+            return id;
+        }
+
+        private void addEdge(List<Set<Integer>> edges, String from, String to) {
+            int fromId = getTermId(from);
+            int toId = getTermId(to);
+            if (fromId == toId) {
+                return;
+            }
+            Set<Integer> targets = edges.get(fromId);
+            if (targets == null) {
+                targets = new LinkedHashSet<Integer>();
+                edges.set(fromId, targets);
+            }
+            targets.add(toId);
+        }
+
         @Override
         public void addNonLiteral(String subj, String pred, String obj) {
             if (subj.startsWith(RDF.BNODE_PREFIX) || obj.startsWith(RDF.BNODE_PREFIX)) {
                 return;
             }
-            if (pred.equals(OWL.EQUIVALENT_PROPERTY) || pred.equals(OWL.EQUIVALENT_CLASS)) {
-                addExpansion(subj, obj);
-                addExpansion(obj, subj);
-                terms.add(obj);
-                terms.add(subj);
-            } else if (pred.equals(RDFS.SUB_CLASS_OF) || pred.equals(RDFS.SUB_PROPERTY_OF)) {
-                addExpansion(subj, obj);
-                terms.add(obj);
-                terms.add(subj);
-            }
-            if (pred.equals(RDF.TYPE) && (obj.equals(RDF.PROPERTY) || obj.equals(RDFS.CLASS))) {
-                terms.add(subj);
+            if (pred.equals(OWL.EQUIVALENT_PROPERTY)) {
+                addEdge(propertyEdges, subj, obj);
+                addEdge(propertyEdges, obj, subj);
+            } else if (pred.equals(OWL.EQUIVALENT_CLASS)) {
+                addEdge(classEdges, subj, obj);
+                addEdge(classEdges, obj, subj);
+            } else if (pred.equals(RDFS.SUB_PROPERTY_OF)) {
+                addEdge(propertyEdges, subj, obj);
+            } else if (pred.equals(RDFS.SUB_CLASS_OF)) {
+                addEdge(classEdges, subj, obj);
+            } else if (pred.equals(RDF.TYPE) && (obj.equals(RDF.PROPERTY) || obj.equals(RDFS.CLASS))) {
+                getTermId(subj);
             }
         }
 
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.semarglproject.rdf.NTriplesParser;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.rdf.RdfXmlParser;
+import org.semarglproject.sink.DataSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.source.StreamProcessor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Detects format of vocabulary documents and parses them with appropriate parser.
+ */
+final class VocabularyFormat {
+
+    static final String RDFA = "rdfa";
+    static final String RDF_XML = "rdfxml";
+    static final String NTRIPLES = "ntriples";
+
+    private static final int SNIFF_LENGTH = 1024;
+
+    private VocabularyFormat() {
+    }
+
+    /**
+     * Parses vocabulary document. Format is detected by MIME type if it's specific enough
+     * or by first bytes of document otherwise.
+     * @param inputStream document's input stream
+     * @param format document's format or null if it's unknown
+     * @param mimeType document's MIME type, can be null
+     * @param baseUri document's base URI
+     * @param sink sink to stream triples to
+     * @return false if format of document isn't supported
+     * @throws IOException
+     * @throws ParseException
+     */
+    static boolean parse(InputStream inputStream, String format, String mimeType, String baseUri,
+                         TripleSink sink) throws IOException, ParseException {
+        InputStream input = inputStream;
+        if (format == null) {
+            format = fromMimeType(mimeType);
+        }
+        if (format == null) {
+            input = new BufferedInputStream(inputStream, SNIFF_LENGTH);
+            input.mark(SNIFF_LENGTH);
+            byte[] head = new byte[SNIFF_LENGTH];
+            int length = 0;
+            int read;
+            while (length < head.length && (read = input.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+            input.reset();
+            format = sniff(head, length);
+        }
+        if (format == null) {
+            return false;
+        }
+        new StreamProcessor(createParser(format, sink)).process(input, baseUri);
+        return true;
+    }
+
+    /**
+     * @param mimeType MIME type with optional parameters
+     * @return format of documents with specified MIME type or null if it should be sniffed
+     */
+    static String fromMimeType(String mimeType) {
+        if (mimeType == null) {
+            return null;
+        }
+        int paramsStart = mimeType.indexOf(';');
+        String type = (paramsStart == -1 ? mimeType : mimeType.substring(0, paramsStart)).trim().toLowerCase();
+        if (type.equals("application/rdf+xml")) {
+            return RDF_XML;
+        } else if (type.equals("text/html") || type.equals("application/xhtml+xml")
+                || type.equals("image/svg+xml")) {
+            return RDFA;
+        } else if (type.equals("application/n-triples")) {
+            return NTRIPLES;
+        }
+        return null;
+    }
+
+    /**
+     * @param fileName name of vocabulary file
+     * @return format of vocabulary file with specified extension or null if it should be sniffed
+     */
+    static String fromFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".rdf") || name.endsWith(".owl")) {
+            return RDF_XML;
+        } else if (name.endsWith(".html") || name.endsWith(".xhtml") || name.endsWith(".svg")) {
+            return RDFA;
+        } else if (name.endsWith(".nt")) {
+            return NTRIPLES;
+        }
+        return null;
+    }
+
+    /**
+     * Detects format by first bytes of document
+     * @param head first bytes of document
+     * @param length count of read bytes
+     * @return detected format or null if document doesn't look like supported one
+     */
+    static String sniff(byte[] head, int length) {
+        int pos = 0;
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+        while (pos < length && head[pos] <= ' ' && head[pos] >= 0) {
+            pos++;
+        }
+        if (pos == length) {
+            return null;
+        }
+        // bytes are only compared with ASCII markers, so single byte decoding is enough
+        String text = new String(head, pos, length - pos, Charset.forName("ISO-8859-1"));
+        if (text.startsWith("_:") || text.startsWith("#") || text.startsWith("<http:")
+                || text.startsWith("<https:") || text.startsWith("<urn:")) {
+            return NTRIPLES;
+        }
+        if (!text.startsWith("<")) {
+            return null;
+        }
+        String lowerText = text.toLowerCase();
+        if (lowerText.contains("<html") || lowerText.contains("<!doctype html") || lowerText.contains("<svg")) {
+            return RDFA;
+        }
+        if (text.contains("<rdf:RDF") || text.contains("rdf:about=") || text.contains("rdf:resource=")) {
+            return RDF_XML;
+        }
+        return RDFA;
+    }
+
+    private static DataSink createParser(String format, TripleSink sink) {
+        if (RDF_XML.equals(format)) {
+            return RdfXmlParser.connect(sink);
+        } else if (NTRIPLES.equals(format)) {
+            return NTriplesParser.connect(sink);
+        }
+        DataSink parser = RdfaParser.connect(sink);
+        parser.setProperty(RdfaParser.ENABLE_VOCAB_EXPANSION, false);
+        return parser;
+    }
+}
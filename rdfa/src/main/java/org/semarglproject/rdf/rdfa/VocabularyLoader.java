@@ -0,0 +1,39 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.TripleSink;
+
+/**
+ * Source of vocabulary definitions used by {@link VocabManager} for vocabulary expansion.
+ * Loaders are asked in order until one of them supports vocabulary URL.
+ *
+ * @see ClasspathVocabularyLoader
+ * @see UrlVocabularyLoader
+ */
+public interface VocabularyLoader {
+
+    /**
+     * Streams triples of vocabulary definition to specified sink.
+     * @param vocabUrl vocabulary URL
+     * @param sink sink to stream triples to
+     * @return false if loader doesn't support specified vocabulary, true otherwise
+     * @throws ParseException if vocabulary can't be fetched or parsed
+     */
+    boolean load(String vocabUrl, TripleSink sink) throws ParseException;
+
+}
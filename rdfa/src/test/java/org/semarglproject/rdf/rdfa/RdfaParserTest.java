@@ -15,6 +15,7 @@
  */
 package org.semarglproject.rdf.rdfa;
 
+import org.semarglproject.rdf.NTriplesSerializer;
 import org.semarglproject.rdf.ParseException;
 import org.semarglproject.rdf.TurtleSerializer;
 import org.semarglproject.rdf.rdfa.RdfaTestSuiteHelper.SaveToFileCallback;
@@ -22,6 +23,7 @@ import org.semarglproject.rdf.rdfa.RdfaTestSuiteHelper.TestCase;
 import org.semarglproject.sink.CharOutputSink;
 import org.semarglproject.source.StreamProcessor;
 import org.semarglproject.test.TestNGHelper;
+import org.semarglproject.vocab.RDF;
 import org.semarglproject.vocab.RDFa;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -29,10 +31,13 @@ import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
 
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Method;
 
 import static org.semarglproject.rdf.rdfa.RdfaTestSuiteHelper.runTestBundle;
+import static org.testng.Assert.assertTrue;
 
 public final class RdfaParserTest {
 
@@ -115,4 +120,67 @@ public final class RdfaParserTest {
         runTestBundle(testCase, semarglTurtleCallback, RDFa.VERSION_11);
     }
 
+    @Test
+    public void deeplyNestedPrefixRedefinitions() throws ParseException {
+        int depth = 2000;
+        StringBuilder doc = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\">"
+                + "<head><title>Nested</title></head><body about=\"http://example.org/s\">");
+        for (int i = 0; i < depth; i++) {
+            doc.append("<div");
+            if (i % 2 == 0) {
+                doc.append(" prefix=\"ex: http://example.org/level").append(i).append("/\"");
+            }
+            doc.append("><span property=\"ex:p\">v").append(i).append("</span>");
+        }
+        for (int i = 0; i < depth; i++) {
+            doc.append("</div>");
+        }
+        doc.append("</body></html>");
+
+        CharOutputSink outputSink = new CharOutputSink("UTF-8");
+        StringWriter output = new StringWriter();
+        outputSink.connect(output);
+        StreamProcessor sp = new StreamProcessor(RdfaParser.connect(NTriplesSerializer.connect(outputSink)));
+        sp.setProperty(RdfaParser.RDFA_VERSION_PROPERTY, RDFa.VERSION_11);
+        sp.process(new StringReader(doc.toString()), "http://example.org/");
+
+        String result = output.toString();
+        for (int i = 0; i < depth; i++) {
+            String triple = "<http://example.org/s> <http://example.org/level" + (i - i % 2) + "/p> \"v" + i + "\" .";
+            assertTrue(result.contains(triple), triple);
+        }
+    }
+
+    @Test
+    public void longLiteralsWithMarkup() throws ParseException {
+        int parts = 20000;
+        StringBuilder doc = new StringBuilder("<html xmlns=\"http://www.w3.org/1999/xhtml\">"
+                + "<head><title>Long</title></head><body about=\"http://example.org/s\">"
+                + "<div property=\"http://example.org/plain\">");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            doc.append("<span>t").append(i).append("</span> ");
+            expected.append('t').append(i).append(' ');
+        }
+        doc.append("</div><div property=\"http://example.org/xml\" datatype=\"").append(RDF.XML_LITERAL).append("\">");
+        for (int i = 0; i < parts; i++) {
+            doc.append("<b>x</b>");
+        }
+        doc.append("</div><div property=\"http://example.org/after\">end</div></body></html>");
+
+        CharOutputSink outputSink = new CharOutputSink("UTF-8");
+        StringWriter output = new StringWriter();
+        outputSink.connect(output);
+        StreamProcessor sp = new StreamProcessor(RdfaParser.connect(NTriplesSerializer.connect(outputSink)));
+        sp.setProperty(RdfaParser.RDFA_VERSION_PROPERTY, RDFa.VERSION_11);
+        sp.process(new StringReader(doc.toString()), "http://example.org/");
+
+        String result = output.toString();
+        String plain = "<http://example.org/s> <http://example.org/plain> \"" + expected + "\" .";
+        assertTrue(result.contains(plain));
+        assertTrue(result.contains("<http://example.org/s> <http://example.org/xml> "
+                + "\"<b xmlns=\\\"http://www.w3.org/1999/xhtml\\\">x</b>"));
+        assertTrue(result.contains("<http://example.org/s> <http://example.org/after> \"end\" ."));
+    }
+
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public final class VocabManagerTest {
+
+    private static final String VOCAB = "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n"
+            + "         xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\">\n"
+            + "  <rdf:Description rdf:about=\"http://example.org/vocab#a\">\n"
+            + "    <rdfs:subPropertyOf rdf:resource=\"http://example.org/vocab#b\"/>\n"
+            + "  </rdf:Description>\n"
+            + "</rdf:RDF>\n";
+
+    private static final String VOCAB_A = "http://example.org/vocab#a";
+    private static final String VOCAB_B = "http://example.org/vocab#b";
+
+    private File tempDir;
+
+    @BeforeMethod
+    public void createTempDir() throws IOException {
+        tempDir = File.createTempFile("vocabs", "");
+        assertTrue(tempDir.delete() && tempDir.mkdir());
+    }
+
+    @AfterMethod
+    public void deleteTempDir() {
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void concurrentMissesLoadVocabularyOnce() throws Exception {
+        final String url = writeVocab("vocab.rdf");
+        final VocabManager manager = new VocabManager();
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Vocabulary>> results = new ArrayList<Future<Vocabulary>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Vocabulary>() {
+                    @Override
+                    public Vocabulary call() throws Exception {
+                        start.await();
+                        return manager.findVocab(url, true);
+                    }
+                }));
+            }
+            start.countDown();
+            Vocabulary vocab = results.get(0).get();
+            for (Future<Vocabulary> result : results) {
+                assertSame(result.get(), vocab);
+            }
+            assertTrue(Arrays.asList(vocab.expandProperty(VOCAB_A)).contains(VOCAB_B));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(manager.getLoadCount(), 1);
+    }
+
+    @Test
+    public void persistedVocabulariesAreLoadedWithoutFetching() throws Exception {
+        File storage = new File(tempDir, "storage");
+        String url = writeVocab("vocab.rdf");
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL, storage);
+        assertTrue(manager.findVocab(url, true).isLoaded());
+        assertEquals(manager.getLoadCount(), 1);
+        assertTrue(new File(tempDir, "vocab.rdf").delete());
+
+        VocabManager warmManager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL,
+                storage);
+        Vocabulary vocab = warmManager.findVocab(url, true);
+        assertEquals(warmManager.getLoadCount(), 0);
+        assertTrue(Arrays.asList(vocab.expandProperty(VOCAB_A)).contains(VOCAB_B));
+        assertEquals(vocab.resolveTerm("#a"), null);
+    }
+
+    @Test
+    public void expiredVocabulariesAreReloaded() throws Exception {
+        String url = writeVocab("vocab.rdf");
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, 1, null);
+        manager.findVocab(url, true);
+        Thread.sleep(10);
+        manager.findVocab(url, true);
+        assertEquals(manager.getLoadCount(), 2);
+    }
+
+    @Test
+    public void failedVocabulariesExpireEarly() throws Exception {
+        String url = new File(tempDir, "missing.rdf").toURI().toString();
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL, 1, null,
+                new ClasspathVocabularyLoader(), new UrlVocabularyLoader());
+        assertFalse(manager.findVocab(url, true).isLoaded());
+        Thread.sleep(10);
+        writeVocab("missing.rdf");
+        assertTrue(manager.findVocab(url, true).isLoaded());
+        assertEquals(manager.getLoadCount(), 2);
+    }
+
+    @Test
+    public void cacheIsBounded() throws Exception {
+        VocabManager manager = new VocabManager(2, VocabManager.DEFAULT_TTL, null);
+        for (int i = 0; i < 5; i++) {
+            manager.findVocab(writeVocab("vocab" + i + ".rdf"), true);
+            assertTrue(manager.size() <= 2);
+        }
+        assertEquals(manager.getLoadCount(), 5);
+    }
+
+    @Test
+    public void vocabulariesAreNotLoadedWithoutExpansion() throws Exception {
+        VocabManager manager = new VocabManager();
+        assertFalse(manager.findVocab(writeVocab("vocab.rdf"), false).isLoaded());
+        assertEquals(manager.getLoadCount(), 0);
+        assertEquals(manager.size(), 0);
+    }
+
+    private String writeVocab(String name) throws IOException {
+        File file = new File(tempDir, name);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(VOCAB);
+        } finally {
+            writer.close();
+        }
+        return file.toURI().toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
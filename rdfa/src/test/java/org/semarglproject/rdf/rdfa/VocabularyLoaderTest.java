@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public final class VocabularyLoaderTest {
+
+    private static final String FOAF = "http://xmlns.com/foaf/0.1/";
+    private static final String SKOS = "http://www.w3.org/2004/02/skos/core#";
+
+    private File tempDir;
+
+    @BeforeMethod
+    public void createTempDir() throws IOException {
+        tempDir = File.createTempFile("vocabs", "");
+        assertTrue(tempDir.delete() && tempDir.mkdir());
+    }
+
+    @AfterMethod
+    public void deleteTempDir() {
+        File[] children = tempDir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void bundledVocabulariesAreLoadedOffline() {
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL, null,
+                new ClasspathVocabularyLoader());
+        Vocabulary foaf = manager.findVocab(FOAF, true);
+        assertTrue(foaf.isLoaded());
+        assertTrue(Arrays.asList(foaf.expandProperty(FOAF + "homepage")).contains(FOAF + "page"));
+        assertEquals(foaf.resolveTerm("knows"), FOAF + "knows");
+        assertNull(foaf.resolveTerm("unknownTerm"));
+
+        Vocabulary skos = manager.findVocab(SKOS, true);
+        assertTrue(Arrays.asList(skos.expandProperty(SKOS + "exactMatch")).contains(SKOS + "closeMatch"));
+        assertTrue(manager.findVocab("http://purl.org/dc/terms/", true).isLoaded());
+        assertTrue(manager.findVocab("http://purl.org/dc/elements/1.1/", true).isLoaded());
+        assertFalse(manager.findVocab("http://example.org/not-bundled#", true).isLoaded());
+    }
+
+    @Test
+    public void urlLoaderDetectsFormatOfDocuments() throws IOException {
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL, null,
+                new UrlVocabularyLoader());
+        String rdfa = writeFile("vocab-rdfa", "<html xmlns=\"http://www.w3.org/1999/xhtml\"><body>"
+                + "<div about=\"http://example.org/vocab#a\" rel=\"rdfs:subPropertyOf\" "
+                + "resource=\"http://example.org/vocab#b\"></div></body></html>");
+        String ntriples = writeFile("vocab-nt", "<http://example.org/vocab#a> "
+                + "<http://www.w3.org/2000/01/rdf-schema#subPropertyOf> <http://example.org/vocab#c> .\n");
+        assertTrue(Arrays.asList(manager.findVocab(rdfa, true).expandProperty("http://example.org/vocab#a"))
+                .contains("http://example.org/vocab#b"));
+        assertTrue(Arrays.asList(manager.findVocab(ntriples, true).expandProperty("http://example.org/vocab#a"))
+                .contains("http://example.org/vocab#c"));
+        assertEquals(manager.getLoadCount(), 2);
+    }
+
+    @Test
+    public void formatSniffing() {
+        assertEquals(sniff("\uFEFF<?xml version=\"1.0\"?>\n<rdf:RDF xmlns:rdf=\"...\">"), VocabularyFormat.RDF_XML);
+        assertEquals(sniff("<!DOCTYPE html>\n<html>"), VocabularyFormat.RDFA);
+        assertEquals(sniff("  <http://example.org/a> <http://example.org/b> _:c ."), VocabularyFormat.NTRIPLES);
+        assertEquals(sniff("<svg xmlns=\"http://www.w3.org/2000/svg\">"), VocabularyFormat.RDFA);
+        assertNull(sniff("@prefix ex: <http://example.org/> ."));
+        assertNull(sniff("{\"@context\": {}}"));
+        assertEquals(VocabularyFormat.fromMimeType("application/rdf+xml; charset=UTF-8"), VocabularyFormat.RDF_XML);
+        assertEquals(VocabularyFormat.fromMimeType("text/html"), VocabularyFormat.RDFA);
+        assertNull(VocabularyFormat.fromMimeType("text/plain"));
+    }
+
+    private static String sniff(String text) {
+        byte[] bytes;
+        try {
+            bytes = text.getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return VocabularyFormat.sniff(bytes, bytes.length);
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file.toURI().toString();
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012-2013 the Semargl contributors. See AUTHORS for more details.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.semarglproject.rdf.rdfa;
+
+import org.semarglproject.rdf.NTriplesSerializer;
+import org.semarglproject.rdf.ParseException;
+import org.semarglproject.sink.CharOutputSink;
+import org.semarglproject.sink.TripleSink;
+import org.semarglproject.source.StreamProcessor;
+import org.semarglproject.vocab.OWL;
+import org.semarglproject.vocab.RDF;
+import org.semarglproject.vocab.RDFS;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public final class VocabularyTest {
+
+    private static final String VOCAB = "http://example.org/vocab#";
+
+    private static final VocabularyLoader LOADER = new VocabularyLoader() {
+        @Override
+        public boolean load(String vocabUrl, TripleSink sink) {
+            if (!VOCAB.equals(vocabUrl)) {
+                return false;
+            }
+            sink.addNonLiteral(VOCAB + "p1", RDFS.SUB_PROPERTY_OF, VOCAB + "p2");
+            sink.addNonLiteral(VOCAB + "p2", RDFS.SUB_PROPERTY_OF, VOCAB + "p3");
+            sink.addNonLiteral(VOCAB + "p3", OWL.EQUIVALENT_PROPERTY, VOCAB + "p4");
+            sink.addNonLiteral(VOCAB + "p4", RDFS.SUB_PROPERTY_OF, VOCAB + "p1");
+            sink.addNonLiteral(VOCAB + "C1", RDFS.SUB_CLASS_OF, VOCAB + "C2");
+            sink.addNonLiteral(VOCAB + "C2", OWL.EQUIVALENT_CLASS, VOCAB + "C3");
+            sink.addNonLiteral(VOCAB + "term", RDF.TYPE, RDF.PROPERTY);
+            return true;
+        }
+    };
+
+    @Test
+    public void expansionsAreTransitive() {
+        Vocabulary vocab = load();
+        assertEquals(set(vocab.expandProperty(VOCAB + "p1")), set(VOCAB + "p2", VOCAB + "p3", VOCAB + "p4"));
+        assertEquals(set(vocab.expandProperty(VOCAB + "p3")), set(VOCAB + "p1", VOCAB + "p2", VOCAB + "p4"));
+        assertEquals(set(vocab.expandClass(VOCAB + "C1")), set(VOCAB + "C2", VOCAB + "C3"));
+        assertEquals(set(vocab.expandClass(VOCAB + "C3")), set(VOCAB + "C2"));
+        assertEquals(vocab.expandClass(VOCAB + "p1").length, 0);
+        assertEquals(vocab.expandProperty(VOCAB + "C1").length, 0);
+        assertEquals(vocab.expandProperty(VOCAB + "term").length, 0);
+        assertEquals(vocab.resolveTerm("term"), VOCAB + "term");
+        assertEquals(vocab.resolveTerm("unknown"), null);
+    }
+
+    @Test
+    public void storedVocabularyKeepsExpansions() throws IOException {
+        Vocabulary vocab = load();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vocab.writeTo(new DataOutputStream(bytes));
+        Vocabulary copy = Vocabulary.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (String term : new String[] {"p1", "p2", "p3", "p4", "C1", "C2", "C3", "term"}) {
+            assertEquals(set(copy.expandProperty(VOCAB + term)), set(vocab.expandProperty(VOCAB + term)));
+            assertEquals(set(copy.expandClass(VOCAB + term)), set(vocab.expandClass(VOCAB + term)));
+        }
+        assertEquals(copy.resolveTerm("term"), VOCAB + "term");
+    }
+
+    @Test
+    public void classesAreExpandedForTypesOnly() throws ParseException {
+        VocabManager manager = new VocabManager(VocabManager.DEFAULT_CAPACITY, VocabManager.DEFAULT_TTL, null, LOADER);
+        CharOutputSink outputSink = new CharOutputSink("UTF-8");
+        StringWriter output = new StringWriter();
+        outputSink.connect(output);
+        StreamProcessor sp = new StreamProcessor(RdfaParser.connect(NTriplesSerializer.connect(outputSink)));
+        sp.setProperty(RdfaParser.ENABLE_VOCAB_EXPANSION, true);
+        sp.setProperty(RdfaParser.VOCAB_MANAGER_PROPERTY, manager);
+        sp.process(new StringReader("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>Test</title></head>"
+                + "<body vocab=\"" + VOCAB + "\"><div about=\"http://example.org/s\" typeof=\"C1\">"
+                + "<a rel=\"p2\" href=\"http://example.org/vocab#C1\">link</a></div></body></html>"),
+                "http://example.org/");
+
+        String result = output.toString();
+        assertTrue(result.contains("<http://example.org/s> <" + RDF.TYPE + "> <" + VOCAB + "C3> ."));
+        assertTrue(result.contains("<http://example.org/s> <" + VOCAB + "p1> <" + VOCAB + "C1> ."));
+        assertFalse(result.contains("<http://example.org/s> <" + VOCAB + "p1> <" + VOCAB + "C2> ."));
+    }
+
+    @Test
+    public void triplesOfFailedLoaderAreDiscarded() {
+        VocabularyLoader failingLoader = new VocabularyLoader() {
+            @Override
+            public boolean load(String vocabUrl, TripleSink sink) throws ParseException {
+                sink.addNonLiteral(VOCAB + "partial", RDF.TYPE, RDF.PROPERTY);
+                sink.addNonLiteral(VOCAB + "p1", RDFS.SUB_PROPERTY_OF, VOCAB + "partial");
+                throw new ParseException("Truncated vocabulary");
+            }
+        };
+        Vocabulary vocab = new Vocabulary(VOCAB);
+        vocab.load(Collections.singletonList(failingLoader));
+        assertFalse(vocab.isLoaded());
+
+        vocab = new Vocabulary(VOCAB);
+        vocab.load(Arrays.asList(failingLoader, LOADER));
+        assertTrue(vocab.isLoaded());
+        assertEquals(vocab.resolveTerm("partial"), null);
+        assertEquals(set(vocab.expandProperty(VOCAB + "p1")), set(VOCAB + "p2", VOCAB + "p3", VOCAB + "p4"));
+    }
+
+    private static Vocabulary load() {
+        Vocabulary vocab = new Vocabulary(VOCAB);
+        vocab.load(Collections.singletonList(LOADER));
+        assertTrue(vocab.isLoaded());
+        return vocab;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<String>(Arrays.asList(values));
+    }
+}